@@ -0,0 +1,154 @@
+package benchmark;
+
+import copiaPelicula.CopiaPelicula;
+import copiaPelicula.CopiaPeliculaRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import pelicula.Pelicula;
+import pelicula.PeliculaCache;
+import pelicula.PeliculaRepository;
+import session.JPAUtil;
+import session.UnitOfWork;
+import user.User;
+import user.UserRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Base de datos temporal compartida por las pruebas de rendimiento.
+ * <p>
+ * Antes de cada prueba crea un fichero ObjectDB nuevo en un directorio temporal (redirigiendo
+ * {@link JPAUtil} con la propiedad {@code objectdb.url}) y lo puebla con el tamaño indicado por los
+ * parámetros: {@code peliculas} películas con {@code copiasPorPelicula} copias cada una, una película
+ * "popular" con {@code copiasPopular} copias libres y {@code usuarios} usuarios sin alquileres.
+ * Al terminar cierra la factoría y borra el directorio.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class BaseDatosBenchmark {
+
+    @Param({"1000", "10000"})
+    public int peliculas;
+
+    @Param({"1"})
+    public int copiasPorPelicula;
+
+    @Param({"10000"})
+    public int copiasPopular;
+
+    @Param({"64"})
+    public int usuarios;
+
+    Path directorio;
+    List<Integer> idsPeliculas;
+    List<Integer> idsUsuarios;
+    Pelicula popular;
+
+    /**
+     * Crea y puebla la base de datos temporal.
+     *
+     * @throws IOException Si no se puede crear el directorio temporal.
+     */
+    @Setup(Level.Trial)
+    public void crear() throws IOException {
+        directorio = Files.createTempDirectory("objectdb-benchmark");
+        System.setProperty("objectdb.url", "objectdb:" + directorio.resolve("benchmark.odb").toAbsolutePath());
+        JPAUtil.shutdown();
+        PeliculaCache.getInstance().clear();
+        // Una sola transacción: las copias referencian películas aún gestionadas por el mismo EntityManager
+        UnitOfWork.runInTransaction(em -> poblar());
+        // Cada prueba empieza con la caché del catálogo vacía
+        PeliculaCache.getInstance().clear();
+    }
+
+    private void poblar() {
+        PeliculaRepository peliculaRepository = new PeliculaRepository();
+        CopiaPeliculaRepository copiaRepository = new CopiaPeliculaRepository();
+        UserRepository userRepository = new UserRepository();
+
+        List<Pelicula> nuevas = new ArrayList<>(peliculas);
+        for (int i = 0; i < peliculas; i++) {
+            nuevas.add(pelicula("Película " + i, "Género " + (i % 20), 1950 + i % 75));
+        }
+        idsPeliculas = new ArrayList<>(peliculas);
+        List<CopiaPelicula> copias = new ArrayList<>();
+        for (Pelicula p : peliculaRepository.saveAll(nuevas)) {
+            idsPeliculas.add(p.getId());
+            for (int c = 0; c < copiasPorPelicula; c++) {
+                copias.add(copia(p, c % 2 == 0 ? "DVD" : "BluRay"));
+            }
+        }
+        copiaRepository.saveAll(copias);
+
+        popular = peliculaRepository.save(pelicula("Popular", "Estreno", 2025));
+        List<CopiaPelicula> copiasPopulares = new ArrayList<>(copiasPopular);
+        for (int c = 0; c < copiasPopular; c++) {
+            copiasPopulares.add(copia(popular, "DVD"));
+        }
+        copiaRepository.saveAll(copiasPopulares);
+
+        List<User> nuevosUsuarios = new ArrayList<>(usuarios);
+        for (int i = 0; i < usuarios; i++) {
+            User u = new User();
+            u.setNombreUsuario(nombreUsuario(i));
+            u.setContraseña(contraseña(i));
+            nuevosUsuarios.add(u);
+        }
+        idsUsuarios = new ArrayList<>(usuarios);
+        for (User u : userRepository.saveAll(nuevosUsuarios)) {
+            idsUsuarios.add(u.getId());
+        }
+    }
+
+    /**
+     * Cierra la base de datos y borra el directorio temporal.
+     *
+     * @throws IOException Si no se pueden borrar los ficheros.
+     */
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        JPAUtil.shutdown();
+        PeliculaCache.getInstance().clear();
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            for (Path f : ficheros.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    static String nombreUsuario(int i) {
+        return "usuario" + i;
+    }
+
+    static String contraseña(int i) {
+        return "clave" + i;
+    }
+
+    private static Pelicula pelicula(String titulo, String genero, int año) {
+        Pelicula p = new Pelicula();
+        p.setTitulo(titulo);
+        p.setGenero(genero);
+        p.setAño(año);
+        p.setDirector("Director");
+        p.setDescripcion("Descripción de " + titulo);
+        return p;
+    }
+
+    private static CopiaPelicula copia(Pelicula p, String soporte) {
+        CopiaPelicula c = new CopiaPelicula();
+        c.setPelicula(p);
+        c.setEstado("Disponible");
+        c.setSoporte(soporte);
+        return c;
+    }
+}
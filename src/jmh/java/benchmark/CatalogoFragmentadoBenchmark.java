@@ -0,0 +1,152 @@
+package benchmark;
+
+import copiaPelicula.CopiaPelicula;
+import copiaPelicula.Disponibilidad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pelicula.CatalogoFragmentado;
+import pelicula.FiltroCatalogo;
+import pelicula.OrdenCatalogo;
+import pelicula.Pelicula;
+import pelicula.PeliculaResumen;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Escalado del catálogo fragmentado ({@link CatalogoFragmentado}) con el número de fragmentos.
+ * <p>
+ * El mismo catálogo se reparte entre 1, 2 o 4 ficheros en una carpeta temporal. Con un solo fragmento la
+ * consulta equivale a la de {@code PeliculaRepository}; con más, cada fragmento recorre una parte del
+ * catálogo en paralelo y se mezclan los resultados. Se mide la primera página por título (la mezcla domina),
+ * una página filtrada por género y año a partir de un cursor aleatorio (el filtrado en cada fragmento domina)
+ * y el recuento de disponibilidad de una página de películas repartida entre fragmentos.
+ * </p>
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="CatalogoFragmentadoBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogoFragmentadoBenchmark {
+
+    private static final int TAMAÑO_PAGINA = 50;
+    private static final int LOTE = 10_000;
+
+    @Param({"1", "2", "4"})
+    public int fragmentos;
+
+    @Param({"200000"})
+    public int peliculas;
+
+    private Path directorio;
+    private CatalogoFragmentado catalogo;
+    private List<Integer> ids;
+    private List<PeliculaResumen> cursores;
+
+    /**
+     * Crea los fragmentos y reparte el catálogo, con dos copias por película.
+     *
+     * @throws Exception Si no se puede crear la carpeta temporal.
+     */
+    @Setup(Level.Trial)
+    public void crear() throws Exception {
+        directorio = Files.createTempDirectory("objectdb-fragmentos");
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < fragmentos; i++) {
+            urls.add("objectdb:" + directorio.resolve("catalogo-" + i + ".odb").toAbsolutePath());
+        }
+        catalogo = new CatalogoFragmentado(urls);
+
+        ids = new ArrayList<>(peliculas);
+        for (int desde = 0; desde < peliculas; desde += LOTE) {
+            List<Pelicula> lote = new ArrayList<>(LOTE);
+            for (int i = desde; i < Math.min(peliculas, desde + LOTE); i++) {
+                Pelicula p = new Pelicula();
+                p.setTitulo("Película " + Integer.toHexString(i * 0x9E3779B1));
+                p.setGenero("Género " + (i % 20));
+                p.setAño(1950 + i % 75);
+                p.setDirector("Director");
+                p.setDescripcion("Descripción de la película " + i);
+                Set<CopiaPelicula> copias = new HashSet<>();
+                for (int c = 0; c < 2; c++) {
+                    CopiaPelicula copia = new CopiaPelicula();
+                    copia.setPelicula(p);
+                    copia.setEstado("Bueno");
+                    copia.setSoporte(c == 0 ? "DVD" : "Blu-ray");
+                    copias.add(copia);
+                }
+                p.setCopias(copias);
+                lote.add(p);
+            }
+            for (Pelicula p : catalogo.guardarTodas(lote)) ids.add(p.getId());
+        }
+        // Cursores para pedir páginas intermedias en orden de título
+        cursores = new ArrayList<>();
+        PeliculaResumen ultimo = null;
+        for (int i = 0; i < 20; i++) {
+            List<PeliculaResumen> pagina = catalogo.findResumenPage(OrdenCatalogo.TITULO, true, FiltroCatalogo.NINGUNO,
+                    ultimo, peliculas / 20);
+            ultimo = pagina.getLast();
+            cursores.add(ultimo);
+        }
+    }
+
+    /**
+     * Cierra los fragmentos y borra la carpeta temporal.
+     *
+     * @throws Exception Si no se pueden borrar los ficheros.
+     */
+    @TearDown(Level.Trial)
+    public void cerrar() throws Exception {
+        catalogo.close();
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            for (Path f : ficheros.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<PeliculaResumen> primeraPaginaPorTitulo() {
+        return catalogo.findResumenPage(OrdenCatalogo.TITULO, true, FiltroCatalogo.NINGUNO, null, TAMAÑO_PAGINA);
+    }
+
+    @Benchmark
+    public List<PeliculaResumen> paginaFiltrada() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        FiltroCatalogo filtro = new FiltroCatalogo("Género " + aleatorio.nextInt(20), 1980, 2000);
+        PeliculaResumen cursor = cursores.get(aleatorio.nextInt(cursores.size()));
+        return catalogo.findResumenPage(OrdenCatalogo.TITULO, true, filtro, cursor, TAMAÑO_PAGINA);
+    }
+
+    @Benchmark
+    public Map<Integer, Disponibilidad> contarDisponibilidad() {
+        int desde = ThreadLocalRandom.current().nextInt(ids.size() - TAMAÑO_PAGINA);
+        return catalogo.contarDisponibilidad(ids.subList(desde, desde + TAMAÑO_PAGINA));
+    }
+}
@@ -0,0 +1,276 @@
+package benchmark;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import session.ConfiguracionConexion;
+
+import javax.jdo.annotations.Index;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Latencia de las búsquedas de login y de disponibilidad de copias con y sin los índices de ObjectDB.
+ * <p>
+ * Los índices de {@code User.nombreUsuario}, {@code CopiaPelicula.usuario} y {@code (pelicula, usuario)} se
+ * declaran con anotaciones, así que no se pueden quitar en tiempo de ejecución. Para tener una línea base la
+ * prueba usa dos pares de entidades propias con la misma forma que {@code User} y {@code CopiaPelicula}: uno
+ * con las mismas anotaciones {@link Index} y otro sin ninguna. Con {@code indices=sin} las consultas recorren
+ * la clase entera; con {@code indices=con} usan el índice.
+ * </p>
+ * <p>
+ * Se crean {@code filas} usuarios y {@code filas} copias repartidas entre {@code filas / 10} películas, y la
+ * mitad de las copias quedan alquiladas. Poblar un millón de filas tarda varios minutos y ocupa unos cientos de
+ * megas en la carpeta temporal:
+ * </p>
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="IndicesBenchmark -p filas=1000000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndicesBenchmark {
+
+    private static final int LOTE = 10_000;
+
+    @Param({"con", "sin"})
+    public String indices;
+
+    @Param({"100000", "1000000"})
+    public int filas;
+
+    private Path directorio;
+    private EntityManagerFactory factoria;
+    private boolean conIndices;
+    private Integer[] idsPeliculas;
+
+    /**
+     * Película mínima a la que apuntan las copias.
+     */
+    @Entity
+    public static class PeliculaPrueba {
+        @Id
+        @GeneratedValue
+        Integer id;
+    }
+
+    /**
+     * Usuario con el índice de {@code User.nombreUsuario}.
+     */
+    @Entity
+    public static class UsuarioIndexado {
+        @Id
+        @GeneratedValue
+        Integer id;
+        @Index
+        String nombreUsuario;
+    }
+
+    /**
+     * Usuario sin índices.
+     */
+    @Entity
+    public static class UsuarioSinIndice {
+        @Id
+        @GeneratedValue
+        Integer id;
+        String nombreUsuario;
+    }
+
+    /**
+     * Copia con los índices de {@code CopiaPelicula}.
+     */
+    @Entity
+    @Index(members = {"pelicula", "usuario"})
+    public static class CopiaIndexada {
+        @Id
+        @GeneratedValue
+        Integer id;
+        @ManyToOne
+        PeliculaPrueba pelicula;
+        @Index
+        @OneToOne
+        UsuarioIndexado usuario;
+    }
+
+    /**
+     * Copia sin índices.
+     */
+    @Entity
+    public static class CopiaSinIndice {
+        @Id
+        @GeneratedValue
+        Integer id;
+        @ManyToOne
+        PeliculaPrueba pelicula;
+        @OneToOne
+        UsuarioSinIndice usuario;
+    }
+
+    /**
+     * Crea la base de datos temporal y la puebla por lotes.
+     *
+     * @throws Exception Si no se puede crear la carpeta temporal.
+     */
+    @Setup(Level.Trial)
+    public void crear() throws Exception {
+        conIndices = indices.equals("con");
+        directorio = Files.createTempDirectory("objectdb-indices");
+        String url = "objectdb:" + directorio.resolve("indices.odb").toAbsolutePath();
+        Map<String, String> propiedades = new ConfiguracionConexion(ConfiguracionConexion.Modo.EMBEBIDO, url,
+                null, null, 0).propiedadesJpa();
+        factoria = Persistence.createEntityManagerFactory("objectdbPU", propiedades);
+
+        int peliculas = Math.max(1, filas / 10);
+        EntityManager em = factoria.createEntityManager();
+        try {
+            PeliculaPrueba[] listaPeliculas = new PeliculaPrueba[peliculas];
+            em.getTransaction().begin();
+            for (int i = 0; i < peliculas; i++) {
+                listaPeliculas[i] = new PeliculaPrueba();
+                em.persist(listaPeliculas[i]);
+            }
+            em.getTransaction().commit();
+            idsPeliculas = new Integer[peliculas];
+            for (int i = 0; i < peliculas; i++) idsPeliculas[i] = listaPeliculas[i].id;
+            em.clear();
+
+            for (int desde = 0; desde < filas; desde += LOTE) {
+                em.getTransaction().begin();
+                for (int i = desde; i < Math.min(filas, desde + LOTE); i++) {
+                    Object usuario = conIndices ? usuarioIndexado(i) : usuarioSinIndice(i);
+                    em.persist(usuario);
+                    PeliculaPrueba pelicula = em.getReference(PeliculaPrueba.class, idsPeliculas[i % peliculas]);
+                    // La mitad de las copias quedan alquiladas, cada una por un usuario distinto
+                    boolean alquilada = i % 2 == 0;
+                    if (conIndices) {
+                        CopiaIndexada copia = new CopiaIndexada();
+                        copia.pelicula = pelicula;
+                        copia.usuario = alquilada ? (UsuarioIndexado) usuario : null;
+                        em.persist(copia);
+                    } else {
+                        CopiaSinIndice copia = new CopiaSinIndice();
+                        copia.pelicula = pelicula;
+                        copia.usuario = alquilada ? (UsuarioSinIndice) usuario : null;
+                        em.persist(copia);
+                    }
+                }
+                em.getTransaction().commit();
+                em.clear();
+            }
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    /**
+     * Cierra la base de datos y borra la carpeta temporal.
+     *
+     * @throws Exception Si no se pueden borrar los ficheros.
+     */
+    @TearDown(Level.Trial)
+    public void cerrar() throws Exception {
+        factoria.close();
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            for (Path f : ficheros.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    /**
+     * La búsqueda del login: un usuario por nombre.
+     */
+    @Benchmark
+    public List<?> usuarioPorNombre() {
+        String nombre = "usuario" + ThreadLocalRandom.current().nextInt(filas);
+        return leer(em -> em.createQuery("SELECT u FROM " + usuarios() + " u WHERE u.nombreUsuario = :nombre")
+                .setParameter("nombre", nombre)
+                .getResultList());
+    }
+
+    /**
+     * La resolución de {@code User.copiaAsignada}: la copia alquilada por un usuario.
+     */
+    @Benchmark
+    public List<?> copiaDeUsuario() {
+        int i = ThreadLocalRandom.current().nextInt(filas / 2) * 2;
+        return leer(em -> em.createQuery("SELECT c FROM " + copias() + " c WHERE c.usuario.nombreUsuario = :nombre")
+                .setParameter("nombre", "usuario" + i)
+                .getResultList());
+    }
+
+    /**
+     * La búsqueda de una copia libre de una película al alquilar ({@code pelicula = :p AND usuario IS NULL}).
+     */
+    @Benchmark
+    public List<?> copiaLibreDePelicula() {
+        Integer idPelicula = idsPeliculas[ThreadLocalRandom.current().nextInt(idsPeliculas.length)];
+        return leer(em -> {
+            PeliculaPrueba pelicula = em.getReference(PeliculaPrueba.class, idPelicula);
+            return em.createQuery("SELECT c FROM " + copias() + " c WHERE c.pelicula = :p AND c.usuario IS NULL")
+                    .setParameter("p", pelicula)
+                    .setMaxResults(1)
+                    .getResultList();
+        });
+    }
+
+    private String usuarios() {
+        return conIndices ? "UsuarioIndexado" : "UsuarioSinIndice";
+    }
+
+    private String copias() {
+        return conIndices ? "CopiaIndexada" : "CopiaSinIndice";
+    }
+
+    private <R> R leer(Function<EntityManager, R> consulta) {
+        EntityManager em = factoria.createEntityManager();
+        try {
+            return consulta.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static UsuarioIndexado usuarioIndexado(int i) {
+        UsuarioIndexado u = new UsuarioIndexado();
+        u.nombreUsuario = "usuario" + i;
+        return u;
+    }
+
+    private static UsuarioSinIndice usuarioSinIndice(int i) {
+        UsuarioSinIndice u = new UsuarioSinIndice();
+        u.nombreUsuario = "usuario" + i;
+        return u;
+    }
+}
@@ -0,0 +1,208 @@
+package benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pelicula.Pelicula;
+import pelicula.PeliculaResumen;
+import session.ConfiguracionConexion;
+import session.ServidorObjectDB;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Rendimiento con varios clientes a la vez, en modo embebido y en modo cliente/servidor.
+ * <p>
+ * Cada hilo de JMH hace de un cliente de escritorio con su propia factoría de EntityManagers (en lugar de la
+ * compartida de {@code JPAUtil}), de modo que el número de hilos ({@code -t}, por defecto 4) es el número de
+ * clientes. En modo {@code servidor} la prueba arranca un servidor ObjectDB en otro proceso con
+ * {@link ServidorObjectDB}, en un puerto libre y sobre una carpeta temporal; en modo {@code embebido} todos
+ * los clientes abren el mismo fichero dentro del proceso de la prueba, que es lo máximo que permite ese modo
+ * (otro proceso no podría abrirlo). Se mide una lectura de una página del catálogo y una actualización.
+ * </p>
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="ModoConexionBenchmark -t 8"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ModoConexionBenchmark {
+
+    private static final int TAMAÑO_PAGINA = 100;
+
+    @Param({"embebido", "servidor"})
+    public String modo;
+
+    @Param({"10000"})
+    public int peliculas;
+
+    private Path directorio;
+    private Process servidor;
+    private int puerto;
+    private Map<String, String> propiedades;
+    private int primerId;
+
+    /**
+     * Un cliente de escritorio: su propia factoría de EntityManagers.
+     */
+    @State(Scope.Thread)
+    public static class Cliente {
+        EntityManagerFactory factoria;
+
+        @Setup(Level.Trial)
+        public void conectar(ModoConexionBenchmark prueba) {
+            factoria = Persistence.createEntityManagerFactory("objectdbPU", prueba.propiedades);
+        }
+
+        @TearDown(Level.Trial)
+        public void desconectar() {
+            factoria.close();
+        }
+    }
+
+    /**
+     * Arranca el servidor si hace falta y puebla la base de datos.
+     *
+     * @throws Exception Si el servidor no arranca o no se puede crear la base de datos.
+     */
+    @Setup(Level.Trial)
+    public void crear() throws Exception {
+        directorio = Files.createTempDirectory("objectdb-modo");
+        Files.createDirectories(directorio.resolve("db"));
+        String url;
+        if (modo.equals("servidor")) {
+            try (ServerSocket libre = new ServerSocket(0)) {
+                puerto = libre.getLocalPort();
+            }
+            servidor = lanzarServidor("arrancar").inheritIO().start();
+            esperarPuerto();
+            url = "objectdb://localhost:" + puerto + "/benchmark.odb";
+        } else {
+            url = "objectdb:" + directorio.resolve("db").resolve("benchmark.odb").toAbsolutePath();
+        }
+        System.setProperty("objectdb.url", url);
+        propiedades = ConfiguracionConexion.cargar().propiedadesJpa();
+
+        EntityManagerFactory factoria = Persistence.createEntityManagerFactory("objectdbPU", propiedades);
+        EntityManager em = factoria.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < peliculas; i++) {
+                Pelicula p = new Pelicula();
+                p.setTitulo("Película " + i);
+                p.setGenero("Género " + (i % 20));
+                p.setAño(1950 + i % 75);
+                p.setDirector("Director");
+                p.setDescripcion("Descripción de la película " + i);
+                em.persist(p);
+            }
+            em.getTransaction().commit();
+            primerId = em.createQuery("SELECT MIN(p.id) FROM Pelicula p", Integer.class).getSingleResult();
+        } finally {
+            em.close();
+            factoria.close();
+        }
+    }
+
+    /**
+     * Para el servidor y borra la carpeta temporal.
+     *
+     * @throws Exception Si no se pueden borrar los ficheros.
+     */
+    @TearDown(Level.Trial)
+    public void cerrar() throws Exception {
+        System.clearProperty("objectdb.url");
+        if (servidor != null) {
+            lanzarServidor("parar").inheritIO().start().waitFor(30, TimeUnit.SECONDS);
+            servidor.destroy();
+            servidor.waitFor(30, TimeUnit.SECONDS);
+        }
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            for (Path f : ficheros.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<PeliculaResumen> leerPagina(Cliente cliente) {
+        int desde = primerId + ThreadLocalRandom.current().nextInt(Math.max(1, peliculas - TAMAÑO_PAGINA));
+        EntityManager em = cliente.factoria.createEntityManager();
+        try {
+            return em.createQuery("SELECT NEW pelicula.PeliculaResumen(p.id, p.titulo, p.genero, p.año, p.image_url) "
+                            + "FROM Pelicula p WHERE p.id > :desde ORDER BY p.id", PeliculaResumen.class)
+                    .setParameter("desde", desde)
+                    .setMaxResults(TAMAÑO_PAGINA)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public Pelicula actualizarPelicula(Cliente cliente) {
+        int id = primerId + ThreadLocalRandom.current().nextInt(peliculas);
+        EntityManager em = cliente.factoria.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Pelicula p = em.find(Pelicula.class, id);
+            p.setDescripcion("Actualizada " + System.nanoTime());
+            em.getTransaction().commit();
+            return p;
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    private ProcessBuilder lanzarServidor(String orden) {
+        return new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Dobjectdb.home=" + directorio.toAbsolutePath(),
+                "-Dconexion.servidor.puerto=" + puerto,
+                ServidorObjectDB.class.getName(), orden);
+    }
+
+    private void esperarPuerto() throws IOException, InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < limite) {
+            try (Socket ignorado = new Socket("localhost", puerto)) {
+                return;
+            } catch (IOException e) {
+                if (!servidor.isAlive()) throw new IOException("El servidor ObjectDB terminó al arrancar.");
+                Thread.sleep(100);
+            }
+        }
+        throw new IOException("El servidor ObjectDB no respondió en el puerto " + puerto);
+    }
+}
@@ -0,0 +1,118 @@
+package benchmark;
+
+import copiaPelicula.CopiaPelicula;
+import copiaPelicula.CopiaPeliculaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pelicula.FiltroCatalogo;
+import pelicula.OrdenCatalogo;
+import pelicula.Pelicula;
+import pelicula.PeliculaRepository;
+import pelicula.PeliculaResumen;
+import session.UnitOfWork;
+import user.User;
+import user.UserRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pruebas de rendimiento de los repositorios sobre la base de datos temporal de {@link BaseDatosBenchmark}.
+ * <p>
+ * Miden el tiempo medio por operación de las lecturas habituales: búsqueda por ID (con y sin la caché
+ * del catálogo), listado completo frente a paginado (de entidades y de resúmenes, también ordenado y
+ * filtrado en la base de datos), recuento, búsqueda de usuario por nombre (índice) y varias lecturas
+ * con y sin una unidad de trabajo común.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositorioBenchmark {
+
+    private final PeliculaRepository peliculaRepository = new PeliculaRepository();
+    private final CopiaPeliculaRepository copiaRepository = new CopiaPeliculaRepository();
+    private final UserRepository userRepository = new UserRepository();
+
+    @Benchmark
+    public Optional<Pelicula> peliculaFindById(BaseDatosBenchmark bd) {
+        return peliculaRepository.findById(idPeliculaAleatorio(bd).longValue());
+    }
+
+    @Benchmark
+    public Optional<Pelicula> peliculaFindByIdSinCache(BaseDatosBenchmark bd) {
+        // Dentro de una unidad de trabajo el repositorio no usa la caché y siempre consulta la base de datos
+        return UnitOfWork.read(em -> peliculaRepository.findById(idPeliculaAleatorio(bd).longValue()));
+    }
+
+    @Benchmark
+    public List<Pelicula> peliculaFindAll() {
+        return peliculaRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Pelicula> peliculaFindPage(BaseDatosBenchmark bd) {
+        return peliculaRepository.findPage(idPeliculaAleatorio(bd), 100);
+    }
+
+    @Benchmark
+    public List<PeliculaResumen> peliculaFindResumenPage(BaseDatosBenchmark bd) {
+        return peliculaRepository.findResumenPage(idPeliculaAleatorio(bd), 100);
+    }
+
+    @Benchmark
+    public List<PeliculaResumen> peliculaFindResumenPageOrdenadaYFiltrada() {
+        // Primera página del catálogo ordenado por título y filtrado por año, resuelta en la base de datos
+        return peliculaRepository.findResumenPage(OrdenCatalogo.TITULO, true,
+                new FiltroCatalogo(null, 1990, 2010), null, 100);
+    }
+
+    @Benchmark
+    public Long peliculaCount() {
+        return peliculaRepository.count();
+    }
+
+    @Benchmark
+    public Long copiaCount() {
+        return copiaRepository.count();
+    }
+
+    @Benchmark
+    public Optional<User> usuarioFindByNombreUsuario(BaseDatosBenchmark bd) {
+        int i = ThreadLocalRandom.current().nextInt(bd.usuarios);
+        return userRepository.findByNombreUsuario(BaseDatosBenchmark.nombreUsuario(i));
+    }
+
+    @Benchmark
+    public int copiasFindByIdSinUnidadDeTrabajo(BaseDatosBenchmark bd) {
+        // Cada llamada abre y cierra su propio EntityManager
+        int encontradas = 0;
+        for (int i = 0; i < 3; i++) {
+            Optional<CopiaPelicula> copia = copiaRepository.findById(idPeliculaAleatorio(bd).longValue());
+            if (copia.isPresent()) encontradas++;
+        }
+        return encontradas;
+    }
+
+    @Benchmark
+    public int copiasFindByIdEnUnidadDeTrabajo(BaseDatosBenchmark bd) {
+        // Las tres llamadas comparten EntityManager
+        return UnitOfWork.read(em -> copiasFindByIdSinUnidadDeTrabajo(bd));
+    }
+
+    private static Integer idPeliculaAleatorio(BaseDatosBenchmark bd) {
+        return bd.idsPeliculas.get(ThreadLocalRandom.current().nextInt(bd.idsPeliculas.size()));
+    }
+}
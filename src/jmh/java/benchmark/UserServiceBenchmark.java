@@ -0,0 +1,111 @@
+package benchmark;
+
+import copiaPelicula.CopiaPelicula;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pelicula.Pelicula;
+import session.UnitOfWork;
+import user.User;
+import user.UserService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pruebas de rendimiento de las operaciones de {@link UserService} sobre la base de datos temporal de
+ * {@link BaseDatosBenchmark}, medidas en operaciones por segundo.
+ * <p>
+ * El alquiler se mide como alquiler más devolución de una copia de la película "popular" (con
+ * {@code copiasPopular} copias), para que la base de datos no cambie entre iteraciones. Se compara la
+ * asignación actual con la de cargar todas las copias libres ({@link #alquilarCargandoTodasLasCopias}).
+ * Cada hilo usa su propio usuario, por lo que {@code usuarios} debe ser al menos el número de hilos
+ * ({@code -t}).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private final UserService userService = new UserService();
+
+    /**
+     * Usuario asignado a cada hilo de la prueba.
+     */
+    @State(Scope.Thread)
+    public static class Hilo {
+        private static final AtomicInteger siguiente = new AtomicInteger();
+        User usuario;
+
+        @Setup(Level.Trial)
+        public void asignar(BaseDatosBenchmark bd) {
+            int i = siguiente.getAndIncrement() % bd.usuarios;
+            usuario = new User();
+            usuario.setId(bd.idsUsuarios.get(i));
+        }
+    }
+
+    @Benchmark
+    public User login(BaseDatosBenchmark bd) {
+        int i = ThreadLocalRandom.current().nextInt(bd.usuarios);
+        return userService.login(BaseDatosBenchmark.nombreUsuario(i), BaseDatosBenchmark.contraseña(i));
+    }
+
+    @Benchmark
+    public Pelicula actualizarPelicula(BaseDatosBenchmark bd) {
+        Integer id = bd.idsPeliculas.get(ThreadLocalRandom.current().nextInt(bd.idsPeliculas.size()));
+        Pelicula p = userService.findPeliculaById(id).orElseThrow();
+        p.setDescripcion("Actualizada " + System.nanoTime());
+        userService.updatePelicula(p);
+        return p;
+    }
+
+    @Benchmark
+    public void alquilarYDevolver(BaseDatosBenchmark bd, Hilo hilo) {
+        userService.addPeliculaOrCopia(hilo.usuario, bd.popular);
+        devolver(hilo.usuario);
+    }
+
+    @Benchmark
+    public void alquilarCargandoTodasLasCopias(BaseDatosBenchmark bd, Hilo hilo) {
+        // Asignación anterior: se cargan todas las copias libres para quedarse con la primera
+        UnitOfWork.runInTransaction(em -> {
+            User u = em.find(User.class, hilo.usuario.getId());
+            List<CopiaPelicula> libres = em.createQuery(
+                            "SELECT c FROM CopiaPelicula c WHERE c.pelicula = :p AND c.usuario IS NULL", CopiaPelicula.class)
+                    .setParameter("p", bd.popular)
+                    .getResultList();
+            CopiaPelicula copia = libres.get(0);
+            copia.setUsuario(u);
+            copia.setEstado("Alquilada");
+        });
+        devolver(hilo.usuario);
+    }
+
+    private static void devolver(User usuario) {
+        UnitOfWork.runInTransaction(em -> {
+            User u = em.find(User.class, usuario.getId());
+            em.createQuery("SELECT c FROM CopiaPelicula c WHERE c.usuario = :u", CopiaPelicula.class)
+                    .setParameter("u", u)
+                    .getResultList()
+                    .forEach(c -> {
+                        c.setUsuario(null);
+                        c.setEstado("Disponible");
+                    });
+        });
+    }
+}
@@ -6,9 +6,12 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
+import javafx.scene.image.ImageView;
 import pelicula.Pelicula;
 import session.SimpleSessionService;
 import user.User;
+import utils.AsyncUtil;
+import utils.CacheImagenes;
 import utils.JavaFXUtil;
 
 import java.net.URL;
@@ -18,7 +21,7 @@ import java.util.ResourceBundle;
  * Controlador para la vista de detalles de una película.
  * <p>
  * Esta clase gestiona la visualización de la información detallada de una película seleccionada,
- * incluyendo título, género, director, año y descripción.
+ * incluyendo título, género, director, año, descripción y póster.
  * También controla la visibilidad del botón de edición según los permisos del usuario (administrador).
  * </p>
  */
@@ -30,6 +33,7 @@ public class DetailController implements Initializable {
     @FXML private Label lblTitulo;
     @FXML private Label lblAño;
     @FXML private Label lblDirector;
+    @FXML private ImageView imgPoster;
 
     private final SimpleSessionService sessionService = new SimpleSessionService();
     private Pelicula peliculaActual;
@@ -75,9 +79,24 @@ public class DetailController implements Initializable {
             taDescripcion.setText(pelicula.getDescripcion());
             taDescripcion.setEditable(false);
             taDescripcion.setWrapText(true);
+            cargarPoster(pelicula.getImage_url());
         }
     }
 
+    /**
+     * Muestra el póster de la película, cargado en segundo plano con {@link CacheImagenes}.
+     * Si no tiene póster o no se puede cargar, el hueco queda vacío.
+     *
+     * @param url La URL del póster, o {@code null}.
+     */
+    private void cargarPoster(String url) {
+        if (url == null || url.isBlank()) return;
+        CacheImagenes.getInstance().cargar(url, imgPoster.getFitWidth(), imgPoster.getFitHeight())
+                .whenCompleteAsync((imagen, error) -> {
+                    if (error == null) imgPoster.setImage(imagen);
+                }, AsyncUtil.fx());
+    }
+
     /**
      * Maneja el evento de clic en el botón "Editar".
      * <p>
@@ -1,15 +1,18 @@
 package controllers;
 
+import jakarta.persistence.OptimisticLockException;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import pelicula.Pelicula;
 import session.SimpleSessionService;
-import user.UserService;
+import user.AsyncUserService;
+import utils.AsyncUtil;
 import utils.JavaFXUtil;
 
 import java.net.URL;
@@ -31,9 +34,10 @@ public class EditarController implements Initializable {
     @FXML private TextArea taDescripcion;
     @FXML private Button btnGuardar;
     @FXML private Button btnCancelar;
+    @FXML private ProgressIndicator cargando;
 
     private final SimpleSessionService sessionService = new SimpleSessionService();
-    private final UserService userService = new UserService();
+    private final AsyncUserService userService = new AsyncUserService();
     private Pelicula peliculaAEditar;
 
     /**
@@ -70,35 +74,60 @@ public class EditarController implements Initializable {
     /**
      * Guarda los cambios realizados en la película.
      * <p>
-     * Valida los datos introducidos, actualiza el objeto película y lo persiste en la base de datos
-     * a través del {@link UserService}. Muestra alertas de éxito o error según el resultado.
+     * Valida los datos introducidos, aplica los cambios a una copia de la película y la persiste en segundo plano
+     * a través del {@link AsyncUserService}. Muestra alertas de éxito o error según el resultado.
      * </p>
      *
      * @param event El evento de acción generado por el botón "Guardar".
      */
     @FXML
     void guardarCambios(ActionEvent event) {
+        int año;
         try {
-            // Actualizamos el objeto con los nuevos datos de los campos
-            peliculaAEditar.setTitulo(tfTitulo.getText());
-            peliculaAEditar.setGenero(tfGenero.getText());
-            peliculaAEditar.setDirector(tfDirector.getText());
-            peliculaAEditar.setAño(Integer.parseInt(tfAño.getText()));
-            peliculaAEditar.setDescripcion(taDescripcion.getText());
-
-            // Llamamos al servicio (asegúrate de que UserService tenga el método updatePelicula)
-            userService.updatePelicula(peliculaAEditar);
+            año = Integer.parseInt(tfAño.getText());
+        } catch (NumberFormatException e) {
+            JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error de formato", "Campo 'Año' inválido", "El año debe ser un número válido.");
+            return;
+        }
 
-            JavaFXUtil.showModal(Alert.AlertType.INFORMATION, "Éxito", "Película actualizada", "Los cambios se han guardado correctamente.");
+        // Los cambios van sobre una copia: si el guardado falla, la película original queda intacta
+        Pelicula editada = peliculaAEditar.copiar();
+        editada.setTitulo(tfTitulo.getText());
+        editada.setGenero(tfGenero.getText());
+        editada.setDirector(tfDirector.getText());
+        editada.setAño(año);
+        editada.setDescripcion(taDescripcion.getText());
 
-            volver(null);
+        // Llamamos al servicio (asegúrate de que UserService tenga el método updatePelicula)
+        JavaFXUtil.enCarga(userService.updatePelicula(editada), cargando, btnGuardar, btnCancelar)
+                .whenCompleteAsync((v, error) -> {
+                    if (error != null) {
+                        if (esConflicto(error)) {
+                            JavaFXUtil.showModal(Alert.AlertType.WARNING, "Conflicto", "La película ha cambiado",
+                                    "Otro usuario ha modificado o borrado la película mientras la editabas. "
+                                            + "Vuelve a abrirla para ver sus datos actuales.");
+                            return;
+                        }
+                        JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error", "Error al guardar", "No se pudieron guardar los cambios.");
+                        AsyncUtil.causa(error).printStackTrace();
+                        return;
+                    }
+                    JavaFXUtil.showModal(Alert.AlertType.INFORMATION, "Éxito", "Película actualizada", "Los cambios se han guardado correctamente.");
+                    volver(null);
+                }, AsyncUtil.fx());
+    }
 
-        } catch (NumberFormatException e) {
-            JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error de formato", "Campo 'Año' inválido", "El año debe ser un número válido.");
-        } catch (Exception e) {
-            JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error", "Error al guardar", "No se pudieron guardar los cambios.");
-            e.printStackTrace();
+    /**
+     * Indica si el guardado falló por el bloqueo optimista de {@link Pelicula}: la versión editada era obsoleta.
+     *
+     * @param error El error del guardado.
+     * @return {@code true} si alguna causa es una {@link OptimisticLockException}.
+     */
+    private static boolean esConflicto(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof OptimisticLockException) return true;
         }
+        return false;
     }
 
     /**
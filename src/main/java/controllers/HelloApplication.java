@@ -3,9 +3,23 @@ package controllers;
 import jakarta.persistence.EntityManager;
 import javafx.application.Application;
 import javafx.stage.Stage;
+import pelicula.IndiceBusqueda;
+import pelicula.PeliculaCache;
+import pelicula.PeliculaRepository;
+import session.EstadisticasPersistencia;
+import session.ArranqueBaseDatos;
+import session.InstantaneaInformes;
 import session.JPAUtil;
+import session.RegistroConsultasLentas;
+import user.PasswordHasher;
+import user.UserService;
+import user.UsernameIndex;
+import utils.AsyncUtil;
 import utils.JavaFXUtil;
+import utils.Metricas;
+import utils.MonitorJMX;
 import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Clase principal de la aplicación JavaFX que extiende de {@link Application}.
@@ -22,10 +36,17 @@ public class HelloApplication extends Application {
      * <p>
      * Se ejecuta al lanzar la aplicación. Realiza las siguientes tareas:
      * <ol>
-     *     <li>Llama a {@link #seedData()} para verificar y poblar la base de datos si es necesario.</li>
+     *     <li>Publica por JMX las estadísticas de persistencia y de la caché del catálogo.</li>
+     *     <li>Arranca la base de datos en segundo plano con {@link ArranqueBaseDatos}: crea la factoría, llama a
+     *     {@link #seedData()} para verificar y poblar la base de datos si es necesario y, cuando está lista,
+     *     carga el {@link UsernameIndex}, construye el {@link IndiceBusqueda} del catálogo, purga las lápidas
+     *     antiguas de películas borradas y, si están activadas, crea la primera instantánea de solo lectura
+     *     para informes ({@link InstantaneaInformes}).</li>
      *     <li>Inicializa la utilidad {@link JavaFXUtil} con el escenario principal.</li>
-     *     <li>Carga y muestra la vista de inicio de sesión (login-view.fxml).</li>
+     *     <li>Carga y muestra la vista de inicio de sesión (login-view.fxml) sin esperar a la base de datos.</li>
+     *     <li>Precarga en segundo plano el resto de vistas FXML.</li>
      * </ol>
+     * Al terminar todas las fases muestra por consola cuánto tardó cada una.
      * </p>
      *
      * @param stage El escenario principal (Stage) proporcionado por el runtime de JavaFX.
@@ -33,8 +54,21 @@ public class HelloApplication extends Application {
      */
     @Override
     public void start(Stage stage) throws IOException {
-        // 1. Inicializamos los datos antes de cargar la interfaz
-        seedData();
+        long inicio = System.nanoTime();
+        // Estadísticas de persistencia y de la caché del catálogo, visibles con JConsole o VisualVM
+        MonitorJMX.registrar("Persistencia", EstadisticasPersistencia.getInstance());
+        MonitorJMX.registrar("PeliculaCache", PeliculaCache.getInstance());
+
+        // 1. La base de datos arranca en segundo plano; el login espera a que esté lista para habilitar la entrada
+        ArranqueBaseDatos arranque = ArranqueBaseDatos.getInstance();
+        arranque.iniciar(this::seedData);
+        // Los índices en memoria se cargan mientras el usuario inicia sesión
+        arranque.enSegundoPlano("índice de usuarios", UsernameIndex.getInstance()::cargar);
+        arranque.enSegundoPlano("índice de búsqueda", () -> IndiceBusqueda.getInstance().construirEnSegundoPlano().join());
+        // Las lápidas de borrados antiguos ya no las necesita ningún listado
+        arranque.enSegundoPlano("purga de lápidas", new PeliculaRepository()::purgarLapidas);
+        // Copia de solo lectura para los informes, renovada periódicamente (solo con -Dinstantanea.intervaloMin)
+        arranque.enSegundoPlano("instantánea de informes", InstantaneaInformes.getInstance()::iniciar);
 
         // 2. Configuramos JavaFX
         JavaFXUtil.initStage(stage);
@@ -42,6 +76,11 @@ public class HelloApplication extends Application {
         // Importante: Asegúrate de que la ruta al FXML sea la correcta
         // Si moviste los archivos a la raíz de resources, sería "/login-view.fxml"
         JavaFXUtil.setScene("/login-view.fxml");
+        arranque.registrarFase("interfaz", inicio);
+        // El resto de vistas se precargan mientras el usuario escribe sus credenciales
+        JavaFXUtil.precargar("/main-view.fxml", "/Detail-view.fxml", "/editar-view.fxml",
+                "/newFilmForm-view.fxml", "/metricas-view.fxml");
+        arranque.getTerminado().thenRun(() -> System.out.println(arranque.informe()));
     }
 
     /**
@@ -74,14 +113,14 @@ public class HelloApplication extends Application {
                 // Crear Usuario Admin
                 user.User admin = new user.User();
                 admin.setNombreUsuario("admin1");
-                admin.setContraseña("root");
+                admin.setContraseña(PasswordHasher.hash("root"));
                 admin.setAdmin(true);
                 em.persist(admin);
 
                 // 2. Crear Usuario NORMAL (No es admin)
                 user.User normalUser = new user.User();
                 normalUser.setNombreUsuario("user1");
-                normalUser.setContraseña("1234");
+                normalUser.setContraseña(PasswordHasher.hash("1234"));
                 normalUser.setAdmin(false); // <--- Importante: false
                 em.persist(normalUser);
 
@@ -119,13 +158,32 @@ public class HelloApplication extends Application {
     /**
      * Método llamado automáticamente cuando la aplicación se detiene.
      * <p>
-     * Se encarga de cerrar la factoría de EntityManagers de JPA (ObjectDB)
-     * para liberar los recursos de la base de datos de forma ordenada.
+     * Espera a las tareas en segundo plano y cierra la factoría de EntityManagers de JPA (ObjectDB)
+     * para liberar los recursos de la base de datos de forma ordenada. Muestra además los percentiles
+     * de latencia de los logins de la sesión y, si se indica {@code -Dmetricas.fichero}, vuelca allí
+     * las métricas de {@link Metricas}.
      * </p>
      */
     @Override
     public void stop() {
+        // Primero las tareas en segundo plano, que pueden estar usando la base de datos
+        AsyncUtil.shutdown();
+        InstantaneaInformes.getInstance().shutdown();
         JPAUtil.shutdown();
+        RegistroConsultasLentas.getInstance().shutdown();
+        MonitorJMX.desregistrarTodos();
+        if (UserService.getLatenciasLogin().getCount() > 0) {
+            System.out.println(UserService.getLatenciasLogin());
+        }
+        // -Dmetricas.fichero=ruta: al salir se añade el informe de métricas a ese fichero
+        String ficheroMetricas = System.getProperty("metricas.fichero");
+        if (ficheroMetricas != null) {
+            try {
+                Metricas.getInstance().volcar(Path.of(ficheroMetricas));
+            } catch (IOException e) {
+                System.err.println("No se pudo volcar el informe de métricas: " + e.getMessage());
+            }
+        }
         System.out.println("Conexión con ObjectDB cerrada.");
     }
 
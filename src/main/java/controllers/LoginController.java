@@ -4,9 +4,10 @@ import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import user.User;
-import user.UserService;
+import user.AsyncUserService;
+import session.ArranqueBaseDatos;
 import session.SimpleSessionService;
+import utils.AsyncUtil;
 import utils.JavaFXUtil;
 
 import java.net.URL;
@@ -23,14 +24,17 @@ public class LoginController implements Initializable {
     @FXML private PasswordField txtContraseña; // Cambiado a PasswordField por seguridad
     @FXML private TextField txtCorreo;
     @FXML private Label info;
+    @FXML private Button btnEntrar;
+    @FXML private ProgressIndicator cargando;
 
-    private final UserService userService = new UserService();
+    private final AsyncUserService userService = new AsyncUserService();
     private final SimpleSessionService sessionService = new SimpleSessionService();
 
     /**
      * Inicializa el controlador.
      * <p>
-     * Limpia cualquier mensaje de información o error previo al cargar la vista.
+     * Limpia cualquier mensaje de información o error previo al cargar la vista. Si la base de datos
+     * todavía está arrancando ({@link ArranqueBaseDatos}), deshabilita el botón de entrar hasta que esté lista.
      * </p>
      *
      * @param url            La ubicación utilizada para resolver rutas relativas.
@@ -40,14 +44,32 @@ public class LoginController implements Initializable {
     public void initialize(URL url, ResourceBundle resourceBundle) {
         // Limpiamos el mensaje de error al iniciar
         info.setText("");
+        ArranqueBaseDatos arranque = ArranqueBaseDatos.getInstance();
+        if (arranque.isListo()) return;
+
+        // La base de datos sigue arrancando en segundo plano: no se puede entrar todavía
+        // El botón se gestiona aquí y no con enCarga: si el arranque falla debe quedar deshabilitado
+        info.setText("Conectando con la base de datos...");
+        btnEntrar.setDisable(true);
+        JavaFXUtil.enCarga(arranque.getListo(), cargando)
+                .whenCompleteAsync((v, error) -> {
+                    if (error != null) {
+                        info.setText("No se pudo conectar con la base de datos.");
+                        info.setStyle("-fx-text-fill: red;");
+                        AsyncUtil.causa(error).printStackTrace();
+                    } else {
+                        info.setText("");
+                        btnEntrar.setDisable(false);
+                    }
+                }, AsyncUtil.fx());
     }
 
     /**
      * Maneja el proceso de inicio de sesión.
      * <p>
-     * Valida que los campos no estén vacíos, intenta autenticar al usuario mediante {@link UserService},
-     * y si es exitoso, guarda el usuario en la sesión y redirige a la vista principal.
-     * En caso contrario, muestra un mensaje de error.
+     * Valida que los campos no estén vacíos e intenta autenticar al usuario en segundo plano mediante
+     * {@link AsyncUserService}, con el botón deshabilitado mientras tanto. Si es exitoso, guarda el usuario
+     * en la sesión y redirige a la vista principal. En caso contrario, muestra un mensaje de error.
      * </p>
      *
      * @param actionEvent El evento de acción generado por el botón "Entrar".
@@ -65,16 +87,22 @@ public class LoginController implements Initializable {
 
         // Buscamos el usuario usando el UserService que ya tienes
         // Nota: Si no tienes un método login en UserService, podrías añadir uno simple.
-        User user = userService.login(username, password);
-
-        if (user != null) {
-            sessionService.login(user);
-            // IMPORTANTE: Ruta simplificada del FXML
-            JavaFXUtil.setScene("/main-view.fxml");
-        } else {
-            info.setText("Usuario o contraseña incorrectos.");
-            info.setStyle("-fx-text-fill: red;");
-        }
+        info.setText("");
+        JavaFXUtil.enCarga(userService.login(username, password), cargando, btnEntrar)
+                .whenCompleteAsync((user, error) -> {
+                    if (error != null) {
+                        info.setText("No se pudo conectar con la base de datos.");
+                        info.setStyle("-fx-text-fill: red;");
+                        AsyncUtil.causa(error).printStackTrace();
+                    } else if (user != null) {
+                        sessionService.login(user);
+                        // IMPORTANTE: Ruta simplificada del FXML
+                        JavaFXUtil.setScene("/main-view.fxml");
+                    } else {
+                        info.setText("Usuario o contraseña incorrectos.");
+                        info.setStyle("-fx-text-fill: red;");
+                    }
+                }, AsyncUtil.fx());
     }
 
     /**
@@ -1,6 +1,9 @@
 package controllers;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -9,16 +12,31 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
+import javafx.util.Duration;
 
 import copiaPelicula.CopiaPelicula;
+import copiaPelicula.Disponibilidad;
+import pelicula.CambiosCatalogo;
+import pelicula.FiltroCatalogo;
+import pelicula.IndiceBusqueda;
+import pelicula.OrdenCatalogo;
 import pelicula.Pelicula;
+import pelicula.PeliculaResumen;
+import user.AsyncUserService;
 import user.User;
-import user.UserService;
+import utils.AsyncUtil;
+import utils.CeldaImagen;
 import utils.JavaFXUtil;
 import session.SimpleSessionService;
 
 import java.net.URL;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controlador principal de la aplicación.
@@ -30,27 +48,62 @@ import java.util.ResourceBundle;
 public class MainController implements Initializable {
     @FXML private Button btnEliminar, btnAlquilar;
     @FXML private Menu menuAdmin;
+    @FXML private ProgressIndicator cargando;
     @FXML private TableView<CopiaPelicula> table;
-    @FXML private TableView<Pelicula> tablaCatalogo;
+    @FXML private TableView<PeliculaResumen> tablaCatalogo;
+    @FXML private TextField campoBusqueda, filtroAñoDesde, filtroAñoHasta;
+    @FXML private ComboBox<String> filtroGenero;
 
     // Columnas Alquileres
     @FXML private TableColumn<CopiaPelicula, String> titulo, genero, director, descripcion;
     @FXML private TableColumn<CopiaPelicula, Integer> año;
 
-    // Columnas Catalogo
-    @FXML private TableColumn<Pelicula, Integer> colCatAnio;
-    @FXML private TableColumn<Pelicula, String> colCatTitulo, colCatGenero;
+    // Columnas Catalogo: la tabla muestra resúmenes, la entidad completa se carga solo cuando se necesita
+    @FXML private TableColumn<PeliculaResumen, Integer> colCatAnio;
+    @FXML private TableColumn<PeliculaResumen, String> colCatPoster, colCatTitulo, colCatGenero, colCatDisponibles;
+
+    // Paginación del catálogo: se piden páginas a medida que el usuario se acerca al final de la tabla
+    private static final int TAMAÑO_PAGINA = 100;
+    private static final int MARGEN_PRECARGA = 20;
+    private static final String TODOS_LOS_GENEROS = "Todos los géneros";
+    // Búsqueda: se lanza cuando el usuario deja de escribir durante este tiempo
+    private static final Duration ESPERA_BUSQUEDA = Duration.millis(250);
+    private static final double ANCHO_MINIATURA = 32;
+    private static final double ALTO_MINIATURA = 48;
 
     private User currentUser;
     private final SimpleSessionService sessionService = new SimpleSessionService();
-    private final UserService userService = new UserService();
+    private final AsyncUserService userService = new AsyncUserService();
+
+    private final ObservableList<PeliculaResumen> catalogo = FXCollections.observableArrayList();
+    // Copias libres y alquiladas de las películas cargadas, pedidas junto con cada página
+    private final Map<Integer, Disponibilidad> disponibilidad = new HashMap<>();
+    // Orden y filtro del catálogo: se aplican en la base de datos, la tabla nunca ordena en memoria
+    private OrdenCatalogo ordenCatalogo = OrdenCatalogo.ID;
+    private boolean ordenAscendente = true;
+    private FiltroCatalogo filtroCatalogo = FiltroCatalogo.NINGUNO;
+    // Cursor de la siguiente página y filas cargadas por ID (para recolocar las que cambian)
+    private PeliculaResumen ultimaCargada;
+    private final Map<Integer, PeliculaResumen> filasCargadas = new HashMap<>();
+    private boolean hayMasPeliculas = true;
+    private boolean cargandoPagina = false;
+    private boolean paginaSolicitada = false;
+    // Se incrementa al reiniciar el catálogo para descartar páginas pedidas antes del reinicio
+    private int generacionCatalogo = 0;
+    // Marca de tiempo desde la que se piden los cambios del catálogo en el siguiente refresco
+    private long marcaCatalogo;
+
+    // Resultados de la búsqueda: mientras hay texto, la tabla los muestra en lugar del catálogo paginado
+    private final ObservableList<PeliculaResumen> resultadosBusqueda = FXCollections.observableArrayList();
+    private final PauseTransition esperaBusqueda = new PauseTransition(ESPERA_BUSQUEDA);
+    private int generacionBusqueda = 0;
 
     /**
      * Inicializa el controlador principal.
      * <p>
-     * Verifica la sesión del usuario, carga sus datos y dependencias (copias alquiladas),
-     * configura las tablas y refresca la interfaz. Si la carga de dependencias falla,
-     * intenta continuar con una funcionalidad limitada.
+     * Verifica la sesión del usuario, configura las tablas y pide en segundo plano, a la vez, la primera
+     * página del catálogo y los datos y dependencias del usuario (copias alquiladas), que se muestran al
+     * llegar. Si la carga de dependencias falla, intenta continuar con una funcionalidad limitada.
      * </p>
      *
      * @param url            La ubicación utilizada para resolver rutas relativas.
@@ -64,37 +117,54 @@ public class MainController implements Initializable {
             return;
         }
 
-        // Intentamos cargar el usuario con dependencias
-        try {
-            currentUser = userService.getUserWithDependencies(tempUser.getId());
-        } catch (Exception e) {
-            System.err.println("Error al cargar dependencias del usuario: " + e.getMessage());
-            e.printStackTrace();
-        }
-        
-        // Si falla la carga de dependencias o devuelve null, usamos el usuario de la sesión como fallback
-        if (currentUser == null) {
-            System.out.println("Usando usuario de sesión (sin dependencias cargadas) como fallback.");
-            currentUser = tempUser;
-        }
-
         configurarTablas();
         configurarEventosTabla();
-        refrescarInterfaz();
+        configurarBusqueda();
+        cargarGeneros();
+
+        // El catálogo no depende del usuario: se pide a la vez que sus dependencias
+        currentUser = tempUser;
+        mostrarUsuario();
+        reiniciarCatalogo();
+
+        // Intentamos cargar el usuario con dependencias sin bloquear la interfaz
+        JavaFXUtil.enCarga(userService.getUserWithDependencies(tempUser.getId()), cargando, btnAlquilar, btnEliminar)
+                .whenCompleteAsync((usuario, error) -> {
+                    if (error != null) {
+                        System.err.println("Error al cargar dependencias del usuario: " + AsyncUtil.causa(error).getMessage());
+                        AsyncUtil.causa(error).printStackTrace();
+                    }
+                    // Si falla la carga de dependencias o devuelve null, seguimos con el usuario de la sesión como fallback
+                    if (usuario == null) {
+                        System.out.println("Usando usuario de sesión (sin dependencias cargadas) como fallback.");
+                        return;
+                    }
+                    currentUser = usuario;
+                    mostrarUsuario();
+                }, AsyncUtil.fx());
     }
 
     /**
      * Configura las columnas de las tablas de catálogo y alquileres.
      * <p>
-     * Define cómo se obtienen los valores de las celdas a partir de los objetos {@link Pelicula} y {@link CopiaPelicula}.
+     * Define cómo se obtienen los valores de las celdas a partir de los objetos {@link PeliculaResumen} y {@link CopiaPelicula}.
      * Incluye protecciones contra valores nulos.
      * </p>
      */
     private void configurarTablas() {
         // Configurar catálogo
-        colCatTitulo.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getTitulo()));
-        colCatGenero.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getGenero()));
-        colCatAnio.setCellValueFactory(c -> new SimpleIntegerProperty(c.getValue().getAño()).asObject());
+        // Miniatura del póster: se carga en segundo plano y se cancela si la fila deja de verse
+        colCatPoster.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().imageUrl()));
+        colCatPoster.setCellFactory(col -> new CeldaImagen<>(ANCHO_MINIATURA, ALTO_MINIATURA));
+        colCatPoster.setSortable(false);
+        colCatTitulo.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().titulo()));
+        colCatGenero.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().genero()));
+        colCatAnio.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().año()));
+        colCatDisponibles.setCellValueFactory(c -> new SimpleStringProperty(
+                disponibilidad.getOrDefault(c.getValue().id(), Disponibilidad.SIN_COPIAS).toString()));
+        // La disponibilidad no es un campo de la película: no se puede ordenar en la base de datos
+        colCatDisponibles.setSortable(false);
+        tablaCatalogo.setSortPolicy(this::ordenarCatalogo);
 
         // Configurar mis alquileres (CopiaPelicula -> Pelicula)
         // IMPORTANTE: Verificar nulos en la cadena de llamadas para evitar NullPointerException
@@ -128,23 +198,12 @@ public class MainController implements Initializable {
     }
 
     /**
-     * Actualiza los datos mostrados en la interfaz.
-     * <p>
-     * Recarga la lista de películas del catálogo y la copia alquilada por el usuario actual.
-     * Ajusta la visibilidad de los botones y menús según si el usuario es administrador.
-     * </p>
+     * Muestra la copia alquilada por el usuario actual y ajusta la visibilidad de los botones
+     * y menús según si es administrador.
      */
-    private void refrescarInterfaz() {
+    private void mostrarUsuario() {
         if (currentUser == null) return;
 
-        // Cargar Catálogo (Usando tu método findAllPeliculas)
-        try {
-            tablaCatalogo.setItems(FXCollections.observableArrayList(userService.findAllPeliculas()));
-        } catch (Exception e) {
-            System.err.println("Error al cargar el catálogo de películas: " + e.getMessage());
-            e.printStackTrace();
-        }
-
         // Cargar Copia del usuario
         ObservableList<CopiaPelicula> lista = FXCollections.observableArrayList();
         // Verificamos si getCopiaAsignada() es accesible (podría lanzar excepción si es Lazy y la sesión está cerrada)
@@ -165,45 +224,364 @@ public class MainController implements Initializable {
         if (btnAlquilar != null) btnAlquilar.setVisible(!isAdmin);
     }
 
+    /**
+     * Vacía el catálogo cargado y vuelve a pedir la primera página.
+     */
+    private void reiniciarCatalogo() {
+        generacionCatalogo++;
+        // La marca se toma antes de pedir la primera página: lo que cambie mientras se carga llegará como cambio
+        marcaCatalogo = System.currentTimeMillis();
+        catalogo.clear();
+        filasCargadas.clear();
+        disponibilidad.clear();
+        ultimaCargada = null;
+        hayMasPeliculas = true;
+        cargandoPagina = false;
+        if (!enBusqueda()) tablaCatalogo.setItems(catalogo);
+        cargarSiguientePagina();
+    }
+
+    /**
+     * Pide en segundo plano la siguiente página del catálogo y la añade al final de la tabla al recibirla.
+     * <p>
+     * Utiliza paginación por clave (el campo de orden y el ID de la última película cargada) con el orden
+     * y el filtro actuales, resueltos en la base de datos, por lo que el coste de cada página es constante
+     * independientemente de lo lejos que se haya desplazado el usuario o del tamaño del catálogo.
+     * Junto con cada página se piden, en una sola consulta agregada, las copias disponibles de sus películas.
+     * No hace nada si ya se está cargando una página o si no quedan más películas. Las páginas
+     * que llegan después de reiniciar el catálogo se descartan.
+     * </p>
+     */
+    private void cargarSiguientePagina() {
+        if (!hayMasPeliculas || cargandoPagina) return;
+        cargandoPagina = true;
+        int generacion = generacionCatalogo;
+        CompletableFuture<List<PeliculaResumen>> pagina = userService.findResumenesPage(
+                ordenCatalogo, ordenAscendente, filtroCatalogo, ultimaCargada, TAMAÑO_PAGINA);
+        CompletableFuture<Map<Integer, Disponibilidad>> copias = pagina
+                .thenCompose(p -> userService.contarDisponibilidad(p.stream().map(PeliculaResumen::id).toList()))
+                .exceptionally(error -> {
+                    // Sin recuentos la tabla sigue siendo útil: se muestra la página igualmente
+                    System.err.println("Error al contar las copias disponibles: " + AsyncUtil.causa(error).getMessage());
+                    return Map.of();
+                });
+        JavaFXUtil.enCarga(pagina.thenCombine(copias, PaginaCatalogo::new), cargando)
+                .whenCompleteAsync((resultado, error) -> {
+                    if (generacion != generacionCatalogo) return;
+                    cargandoPagina = false;
+                    if (error != null) {
+                        hayMasPeliculas = false;
+                        System.err.println("Error al cargar el catálogo de películas: " + AsyncUtil.causa(error).getMessage());
+                        AsyncUtil.causa(error).printStackTrace();
+                        return;
+                    }
+                    List<PeliculaResumen> peliculas = resultado.peliculas();
+                    disponibilidad.putAll(resultado.disponibilidad());
+                    if (!peliculas.isEmpty()) {
+                        ultimaCargada = peliculas.get(peliculas.size() - 1);
+                        peliculas.forEach(pelicula -> filasCargadas.put(pelicula.id(), pelicula));
+                        catalogo.addAll(peliculas);
+                    }
+                    hayMasPeliculas = peliculas.size() == TAMAÑO_PAGINA;
+                }, AsyncUtil.fx());
+    }
+
+    /**
+     * Una página del catálogo junto con la disponibilidad de sus películas.
+     */
+    private record PaginaCatalogo(List<PeliculaResumen> peliculas, Map<Integer, Disponibilidad> disponibilidad) {}
+
+    /**
+     * Pide en segundo plano solo las películas que han cambiado desde el último refresco y las aplica
+     * sobre el catálogo ya cargado, sin volver a pedir las páginas ni perder la posición del scroll.
+     * <p>
+     * Si la consulta falla se recurre a reiniciar el catálogo. Las respuestas que llegan después de un
+     * reinicio, o después de otra respuesta más reciente, se descartan.
+     * </p>
+     */
+    private void refrescarCambios() {
+        int generacion = generacionCatalogo;
+        CompletableFuture<CambiosCatalogo> cambios = userService.findCambiosCatalogo(marcaCatalogo);
+        CompletableFuture<Map<Integer, Disponibilidad>> copias = cambios
+                .thenCompose(c -> c.modificadas().isEmpty()
+                        ? CompletableFuture.completedFuture(Map.<Integer, Disponibilidad>of())
+                        : userService.contarDisponibilidad(c.modificadas().stream().map(PeliculaResumen::id).toList()));
+        JavaFXUtil.enCarga(cambios.thenCombine(copias, ActualizacionCatalogo::new), cargando)
+                .whenCompleteAsync((resultado, error) -> {
+                    if (generacion != generacionCatalogo) return;
+                    if (error != null) {
+                        System.err.println("Error al refrescar el catálogo: " + AsyncUtil.causa(error).getMessage());
+                        reiniciarCatalogo();
+                        return;
+                    }
+                    if (resultado.cambios().marca() < marcaCatalogo) return;
+                    marcaCatalogo = resultado.cambios().marca();
+                    aplicarCambios(resultado.cambios(), resultado.disponibilidad());
+                }, AsyncUtil.fx());
+    }
+
+    /**
+     * Aplica los cambios sobre el catálogo cargado, que está en el orden de la consulta.
+     * <p>
+     * Cada película se localiza por búsqueda binaria con el comparador del orden actual: la versión
+     * cargada se quita y la nueva se inserta en su posición si pasa el filtro y cae dentro del rango
+     * ya cargado (las que quedan más allá llegarán con su página). Las borradas se quitan. El coste
+     * depende del número de cambios, no del de filas.
+     * </p>
+     *
+     * @param cambios        Las películas modificadas y borradas.
+     * @param disponibilidad La disponibilidad actual de las películas modificadas.
+     */
+    private void aplicarCambios(CambiosCatalogo cambios, Map<Integer, Disponibilidad> disponibilidad) {
+        if (cambios.isEmpty()) return;
+        Comparator<PeliculaResumen> comparador = ordenCatalogo.comparador(ordenAscendente);
+        for (Integer id : cambios.borradas()) {
+            quitarDelCatalogo(id, comparador);
+            this.disponibilidad.remove(id);
+        }
+        for (PeliculaResumen pelicula : cambios.modificadas()) {
+            Disponibilidad copias = disponibilidad.get(pelicula.id());
+            if (copias != null) this.disponibilidad.put(pelicula.id(), copias);
+            else this.disponibilidad.remove(pelicula.id());
+
+            quitarDelCatalogo(pelicula.id(), comparador);
+            boolean visible = filtroCatalogo.acepta(pelicula);
+            boolean enRango = !hayMasPeliculas || (ultimaCargada != null && comparador.compare(pelicula, ultimaCargada) < 0);
+            if (visible && enRango) {
+                int i = Collections.binarySearch(catalogo, pelicula, comparador);
+                catalogo.add(i < 0 ? -i - 1 : i, pelicula);
+                filasCargadas.put(pelicula.id(), pelicula);
+            }
+            // Los resultados de la búsqueda visibles se actualizan igual, sin repetirla
+            resultadosBusqueda.replaceAll(r -> r.id().equals(pelicula.id()) ? pelicula : r);
+        }
+        resultadosBusqueda.removeIf(r -> cambios.borradas().contains(r.id()));
+        // Las filas cuyo resumen no cambia (solo sus copias) no se repintan solas
+        tablaCatalogo.refresh();
+    }
+
+    private void quitarDelCatalogo(Integer id, Comparator<PeliculaResumen> comparador) {
+        PeliculaResumen cargada = filasCargadas.remove(id);
+        if (cargada == null) return;
+        int i = Collections.binarySearch(catalogo, cargada, comparador);
+        if (i >= 0) catalogo.remove(i);
+    }
+
+    /**
+     * Política de ordenación de la tabla del catálogo.
+     * <p>
+     * En lugar de ordenar las filas cargadas, traduce la columna de ordenación (solo la primera, si hay
+     * varias) a un {@link OrdenCatalogo} y vuelve a pedir el catálogo ordenado a la base de datos. Los
+     * resultados de una búsqueda, que son pocos y ya están en memoria, se ordenan como siempre.
+     * </p>
+     *
+     * @param tabla La tabla del catálogo.
+     * @return {@code true}; la ordenación nunca se rechaza.
+     */
+    private Boolean ordenarCatalogo(TableView<PeliculaResumen> tabla) {
+        if (tabla.getItems() != catalogo) return TableView.DEFAULT_SORT_POLICY.call(tabla);
+        OrdenCatalogo orden = OrdenCatalogo.ID;
+        boolean ascendente = true;
+        if (!tabla.getSortOrder().isEmpty()) {
+            TableColumn<PeliculaResumen, ?> columna = tabla.getSortOrder().get(0);
+            orden = columna == colCatTitulo ? OrdenCatalogo.TITULO
+                    : columna == colCatGenero ? OrdenCatalogo.GENERO
+                    : columna == colCatAnio ? OrdenCatalogo.AÑO
+                    : OrdenCatalogo.ID;
+            ascendente = columna.getSortType() == TableColumn.SortType.ASCENDING;
+        }
+        if (orden != ordenCatalogo || ascendente != ordenAscendente) {
+            ordenCatalogo = orden;
+            ordenAscendente = ascendente;
+            // No se cambian los items mientras la tabla está ordenando: se detiene la paginación y se reinicia después
+            hayMasPeliculas = false;
+            generacionCatalogo++;
+            Platform.runLater(this::reiniciarCatalogo);
+        }
+        return true;
+    }
+
+    /**
+     * Pide en segundo plano los géneros del catálogo para el filtro.
+     */
+    private void cargarGeneros() {
+        userService.findGeneros().whenCompleteAsync((generos, error) -> {
+            if (error != null) {
+                System.err.println("Error al cargar los géneros: " + AsyncUtil.causa(error).getMessage());
+                return;
+            }
+            filtroGenero.getItems().setAll(TODOS_LOS_GENEROS);
+            filtroGenero.getItems().addAll(generos);
+        }, AsyncUtil.fx());
+    }
+
+    /**
+     * Aplica el filtro de género y años al catálogo, que se vuelve a pedir filtrado a la base de datos.
+     *
+     * @param event El evento de acción.
+     */
+    @FXML
+    void aplicarFiltro(ActionEvent event) {
+        String genero = filtroGenero.getValue();
+        Integer desde;
+        Integer hasta;
+        try {
+            desde = leerAño(filtroAñoDesde.getText());
+            hasta = leerAño(filtroAñoHasta.getText());
+        } catch (NumberFormatException e) {
+            JavaFXUtil.showModal(Alert.AlertType.WARNING, "Filtro", null, "El año debe ser un número.");
+            return;
+        }
+        FiltroCatalogo filtro = new FiltroCatalogo(
+                genero == null || genero.equals(TODOS_LOS_GENEROS) ? null : genero, desde, hasta);
+        if (!filtro.equals(filtroCatalogo)) {
+            filtroCatalogo = filtro;
+            reiniciarCatalogo();
+        }
+    }
+
+    /**
+     * Quita el filtro del catálogo.
+     *
+     * @param event El evento de acción.
+     */
+    @FXML
+    void limpiarFiltro(ActionEvent event) {
+        filtroGenero.setValue(TODOS_LOS_GENEROS);
+        filtroAñoDesde.clear();
+        filtroAñoHasta.clear();
+        aplicarFiltro(event);
+    }
+
+    private static Integer leerAño(String texto) {
+        return texto == null || texto.isBlank() ? null : Integer.valueOf(texto.trim());
+    }
+
+    /**
+     * Configura el campo de búsqueda: cada cambio del texto reinicia una espera y, cuando el usuario
+     * deja de escribir, se lanza una sola búsqueda con el texto final.
+     */
+    private void configurarBusqueda() {
+        esperaBusqueda.setOnFinished(e -> buscar(campoBusqueda.getText()));
+        campoBusqueda.textProperty().addListener((obs, anterior, texto) -> esperaBusqueda.playFromStart());
+    }
+
+    /**
+     * @return {@code true} si la tabla muestra resultados de búsqueda en lugar del catálogo paginado.
+     */
+    private boolean enBusqueda() {
+        return campoBusqueda != null && campoBusqueda.getText() != null && !campoBusqueda.getText().isBlank();
+    }
+
+    /**
+     * Busca en segundo plano las películas que encajan con el texto y las muestra en la tabla, de más a
+     * menos relevante, junto con sus copias disponibles. Con el texto vacío se vuelve al catálogo.
+     * Los resultados de búsquedas anteriores que lleguen tarde se descartan.
+     *
+     * @param texto El texto de búsqueda.
+     */
+    private void buscar(String texto) {
+        int generacion = ++generacionBusqueda;
+        if (texto == null || texto.isBlank()) {
+            resultadosBusqueda.clear();
+            tablaCatalogo.setItems(catalogo);
+            // Si se cambió la ordenación durante la búsqueda, el catálogo se vuelve a pedir con ella
+            tablaCatalogo.sort();
+            return;
+        }
+        CompletableFuture<List<PeliculaResumen>> resultados =
+                userService.buscarPeliculas(texto, IndiceBusqueda.RESULTADOS_POR_DEFECTO);
+        CompletableFuture<Map<Integer, Disponibilidad>> copias = resultados
+                .thenCompose(r -> userService.contarDisponibilidad(r.stream().map(PeliculaResumen::id).toList()))
+                .exceptionally(error -> Map.of());
+        JavaFXUtil.enCarga(resultados.thenCombine(copias, PaginaCatalogo::new), cargando)
+                .whenCompleteAsync((resultado, error) -> {
+                    if (generacion != generacionBusqueda) return;
+                    if (error != null) {
+                        System.err.println("Error al buscar películas: " + AsyncUtil.causa(error).getMessage());
+                        return;
+                    }
+                    disponibilidad.putAll(resultado.disponibilidad());
+                    resultadosBusqueda.setAll(resultado.peliculas());
+                    tablaCatalogo.setItems(resultadosBusqueda);
+                }, AsyncUtil.fx());
+    }
+
+    /**
+     * Los cambios del catálogo junto con la disponibilidad de las películas modificadas.
+     */
+    private record ActualizacionCatalogo(CambiosCatalogo cambios, Map<Integer, Disponibilidad> disponibilidad) {}
+
+    /**
+     * Programa la carga de la siguiente página en el hilo de JavaFX.
+     * <p>
+     * La carga se difiere para no modificar los items mientras la tabla está maquetando sus filas,
+     * y varias solicitudes seguidas (una por fila visible) se agrupan en una sola carga.
+     * </p>
+     */
+    private void solicitarSiguientePagina() {
+        if (!hayMasPeliculas || paginaSolicitada) return;
+        paginaSolicitada = true;
+        Platform.runLater(() -> {
+            paginaSolicitada = false;
+            cargarSiguientePagina();
+        });
+    }
+
     /**
      * Maneja la acción de alquilar una película seleccionada.
      * <p>
-     * Asigna una copia disponible de la película al usuario actual.
+     * Asigna en segundo plano una copia disponible de la película al usuario actual y,
+     * al terminar, recarga sus alquileres y refresca en el catálogo solo las películas que han cambiado.
      * </p>
      *
      * @param event El evento de acción.
      */
     @FXML
     void alquilarPelicula(ActionEvent event) {
-        Pelicula sel = tablaCatalogo.getSelectionModel().getSelectedItem();
+        PeliculaResumen sel = tablaCatalogo.getSelectionModel().getSelectedItem();
         if (sel != null) {
-            try {
-                // Usando tu método addPeliculaOrCopia
-                userService.addPeliculaOrCopia(currentUser, sel);
-                // Recargamos el usuario completo para ver la nueva copia
-                currentUser = userService.getUserWithDependencies(currentUser.getId());
-                refrescarInterfaz();
-            } catch (Exception e) {
-                JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error", null, e.getMessage());
-            }
+            User actor = currentUser;
+            // Usando tu método addPeliculaOrCopia y recargando el usuario completo para ver la nueva copia
+            JavaFXUtil.enCarga(cargarPelicula(sel)
+                            .thenCompose(pelicula -> userService.addPeliculaOrCopia(actor, pelicula))
+                            .thenCompose(v -> userService.getUserWithDependencies(actor.getId())), cargando, btnAlquilar)
+                    .whenCompleteAsync((usuario, error) -> {
+                        if (error != null) {
+                            JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error", null, AsyncUtil.causa(error).getMessage());
+                            return;
+                        }
+                        if (usuario != null) currentUser = usuario;
+                        mostrarUsuario();
+                        refrescarCambios();
+                    }, AsyncUtil.fx());
         }
     }
 
     /**
      * Maneja la acción de eliminar una película (solo administradores).
      * <p>
-     * Elimina la película seleccionada y sus copias de la base de datos.
+     * Elimina en segundo plano la película seleccionada y sus copias de la base de datos y la quita
+     * del catálogo con un refresco incremental.
      * </p>
      *
      * @param event El evento de acción.
      */
     @FXML
     void eliminarPelicula(ActionEvent event) {
-        Pelicula sel = tablaCatalogo.getSelectionModel().getSelectedItem();
+        PeliculaResumen sel = tablaCatalogo.getSelectionModel().getSelectedItem();
         if (sel != null) {
+            User admin = currentUser;
             // Usando tu método removePeliculaOrCopia
-            userService.removePeliculaOrCopia(currentUser, sel);
-            refrescarInterfaz();
+            JavaFXUtil.enCarga(cargarPelicula(sel)
+                            .thenCompose(pelicula -> userService.removePeliculaOrCopia(admin, pelicula)), cargando, btnEliminar)
+                    .whenCompleteAsync((v, error) -> {
+                        if (error != null) {
+                            JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error", null, AsyncUtil.causa(error).getMessage());
+                            return;
+                        }
+                        refrescarCambios();
+                    }, AsyncUtil.fx());
         }
     }
 
@@ -232,20 +610,36 @@ public class MainController implements Initializable {
     @FXML void añadirPelicula(ActionEvent e) {
         JavaFXUtil.setScene("/newFilmForm-view.fxml");
     }
+
+    /**
+     * Navega a la vista de métricas de rendimiento.
+     *
+     * @param e El evento de acción.
+     */
+    @FXML void verMetricas(ActionEvent e) {
+        JavaFXUtil.setScene("/metricas-view.fxml");
+    }
     
     /**
      * Configura los eventos de interacción con la tabla del catálogo.
      * <p>
-     * Habilita el doble clic sobre una fila para ver los detalles de la película.
+     * Habilita el doble clic sobre una fila para ver los detalles de la película y
+     * solicita la siguiente página del catálogo cuando se muestra una fila cercana al final.
      * </p>
      */
     private void configurarEventosTabla() {
         // Detectar doble clic en la tabla del catálogo
         tablaCatalogo.setRowFactory(tv -> {
-            TableRow<Pelicula> row = new TableRow<>();
+            TableRow<PeliculaResumen> row = new TableRow<>();
+            // Las filas solo se crean para la parte visible: si una se acerca al final, pedimos más
+            row.indexProperty().addListener((obs, anterior, indice) -> {
+                if (tv.getItems() == catalogo && indice.intValue() >= catalogo.size() - MARGEN_PRECARGA) {
+                    solicitarSiguientePagina();
+                }
+            });
             row.setOnMouseClicked(event -> {
                 if (!row.isEmpty() && event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
-                    Pelicula seleccionada = row.getItem();
+                    PeliculaResumen seleccionada = row.getItem();
                     verDetallePelicula(seleccionada);
                 }
             });
@@ -255,15 +649,38 @@ public class MainController implements Initializable {
 
     /**
      * Navega a la vista de detalles de la película seleccionada.
+     * <p>
+     * La tabla solo tiene el resumen: la película completa (descripción, director...) se carga
+     * en segundo plano, normalmente desde la caché del catálogo, antes de navegar.
+     * </p>
      *
-     * @param pelicula La película a visualizar.
+     * @param resumen El resumen de la película a visualizar.
      */
-    private void verDetallePelicula(Pelicula pelicula) {
-        if (pelicula != null) {
-            // Guardamos la película en la sesión para que DetailController la pueda leer
-            sessionService.setObject("pelicula_seleccionada", pelicula);
-            // Navegamos a la vista de detalles (asegúrate de que el nombre coincida con tu archivo)
-            JavaFXUtil.setScene("/Detail-view.fxml");
+    private void verDetallePelicula(PeliculaResumen resumen) {
+        if (resumen != null) {
+            JavaFXUtil.enCarga(cargarPelicula(resumen), cargando, tablaCatalogo)
+                    .whenCompleteAsync((pelicula, error) -> {
+                        if (error != null) {
+                            JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error", null, AsyncUtil.causa(error).getMessage());
+                            return;
+                        }
+                        // Guardamos la película en la sesión para que DetailController la pueda leer
+                        sessionService.setObject("pelicula_seleccionada", pelicula);
+                        // Navegamos a la vista de detalles (asegúrate de que el nombre coincida con tu archivo)
+                        JavaFXUtil.setScene("/Detail-view.fxml");
+                    }, AsyncUtil.fx());
         }
     }
+
+    /**
+     * Carga en segundo plano la película completa correspondiente a un resumen del catálogo.
+     *
+     * @param resumen El resumen seleccionado en la tabla.
+     * @return Un {@link CompletableFuture} con la película, que falla si ya no existe.
+     */
+    private CompletableFuture<Pelicula> cargarPelicula(PeliculaResumen resumen) {
+        return userService.findPeliculaById(resumen.id())
+                .thenApply(pelicula -> pelicula.orElseThrow(
+                        () -> new IllegalStateException("La película \"" + resumen.titulo() + "\" ya no existe.")));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package controllers;
+
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Alert;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.FileChooser;
+import utils.JavaFXUtil;
+import utils.LatencyHistogram;
+import utils.Metricas;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ResourceBundle;
+import java.util.function.ToLongFunction;
+
+/**
+ * Controlador de la vista de métricas de rendimiento (solo administradores).
+ * <p>
+ * Muestra, por cada método instrumentado de los repositorios y de {@code UserService}, el número de
+ * llamadas y de errores y la latencia media, los percentiles 50, 95 y 99 y la máxima. Permite actualizar
+ * la tabla, reiniciar las métricas y volcar el informe a un fichero de texto.
+ * </p>
+ */
+public class MetricasController implements Initializable {
+    @FXML private TableView<Metricas.Metrica> tablaMetricas;
+    @FXML private TableColumn<Metricas.Metrica, String> colMetodo, colMedia, colP50, colP95, colP99, colMax;
+    @FXML private TableColumn<Metricas.Metrica, Long> colLlamadas, colErrores;
+
+    private final Metricas metricas = Metricas.getInstance();
+
+    /**
+     * Configura las columnas y muestra las métricas actuales.
+     *
+     * @param url            La ubicación utilizada para resolver rutas relativas.
+     * @param resourceBundle Los recursos utilizados para la localización.
+     */
+    @Override
+    public void initialize(URL url, ResourceBundle resourceBundle) {
+        colMetodo.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getNombre()));
+        colLlamadas.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getLlamadas()));
+        colErrores.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getErrores()));
+        colMedia.setCellValueFactory(c -> new SimpleStringProperty(ms((long) c.getValue().getLatencias().getMean())));
+        colP50.setCellValueFactory(c -> columnaLatencia(c.getValue(), h -> h.percentile(50)));
+        colP95.setCellValueFactory(c -> columnaLatencia(c.getValue(), h -> h.percentile(95)));
+        colP99.setCellValueFactory(c -> columnaLatencia(c.getValue(), h -> h.percentile(99)));
+        colMax.setCellValueFactory(c -> columnaLatencia(c.getValue(), LatencyHistogram::getMax));
+        actualizar(null);
+    }
+
+    /**
+     * Vuelve a leer las métricas registradas.
+     *
+     * @param event El evento de acción.
+     */
+    @FXML
+    void actualizar(ActionEvent event) {
+        tablaMetricas.getItems().setAll(metricas.getMetricas());
+    }
+
+    /**
+     * Descarta las métricas registradas hasta ahora.
+     *
+     * @param event El evento de acción.
+     */
+    @FXML
+    void reiniciar(ActionEvent event) {
+        metricas.reset();
+        actualizar(event);
+    }
+
+    /**
+     * Añade el informe de métricas al fichero que elija el usuario.
+     *
+     * @param event El evento de acción.
+     */
+    @FXML
+    void volcar(ActionEvent event) {
+        FileChooser selector = new FileChooser();
+        selector.setTitle("Volcar métricas");
+        selector.setInitialFileName("metricas.txt");
+        File fichero = selector.showSaveDialog(tablaMetricas.getScene().getWindow());
+        if (fichero == null) return;
+        try {
+            metricas.volcar(fichero.toPath());
+            JavaFXUtil.showModal(Alert.AlertType.INFORMATION, "Métricas", null, "Informe guardado en " + fichero);
+        } catch (IOException e) {
+            JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error", null, "No se pudo guardar el informe: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Vuelve a la vista principal.
+     *
+     * @param event El evento de acción.
+     */
+    @FXML
+    void volver(ActionEvent event) {
+        JavaFXUtil.setScene("/main-view.fxml");
+    }
+
+    private static SimpleStringProperty columnaLatencia(Metricas.Metrica metrica, ToLongFunction<LatencyHistogram> valor) {
+        return new SimpleStringProperty(ms(valor.applyAsLong(metrica.getLatencias())));
+    }
+
+    private static String ms(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
@@ -4,10 +4,12 @@ import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import pelicula.Pelicula;
-import user.UserService;
+import user.AsyncUserService;
+import utils.AsyncUtil;
 import utils.JavaFXUtil;
 
 /**
@@ -26,8 +28,9 @@ public class NewFilmFormController {
     @FXML private Button btnAgregar;
     @FXML private TextField tfDirector;
     @FXML private TextField tfAño;
+    @FXML private ProgressIndicator cargando;
 
-    private final UserService userService = new UserService();
+    private final AsyncUserService userService = new AsyncUserService();
 
     /**
      * Cancela la operación de creación y vuelve a la vista principal.
@@ -45,7 +48,7 @@ public class NewFilmFormController {
      * <p>
      * Valida que todos los campos obligatorios estén rellenos y que el año sea un número válido.
      * Si la validación es correcta, crea un nuevo objeto {@link Pelicula} y lo persiste
-     * utilizando {@link UserService}.
+     * en segundo plano utilizando {@link AsyncUserService}.
      * </p>
      *
      * @param actionEvent El evento de acción generado por el botón "Agregar".
@@ -78,10 +81,16 @@ public class NewFilmFormController {
             nuevaPelicula.setDescripcion(descripcion);
 
             // Persistencia mediante el servicio adaptado
-            userService.savePelicula(nuevaPelicula);
-
-            JavaFXUtil.showModal(Alert.AlertType.INFORMATION, "Éxito", "Película guardada", "La película ha sido añadida al catálogo.");
-            JavaFXUtil.setScene("/main-view.fxml");
+            JavaFXUtil.enCarga(userService.savePelicula(nuevaPelicula), cargando, btnAgregar, btnCancelar)
+                    .whenCompleteAsync((guardada, error) -> {
+                        if (error != null) {
+                            JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error", "Error al guardar", "No se pudo añadir la película.");
+                            AsyncUtil.causa(error).printStackTrace();
+                            return;
+                        }
+                        JavaFXUtil.showModal(Alert.AlertType.INFORMATION, "Éxito", "Película guardada", "La película ha sido añadida al catálogo.");
+                        JavaFXUtil.setScene("/main-view.fxml");
+                    }, AsyncUtil.fx());
 
         } catch (NumberFormatException e) {
             JavaFXUtil.showModal(Alert.AlertType.ERROR, "Error de formato", "Campo 'Año' inválido", "El año debe ser un número válido.");
@@ -0,0 +1,44 @@
+package copiaPelicula;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import javax.jdo.annotations.Index;
+import java.io.Serializable;
+
+/**
+ * Marca de borrado (lápida) de una copia de película.
+ * <p>
+ * Borrar una copia cambia la disponibilidad de su película, pero la copia ya no existe para que el refresco
+ * incremental del catálogo la encuentre por su {@code ultimaModificacion}. La lápida guarda a qué película
+ * pertenecía sin tocar la propia {@code Pelicula}, cuya versión (bloqueo optimista) no debe cambiar por ello.
+ * </p>
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CopiaBorrada implements Serializable {
+
+    // El ID que tenía la copia borrada
+    @Id
+    private Integer id;
+
+    // El ID de la película a la que pertenecía
+    private Integer idPelicula;
+
+    // Instante (ms) del borrado; con índice para la consulta "borradas desde"
+    @Index
+    private long borradaEn;
+
+    @Override
+    public String toString() {
+        return "CopiaBorrada{" +
+                "id=" + id +
+                ", idPelicula=" + idPelicula +
+                ", borradaEn=" + borradaEn +
+                '}';
+    }
+}
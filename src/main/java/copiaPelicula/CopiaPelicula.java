@@ -3,6 +3,8 @@ import jakarta.persistence.*;
 import lombok.*;
 import pelicula.Pelicula;
 import user.User;
+
+import javax.jdo.annotations.Index;
 import java.io.Serializable;
 
 @Getter
@@ -12,6 +14,9 @@ import java.io.Serializable;
 @EqualsAndHashCode(exclude = {"pelicula", "usuario"})
 @Entity
 // @Table es opcional en ObjectDB, pero puedes dejarlo por compatibilidad
+// Índice compuesto para buscar copias libres de una película (pelicula = :p AND usuario IS NULL);
+// al empezar por 'pelicula' también sirve para las consultas que solo filtran por película
+@Index(members = {"pelicula", "usuario"})
 public class CopiaPelicula implements Serializable {
 
     @Id
@@ -22,12 +27,27 @@ public class CopiaPelicula implements Serializable {
     @ManyToOne(fetch = FetchType.EAGER)
     private Pelicula pelicula;
 
+    // Índice propio para resolver User.copiaAsignada (mappedBy = "usuario") sin recorrer todas las copias
+    @Index
     @OneToOne(fetch = FetchType.LAZY)
     private User usuario;
 
     private String estado;
     private String soporte;
 
+    // Instante (ms) del último cambio (alta, alquiler...): la disponibilidad de su película ha cambiado
+    @Index
+    private long ultimaModificacion;
+
+    /**
+     * Actualiza la marca de modificación cada vez que la copia se inserta o se modifica.
+     */
+    @PrePersist
+    @PreUpdate
+    void marcarModificacion() {
+        ultimaModificacion = System.currentTimeMillis();
+    }
+
     @Override
     public String toString() {
         return "CopiaPelicula{" +
@@ -2,21 +2,30 @@ package copiaPelicula;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
-import session.JPAUtil;
+import session.UnitOfWork;
+import utils.Metricas;
 import utils.Repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Repositorio para la entidad {@link CopiaPelicula}.
  * <p>
  * Implementa la interfaz {@link Repository} para proporcionar operaciones CRUD
  * (Crear, Leer, Actualizar, Borrar) sobre las copias de películas en la base de datos ObjectDB.
+ * Las operaciones se ejecutan a través de {@link UnitOfWork}. {@link #contarDisponibilidad(Collection)}, que no
+ * está en {@link Repository}, se mide aquí como {@code CopiaPeliculaRepository.contarDisponibilidad}.
  * </p>
  */
 public class CopiaPeliculaRepository implements Repository<CopiaPelicula> {
 
+    private final Metricas metricas = Metricas.getInstance();
+
     /**
      * Guarda o actualiza una copia de película en la base de datos.
      * <p>
@@ -28,22 +37,27 @@ public class CopiaPeliculaRepository implements Repository<CopiaPelicula> {
      */
     @Override
     public CopiaPelicula save(CopiaPelicula entity) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            em.getTransaction().begin();
-            if (entity.getId() == null) {
-                em.persist(entity);
-            } else {
-                entity = em.merge(entity);
-            }
-            em.getTransaction().commit();
+        return UnitOfWork.inTransaction(em -> guardar(em, entity));
+    }
+
+    /**
+     * Guarda o actualiza varias copias en transacciones de {@code tamañoLote} elementos.
+     *
+     * @param entidades  Las entidades a guardar.
+     * @param tamañoLote El número de entidades por transacción.
+     * @return Las entidades persistidas, en el mismo orden.
+     */
+    @Override
+    public List<CopiaPelicula> saveAll(Collection<CopiaPelicula> entidades, int tamañoLote) {
+        return UnitOfWork.inChunks(entidades, tamañoLote, this::guardar);
+    }
+
+    private CopiaPelicula guardar(EntityManager em, CopiaPelicula entity) {
+        if (entity.getId() == null) {
+            em.persist(entity);
             return entity;
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
         }
+        return em.merge(entity);
     }
 
     /**
@@ -54,12 +68,7 @@ public class CopiaPeliculaRepository implements Repository<CopiaPelicula> {
      */
     @Override
     public Optional<CopiaPelicula> findById(Long id) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            return Optional.ofNullable(em.find(CopiaPelicula.class, id.intValue()));
-        } finally {
-            em.close();
-        }
+        return UnitOfWork.read(em -> Optional.ofNullable(em.find(CopiaPelicula.class, id.intValue())));
     }
 
     /**
@@ -69,13 +78,10 @@ public class CopiaPeliculaRepository implements Repository<CopiaPelicula> {
      */
     @Override
     public List<CopiaPelicula> findAll() {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
+        return UnitOfWork.read(em -> {
             TypedQuery<CopiaPelicula> query = em.createQuery("SELECT c FROM CopiaPelicula c", CopiaPelicula.class);
             return query.getResultList();
-        } finally {
-            em.close();
-        }
+        });
     }
 
     /**
@@ -86,18 +92,14 @@ public class CopiaPeliculaRepository implements Repository<CopiaPelicula> {
      */
     @Override
     public Optional<CopiaPelicula> delete(CopiaPelicula entity) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
         try {
-            em.getTransaction().begin();
-            CopiaPelicula managed = em.merge(entity);
-            em.remove(managed);
-            em.getTransaction().commit();
+            UnitOfWork.runInTransaction(em -> {
+                CopiaPelicula managed = em.merge(entity);
+                eliminar(em, managed);
+            });
             return Optional.of(entity);
         } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
             return Optional.empty();
-        } finally {
-            em.close();
         }
     }
 
@@ -109,19 +111,85 @@ public class CopiaPeliculaRepository implements Repository<CopiaPelicula> {
      */
     @Override
     public Optional<CopiaPelicula> deleteById(Long id) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            em.getTransaction().begin();
+        return UnitOfWork.inTransaction(em -> {
             CopiaPelicula c = em.find(CopiaPelicula.class, id.intValue());
             if (c != null) {
-                em.remove(c);
-                em.getTransaction().commit();
-                return Optional.of(c);
+                eliminar(em, c);
             }
-            return Optional.empty();
-        } finally {
-            em.close();
+            return Optional.ofNullable(c);
+        });
+    }
+
+    /**
+     * Elimina varias copias por ID en transacciones de {@code tamañoLote} borrados.
+     *
+     * @param ids        Los identificadores a eliminar.
+     * @param tamañoLote El número de borrados por transacción.
+     * @return El número de entidades eliminadas.
+     */
+    @Override
+    public int deleteAllById(Collection<Long> ids, int tamañoLote) {
+        List<Boolean> eliminadas = UnitOfWork.inChunks(ids, tamañoLote, (em, id) -> {
+            CopiaPelicula c = em.find(CopiaPelicula.class, id.intValue());
+            if (c == null) return false;
+            eliminar(em, c);
+            return true;
+        });
+        return (int) eliminadas.stream().filter(Boolean::booleanValue).count();
+    }
+
+    private static void eliminar(EntityManager em, CopiaPelicula c) {
+        // La disponibilidad de la película cambia: la lápida lo anota para el refresco incremental sin modificar
+        // la película, que cambiaría de versión y haría fallar las ediciones en curso
+        if (c.getPelicula() != null) {
+            em.merge(new CopiaBorrada(c.getId(), c.getPelicula().getId(), System.currentTimeMillis()));
         }
+        em.remove(c);
+    }
+
+    /**
+     * Recorre todas las copias por bloques ordenados por ID.
+     * <p>
+     * Usa {@link Repository#recorrerPorBloques(Class, java.util.function.Function, int, Consumer)}.
+     * </p>
+     *
+     * @param tamañoBloque El número de entidades cargadas por consulta.
+     * @param accion       La acción a ejecutar sobre cada entidad.
+     */
+    @Override
+    public void streamAll(int tamañoBloque, Consumer<CopiaPelicula> accion) {
+        Repository.recorrerPorBloques(CopiaPelicula.class, CopiaPelicula::getId, tamañoBloque, accion);
+    }
+
+    /**
+     * Cuenta las copias libres y alquiladas de varias películas con una única consulta agregada.
+     * <p>
+     * La consulta agrupa por película sobre el índice {@code (pelicula, usuario)} y devuelve solo los
+     * recuentos: no se carga ninguna copia ni se recorre la colección {@code Pelicula.copias}, y se hace
+     * un solo viaje a la base de datos por página del catálogo, tenga cada película las copias que tenga.
+     * </p>
+     *
+     * @param idsPeliculas Los IDs de las películas (p. ej. las de una página del catálogo).
+     * @return La disponibilidad por ID de película; las películas sin copias no aparecen en el mapa.
+     */
+    public Map<Integer, Disponibilidad> contarDisponibilidad(Collection<Integer> idsPeliculas) {
+        return metricas.medir("CopiaPeliculaRepository.contarDisponibilidad", () -> consultarDisponibilidad(idsPeliculas));
+    }
+
+    private Map<Integer, Disponibilidad> consultarDisponibilidad(Collection<Integer> idsPeliculas) {
+        Map<Integer, Disponibilidad> disponibilidad = new HashMap<>();
+        if (idsPeliculas.isEmpty()) return disponibilidad;
+        List<Object[]> filas = UnitOfWork.read(em -> em.createQuery(
+                        "SELECT c.pelicula.id, COUNT(c), SUM(CASE WHEN c.usuario IS NULL THEN 1 ELSE 0 END) " +
+                                "FROM CopiaPelicula c WHERE c.pelicula.id IN :ids GROUP BY c.pelicula.id", Object[].class)
+                .setParameter("ids", idsPeliculas)
+                .getResultList());
+        for (Object[] fila : filas) {
+            long total = ((Number) fila[1]).longValue();
+            long libres = ((Number) fila[2]).longValue();
+            disponibilidad.put((Integer) fila[0], new Disponibilidad(libres, total - libres));
+        }
+        return disponibilidad;
     }
 
     /**
@@ -131,11 +199,6 @@ public class CopiaPeliculaRepository implements Repository<CopiaPelicula> {
      */
     @Override
     public Long count() {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            return em.createQuery("SELECT COUNT(c) FROM CopiaPelicula c", Long.class).getSingleResult();
-        } finally {
-            em.close();
-        }
+        return UnitOfWork.read(em -> em.createQuery("SELECT COUNT(c) FROM CopiaPelicula c", Long.class).getSingleResult());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package copiaPelicula;
+
+/**
+ * Número de copias libres y alquiladas de una película.
+ *
+ * @param disponibles Las copias sin usuario asignado.
+ * @param alquiladas  Las copias asignadas a un usuario.
+ */
+public record Disponibilidad(long disponibles, long alquiladas) {
+
+    /**
+     * Disponibilidad de una película sin copias.
+     */
+    public static final Disponibilidad SIN_COPIAS = new Disponibilidad(0, 0);
+
+    /**
+     * @return El número total de copias.
+     */
+    public long total() {
+        return disponibles + alquiladas;
+    }
+
+    /**
+     * Texto para las tablas, p. ej. {@code "3 / 5"} (disponibles de un total).
+     *
+     * @return La disponibilidad en formato {@code disponibles / total}.
+     */
+    @Override
+    public String toString() {
+        return disponibles + " / " + total();
+    }
+}
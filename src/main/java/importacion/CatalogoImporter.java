@@ -0,0 +1,374 @@
+package importacion;
+
+import copiaPelicula.CopiaPelicula;
+import copiaPelicula.CopiaPeliculaRepository;
+import pelicula.Pelicula;
+import pelicula.PeliculaRepository;
+import session.JPAUtil;
+import session.UnitOfWork;
+import utils.Metricas;
+import utils.Repository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Importador masivo y sin interfaz gráfica del catálogo de películas y sus copias.
+ * <p>
+ * Lee ficheros CSV (con cabecera) o JSON-lines mediante una tubería acotada de dos etapas:
+ * <ol>
+ *     <li>Un hilo lector analiza y valida cada línea y agrupa las filas válidas en lotes.</li>
+ *     <li>El hilo llamante persiste cada lote (películas y copias) en una única transacción,
+ *     junto con el punto de control {@link ProgresoImportacion}.</li>
+ * </ol>
+ * Entre ambas etapas solo caben {@value #LOTES_EN_COLA} lotes, así que la memoria no depende del tamaño
+ * del fichero. Las líneas rechazadas se anotan en {@code <fichero>.errores}. Si la importación falla,
+ * basta con volver a ejecutarla sobre el mismo fichero para reanudarla tras el último lote confirmado; los
+ * errores de las líneas que se vuelven a leer se reescriben en lugar de duplicarse.
+ * </p>
+ * <p>
+ * Columnas reconocidas: {@code titulo, genero, año, director, descripcion, image_url, copias}, donde
+ * {@code copias} es {@code "DVD:3|BluRay:2"} en CSV o {@code {"DVD": 3, "BluRay": 2}} en JSON.
+ * Los campos CSV pueden ir entre comillas dobles, pero cada registro debe ocupar una sola línea.
+ * </p>
+ */
+public class CatalogoImporter {
+
+    /**
+     * Número de filas por lote (y por transacción) si no se indica otro.
+     */
+    public static final int TAMAÑO_LOTE_POR_DEFECTO = 1000;
+
+    private static final int LOTES_EN_COLA = 4;
+    private static final long INTERVALO_INFORME_NANOS = Duration.ofSeconds(5).toNanos();
+    private static final String PREFIJO_ERROR = "Línea ";
+
+    /**
+     * Lote de filas válidas y la última línea del fichero que cubre (válida o no).
+     */
+    private record Lote(List<FilaCatalogo> filas, long ultimaLinea) {}
+
+    // Marca de fin de la tubería
+    private static final Lote FIN = new Lote(List.of(), -1);
+
+    /**
+     * Resumen de una ejecución del importador.
+     *
+     * @param filasImportadas Películas persistidas en esta ejecución.
+     * @param filasRechazadas Líneas descartadas por no ser válidas.
+     * @param filasOmitidas   Líneas saltadas por estar ya importadas en una ejecución anterior.
+     * @param duracion        Tiempo total de la importación.
+     */
+    public record ResultadoImportacion(long filasImportadas, long filasRechazadas, long filasOmitidas,
+                                       Duration duracion) {
+        /**
+         * @return Filas importadas por segundo.
+         */
+        public double filasPorSegundo() {
+            double segundos = duracion.toNanos() / 1_000_000_000.0;
+            return segundos == 0 ? filasImportadas : filasImportadas / segundos;
+        }
+    }
+
+    // Solo se usan operaciones de la interfaz: los repositorios van instrumentados
+    private final Repository<Pelicula> peliculaRepository = Metricas.instrumentar(new PeliculaRepository());
+    private final Repository<CopiaPelicula> copiaRepository = Metricas.instrumentar(new CopiaPeliculaRepository());
+    private final int tamañoLote;
+
+    /**
+     * Crea un importador con el tamaño de lote por defecto.
+     */
+    public CatalogoImporter() {
+        this(TAMAÑO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Crea un importador.
+     *
+     * @param tamañoLote El número de filas persistidas por transacción.
+     */
+    public CatalogoImporter(int tamañoLote) {
+        this.tamañoLote = Math.max(1, tamañoLote);
+    }
+
+    /**
+     * Importa un fichero de catálogo, reanudando desde el último punto de control si existe.
+     *
+     * @param fichero El fichero CSV o JSON-lines.
+     * @return El resumen de la importación.
+     * @throws IOException          Si no se puede leer el fichero o escribir el de errores.
+     * @throws InterruptedException Si el hilo se interrumpe durante la importación.
+     */
+    public ResultadoImportacion importar(Path fichero) throws IOException, InterruptedException {
+        String clave = fichero.toAbsolutePath().normalize().toString();
+        long desdeLinea = UnitOfWork.read(em -> {
+            ProgresoImportacion progreso = em.find(ProgresoImportacion.class, clave);
+            return progreso == null ? 0L : progreso.getUltimaLinea();
+        });
+        if (desdeLinea > 0) {
+            System.out.println("Reanudando la importación de " + fichero + " tras la línea " + desdeLinea);
+        }
+
+        BlockingQueue<Lote> cola = new ArrayBlockingQueue<>(LOTES_EN_COLA);
+        AtomicLong rechazadas = new AtomicLong();
+        AtomicLong omitidas = new AtomicLong();
+        AtomicReference<Exception> errorLectura = new AtomicReference<>();
+        Path ficheroErrores = fichero.resolveSibling(fichero.getFileName() + ".errores");
+
+        long inicio = System.nanoTime();
+        Thread lector = Thread.ofPlatform().name("importador-lector").daemon().start(() -> {
+            try {
+                leer(fichero, desdeLinea, ficheroErrores, cola, rechazadas, omitidas);
+            } catch (InterruptedException e) {
+                // El consumidor falló y nos interrumpió: ya no espera el fin de la tubería
+                return;
+            } catch (Exception e) {
+                errorLectura.set(e);
+            }
+            try {
+                cola.put(FIN);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long importadas = 0;
+        long ultimoInforme = inicio;
+        try {
+            while (true) {
+                Lote lote = cola.take();
+                if (lote == FIN) break;
+                persistir(clave, lote);
+                importadas += lote.filas().size();
+
+                long ahora = System.nanoTime();
+                if (ahora - ultimoInforme >= INTERVALO_INFORME_NANOS) {
+                    informar(importadas, rechazadas.get(), ahora - inicio);
+                    ultimoInforme = ahora;
+                }
+            }
+        } catch (RuntimeException e) {
+            lector.interrupt();
+            throw new IllegalStateException("La importación se detuvo tras " + importadas
+                    + " filas. Vuelva a ejecutarla para reanudar desde el último lote confirmado.", e);
+        }
+        lector.join();
+
+        if (errorLectura.get() != null) {
+            throw new IOException("Error leyendo " + fichero + "; la importación puede reanudarse", errorLectura.get());
+        }
+        ResultadoImportacion resultado = new ResultadoImportacion(importadas, rechazadas.get(), omitidas.get(),
+                Duration.ofNanos(System.nanoTime() - inicio));
+        informar(importadas, rechazadas.get(), resultado.duracion().toNanos());
+        return resultado;
+    }
+
+    /**
+     * Etapa lectora: analiza y valida cada línea y entrega lotes a la cola (bloqueando si está llena).
+     */
+    private void leer(Path fichero, long desdeLinea, Path ficheroErrores, BlockingQueue<Lote> cola,
+                      AtomicLong rechazadas, AtomicLong omitidas) throws IOException, InterruptedException {
+        boolean csv = fichero.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        conservarErroresHasta(ficheroErrores, desdeLinea);
+        try (BufferedReader lector = Files.newBufferedReader(fichero, StandardCharsets.UTF_8);
+             BufferedWriter errores = Files.newBufferedWriter(ficheroErrores, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            String[] cabecera = null;
+            char separador = ',';
+            List<FilaCatalogo> filas = new ArrayList<>(tamañoLote);
+            long numeroLinea = 0;
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (csv && cabecera == null) {
+                    separador = linea.indexOf(';') >= 0 && linea.indexOf(',') < 0 ? ';' : ',';
+                    cabecera = dividirCsv(linea, separador).toArray(String[]::new);
+                    continue;
+                }
+                if (numeroLinea <= desdeLinea) {
+                    omitidas.incrementAndGet();
+                    continue;
+                }
+                if (linea.isBlank()) continue;
+                try {
+                    Map<String, Object> campos = csv ? camposCsv(cabecera, dividirCsv(linea, separador))
+                            : JsonLinea.parsearObjeto(linea);
+                    filas.add(FilaCatalogo.desdeCampos(numeroLinea, campos));
+                } catch (IllegalArgumentException e) {
+                    rechazadas.incrementAndGet();
+                    errores.write(PREFIJO_ERROR + numeroLinea + ": " + e.getMessage());
+                    errores.newLine();
+                }
+                if (filas.size() == tamañoLote) {
+                    cola.put(new Lote(filas, numeroLinea));
+                    filas = new ArrayList<>(tamañoLote);
+                }
+            }
+            if (!filas.isEmpty()) {
+                cola.put(new Lote(filas, numeroLinea));
+            }
+        }
+    }
+
+    /**
+     * Prepara el fichero de errores para una ejecución que empieza tras la línea {@code desdeLinea}.
+     * <p>
+     * Las líneas posteriores al último punto de control se vuelven a leer (y a rechazar) al reanudar, así que sus
+     * errores de la ejecución anterior se quitan para no duplicarlos; se conservan los de las líneas ya
+     * confirmadas. Una importación desde el principio empieza con el fichero vacío.
+     * </p>
+     */
+    private static void conservarErroresHasta(Path ficheroErrores, long desdeLinea) throws IOException {
+        if (!Files.exists(ficheroErrores)) return;
+        if (desdeLinea <= 0) {
+            Files.delete(ficheroErrores);
+            return;
+        }
+        List<String> conservados = new ArrayList<>();
+        for (String error : Files.readAllLines(ficheroErrores, StandardCharsets.UTF_8)) {
+            if (lineaDeError(error) <= desdeLinea) conservados.add(error);
+        }
+        Files.write(ficheroErrores, conservados, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return El número de línea de una entrada {@code "Línea N: ..."} del fichero de errores, o
+     * {@link Long#MAX_VALUE} si no tiene ese formato.
+     */
+    private static long lineaDeError(String error) {
+        int dosPuntos = error.indexOf(':');
+        if (!error.startsWith(PREFIJO_ERROR) || dosPuntos < 0) return Long.MAX_VALUE;
+        try {
+            return Long.parseLong(error.substring(PREFIJO_ERROR.length(), dosPuntos).trim());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Etapa de persistencia: guarda las películas, sus copias y el punto de control en una sola transacción.
+     */
+    private void persistir(String clave, Lote lote) {
+        UnitOfWork.runInTransaction(em -> {
+            List<Pelicula> peliculas = new ArrayList<>(lote.filas().size());
+            List<CopiaPelicula> copias = new ArrayList<>();
+            for (FilaCatalogo fila : lote.filas()) {
+                Pelicula pelicula = fila.crearPelicula();
+                peliculas.add(pelicula);
+                copias.addAll(fila.crearCopias(pelicula));
+            }
+            // Dentro de la transacción del lote, saveAll solo hace flush entre bloques
+            peliculaRepository.saveAll(peliculas, tamañoLote);
+            copiaRepository.saveAll(copias, tamañoLote);
+
+            ProgresoImportacion progreso = em.find(ProgresoImportacion.class, clave);
+            if (progreso == null) {
+                progreso = new ProgresoImportacion(clave, 0, 0);
+                em.persist(progreso);
+            }
+            progreso.setUltimaLinea(lote.ultimaLinea());
+            progreso.setFilasImportadas(progreso.getFilasImportadas() + lote.filas().size());
+        });
+    }
+
+    private static void informar(long importadas, long rechazadas, long nanos) {
+        double segundos = Math.max(nanos, 1) / 1_000_000_000.0;
+        System.out.printf(Locale.ROOT, "Importadas %d filas en %.1f s (%.0f filas/s), rechazadas %d%n",
+                importadas, segundos, importadas / segundos, rechazadas);
+    }
+
+    /**
+     * Asocia los valores de una línea CSV a los nombres de la cabecera, en minúsculas.
+     */
+    static Map<String, Object> camposCsv(String[] cabecera, List<String> valores) {
+        if (valores.size() > cabecera.length) {
+            throw new IllegalArgumentException("La línea tiene " + valores.size()
+                    + " columnas y la cabecera " + cabecera.length);
+        }
+        Map<String, Object> campos = new HashMap<>();
+        for (int i = 0; i < valores.size(); i++) {
+            campos.put(cabecera[i].trim().toLowerCase(Locale.ROOT), valores.get(i));
+        }
+        return campos;
+    }
+
+    /**
+     * Divide una línea CSV respetando los campos entre comillas dobles ({@code ""} escapa una comilla).
+     */
+    static List<String> dividirCsv(String linea, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    /**
+     * Punto de entrada del importador.
+     * <p>
+     * Uso: {@code CatalogoImporter <fichero.csv|fichero.jsonl> [tamañoLote]}
+     * </p>
+     *
+     * @param args El fichero a importar y, opcionalmente, el tamaño de lote.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: CatalogoImporter <fichero.csv|fichero.jsonl> [tamañoLote]");
+            System.exit(2);
+        }
+        int lote = args.length > 1 ? Integer.parseInt(args[1]) : TAMAÑO_LOTE_POR_DEFECTO;
+        int codigoSalida = 0;
+        try {
+            ResultadoImportacion resultado = new CatalogoImporter(lote).importar(Path.of(args[0]));
+            System.out.println("Importación terminada: " + resultado.filasImportadas() + " importadas, "
+                    + resultado.filasRechazadas() + " rechazadas, " + resultado.filasOmitidas()
+                    + " ya importadas anteriormente.");
+            System.out.print(Metricas.getInstance().informe());
+        } catch (Exception e) {
+            System.err.println("--- ERROR EN LA IMPORTACIÓN ---");
+            e.printStackTrace();
+            codigoSalida = 1;
+        } finally {
+            JPAUtil.shutdown();
+        }
+        if (codigoSalida != 0) System.exit(codigoSalida);
+    }
+}
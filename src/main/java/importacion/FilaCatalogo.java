@@ -0,0 +1,160 @@
+package importacion;
+
+import copiaPelicula.CopiaPelicula;
+import pelicula.Pelicula;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fila ya validada de un fichero de catálogo: los datos de una película y cuántas copias crear por soporte.
+ *
+ * @param numeroLinea       La línea del fichero de la que procede (para reanudar y para informar errores).
+ * @param titulo            El título (obligatorio).
+ * @param genero            El género.
+ * @param año               El año de estreno (obligatorio, mayor que 0).
+ * @param director          El director.
+ * @param descripcion       La descripción.
+ * @param imageUrl          La URL del póster.
+ * @param copiasPorSoporte  Número de copias a crear para cada soporte (DVD, BluRay...).
+ */
+record FilaCatalogo(long numeroLinea, String titulo, String genero, int año, String director,
+                    String descripcion, String imageUrl, Map<String, Integer> copiasPorSoporte) {
+
+    /**
+     * Máximo de copias (sumando todos los soportes) que puede crear una fila. Configurable con la propiedad
+     * de sistema {@code importacion.copias.maxPorFila}; acota la memoria de cada lote del importador.
+     */
+    static final int MAX_COPIAS_POR_FILA = Integer.getInteger("importacion.copias.maxPorFila", 1000);
+
+    /**
+     * Construye y valida una fila a partir de los campos leídos del fichero.
+     * <p>
+     * Los campos de copias se aceptan como objeto JSON ({@code {"DVD": 3}}) o como texto
+     * {@code "DVD:3|BluRay:2"} en CSV. Cada cantidad debe ser un entero no negativo y el total de la fila no
+     * puede superar {@link #MAX_COPIAS_POR_FILA}.
+     * </p>
+     *
+     * @param numeroLinea La línea de origen.
+     * @param campos      Los campos por nombre.
+     * @return La fila validada.
+     * @throws IllegalArgumentException Si falta un campo obligatorio o algún valor no es válido.
+     */
+    static FilaCatalogo desdeCampos(long numeroLinea, Map<String, Object> campos) {
+        String titulo = texto(campos.get("titulo"));
+        if (titulo == null || titulo.isBlank()) {
+            throw new IllegalArgumentException("El título es obligatorio");
+        }
+        Object añoCampo = campos.containsKey("año") ? campos.get("año") : campos.get("anio");
+        int año;
+        try {
+            año = añoCampo instanceof Number n ? n.intValue() : Integer.parseInt(texto(añoCampo).trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Año no válido: " + añoCampo);
+        }
+        if (año <= 0) {
+            throw new IllegalArgumentException("El año debe ser mayor que 0: " + año);
+        }
+        return new FilaCatalogo(numeroLinea, titulo.trim(), texto(campos.get("genero")), año,
+                texto(campos.get("director")), texto(campos.get("descripcion")),
+                texto(campos.get("image_url")), copias(campos.get("copias")));
+    }
+
+    /**
+     * Crea la entidad {@link Pelicula} (sin copias) correspondiente a la fila.
+     *
+     * @return Una película nueva, sin persistir.
+     */
+    Pelicula crearPelicula() {
+        Pelicula pelicula = new Pelicula();
+        pelicula.setTitulo(titulo);
+        pelicula.setGenero(genero);
+        pelicula.setAño(año);
+        pelicula.setDirector(director);
+        pelicula.setDescripcion(descripcion);
+        pelicula.setImage_url(imageUrl);
+        return pelicula;
+    }
+
+    /**
+     * Crea las copias disponibles de la película según {@link #copiasPorSoporte()}.
+     *
+     * @param pelicula La película a la que pertenecen las copias.
+     * @return Las copias nuevas, sin persistir.
+     */
+    List<CopiaPelicula> crearCopias(Pelicula pelicula) {
+        List<CopiaPelicula> copias = new ArrayList<>();
+        copiasPorSoporte.forEach((soporte, cantidad) -> {
+            for (int i = 0; i < cantidad; i++) {
+                CopiaPelicula copia = new CopiaPelicula();
+                copia.setPelicula(pelicula);
+                copia.setEstado("Disponible");
+                copia.setSoporte(soporte);
+                copias.add(copia);
+            }
+        });
+        return copias;
+    }
+
+    private static String texto(Object valor) {
+        if (valor == null) return null;
+        String s = valor.toString();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static Map<String, Integer> copias(Object valor) {
+        Map<String, Integer> copias = new LinkedHashMap<>();
+        if (valor == null) return copias;
+        if (valor instanceof Map<?, ?> mapa) {
+            mapa.forEach((soporte, cantidad) -> añadirCopias(copias, String.valueOf(soporte), String.valueOf(cantidad)));
+            comprobarTotal(copias);
+            return copias;
+        }
+        String textoCopias = valor.toString().trim();
+        if (textoCopias.isEmpty()) return copias;
+        for (String parte : textoCopias.split("\\|")) {
+            String[] soporteCantidad = parte.split(":", 2);
+            if (soporteCantidad.length != 2) {
+                throw new IllegalArgumentException("Copias no válidas (formato SOPORTE:N): " + parte);
+            }
+            añadirCopias(copias, soporteCantidad[0], soporteCantidad[1]);
+        }
+        comprobarTotal(copias);
+        return copias;
+    }
+
+    private static void añadirCopias(Map<String, Integer> copias, String soporte, String cantidadTexto) {
+        String nombre = soporte.trim();
+        if (nombre.isEmpty()) {
+            throw new IllegalArgumentException("El soporte de las copias no puede estar vacío");
+        }
+        int cantidad;
+        try {
+            // Los números de JSON llegan como Long ("3") o Double ("3.0"): se admiten solo los enteros exactos
+            cantidad = new BigDecimal(cantidadTexto.trim()).intValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Número de copias no válido para " + nombre + " (debe ser un entero): "
+                    + cantidadTexto);
+        }
+        if (cantidad < 0) {
+            throw new IllegalArgumentException("Número de copias negativo para " + nombre);
+        }
+        if (cantidad > MAX_COPIAS_POR_FILA) {
+            throw new IllegalArgumentException("Demasiadas copias para " + nombre + ": " + cantidad
+                    + " (máximo " + MAX_COPIAS_POR_FILA + " por fila)");
+        }
+        copias.merge(nombre, cantidad, Math::addExact);
+    }
+
+    private static void comprobarTotal(Map<String, Integer> copias) {
+        long total = 0;
+        for (int cantidad : copias.values()) total += cantidad;
+        if (total > MAX_COPIAS_POR_FILA) {
+            throw new IllegalArgumentException("Demasiadas copias en la fila: " + total
+                    + " (máximo " + MAX_COPIAS_POR_FILA + ")");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package importacion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analizador JSON mínimo para ficheros JSON-lines (un objeto por línea).
+ * <p>
+ * Convierte cada objeto en un {@link Map}, los arrays en {@link List}, los números en {@link Long} o
+ * {@link Double}, y admite cadenas con secuencias de escape, {@code true}, {@code false} y {@code null}.
+ * Evita añadir una dependencia externa solo para leer el formato de importación.
+ * </p>
+ */
+final class JsonLinea {
+
+    private final String texto;
+    private int pos;
+
+    private JsonLinea(String texto) {
+        this.texto = texto;
+    }
+
+    /**
+     * Analiza una línea que debe contener exactamente un objeto JSON.
+     *
+     * @param linea El texto de la línea.
+     * @return Los campos del objeto.
+     * @throws IllegalArgumentException Si la línea no es un objeto JSON válido.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parsearObjeto(String linea) {
+        JsonLinea parser = new JsonLinea(linea);
+        parser.saltarEspacios();
+        if (parser.actual() != '{') throw parser.error("se esperaba '{'");
+        Map<String, Object> objeto = (Map<String, Object>) parser.valor();
+        parser.saltarEspacios();
+        if (parser.pos < parser.texto.length()) throw parser.error("contenido tras el objeto");
+        return objeto;
+    }
+
+    private Object valor() {
+        saltarEspacios();
+        char c = actual();
+        return switch (c) {
+            case '{' -> objeto();
+            case '[' -> array();
+            case '"' -> cadena();
+            case 't' -> literal("true", Boolean.TRUE);
+            case 'f' -> literal("false", Boolean.FALSE);
+            case 'n' -> literal("null", null);
+            default -> {
+                if (c == '-' || Character.isDigit(c)) yield numero();
+                throw error("valor inesperado");
+            }
+        };
+    }
+
+    private Map<String, Object> objeto() {
+        Map<String, Object> campos = new LinkedHashMap<>();
+        pos++; // '{'
+        saltarEspacios();
+        if (actual() == '}') {
+            pos++;
+            return campos;
+        }
+        while (true) {
+            saltarEspacios();
+            if (actual() != '"') throw error("se esperaba el nombre de un campo");
+            String clave = cadena();
+            saltarEspacios();
+            if (actual() != ':') throw error("se esperaba ':'");
+            pos++;
+            campos.put(clave, valor());
+            saltarEspacios();
+            char c = actual();
+            pos++;
+            if (c == '}') return campos;
+            if (c != ',') throw error("se esperaba ',' o '}'");
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> elementos = new ArrayList<>();
+        pos++; // '['
+        saltarEspacios();
+        if (actual() == ']') {
+            pos++;
+            return elementos;
+        }
+        while (true) {
+            elementos.add(valor());
+            saltarEspacios();
+            char c = actual();
+            pos++;
+            if (c == ']') return elementos;
+            if (c != ',') throw error("se esperaba ',' o ']'");
+        }
+    }
+
+    private String cadena() {
+        StringBuilder sb = new StringBuilder();
+        pos++; // comilla de apertura
+        while (true) {
+            char c = actual();
+            pos++;
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escape = actual();
+            pos++;
+            switch (escape) {
+                case '"', '\\', '/' -> sb.append(escape);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > texto.length()) throw error("secuencia \\u incompleta");
+                    sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                    pos += 4;
+                }
+                default -> throw error("secuencia de escape no válida");
+            }
+        }
+    }
+
+    private Object numero() {
+        int inicio = pos;
+        while (pos < texto.length() && "+-0123456789.eE".indexOf(texto.charAt(pos)) >= 0) {
+            pos++;
+        }
+        String numero = texto.substring(inicio, pos);
+        try {
+            if (numero.contains(".") || numero.contains("e") || numero.contains("E")) {
+                return Double.parseDouble(numero);
+            }
+            return Long.parseLong(numero);
+        } catch (NumberFormatException e) {
+            throw error("número no válido: " + numero);
+        }
+    }
+
+    private Object literal(String palabra, Object valor) {
+        if (!texto.startsWith(palabra, pos)) throw error("literal no válido");
+        pos += palabra.length();
+        return valor;
+    }
+
+    private void saltarEspacios() {
+        while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private char actual() {
+        if (pos >= texto.length()) throw error("fin de línea inesperado");
+        return texto.charAt(pos);
+    }
+
+    private IllegalArgumentException error(String mensaje) {
+        return new IllegalArgumentException("JSON no válido en la posición " + pos + ": " + mensaje);
+    }
+}
@@ -0,0 +1,41 @@
+package importacion;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Punto de control de una importación de catálogo.
+ * <p>
+ * Se guarda en la misma transacción que cada lote importado, de modo que, si el proceso se interrumpe,
+ * la siguiente ejecución sobre el mismo fichero continúa exactamente tras el último lote confirmado,
+ * sin duplicar ni perder películas.
+ * </p>
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgresoImportacion implements Serializable {
+
+    // Ruta absoluta y normalizada del fichero importado
+    @Id
+    private String fichero;
+
+    // Última línea del fichero cuyo lote se confirmó (incluye líneas rechazadas)
+    private long ultimaLinea;
+
+    private long filasImportadas;
+
+    @Override
+    public String toString() {
+        return "ProgresoImportacion{" +
+                "fichero='" + fichero + '\'' +
+                ", ultimaLinea=" + ultimaLinea +
+                ", filasImportadas=" + filasImportadas +
+                '}';
+    }
+}
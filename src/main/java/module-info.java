@@ -9,6 +9,9 @@ module RetoConjuntoObjectDBJavaFX {
     requires com.objectdb;
     requires java.naming;
 
+    // Monitorización por JMX (JConsole, VisualVM)
+    requires java.management;
+
     // 3. Abrir paquetes para JavaFX (Carga de FXML)
     // Nota: Abre 'controllers' si tus archivos FXML buscan allí sus controladores
     opens controllers to javafx.fxml;
@@ -19,6 +22,7 @@ module RetoConjuntoObjectDBJavaFX {
     opens user to jakarta.persistence, com.objectdb;
     opens pelicula to jakarta.persistence, com.objectdb;
     opens copiaPelicula to jakarta.persistence, com.objectdb;
+    opens importacion to jakarta.persistence, com.objectdb;
 
     // 5. Exportar paquetes para que sean visibles por otros módulos
     exports utils;
@@ -27,4 +31,5 @@ module RetoConjuntoObjectDBJavaFX {
     exports pelicula;
     exports copiaPelicula;
     exports session;
+    exports importacion;
 }
\ No newline at end of file
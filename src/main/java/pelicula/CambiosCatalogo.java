@@ -0,0 +1,21 @@
+package pelicula;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cambios del catálogo desde una marca de tiempo, para refrescar un listado sin recargarlo entero.
+ *
+ * @param modificadas Los resúmenes actuales de las películas creadas o modificadas, o cuyas copias han cambiado.
+ * @param borradas    Los IDs de las películas borradas.
+ * @param marca       La marca a usar en la siguiente consulta de cambios.
+ */
+public record CambiosCatalogo(List<PeliculaResumen> modificadas, Set<Integer> borradas, long marca) {
+
+    /**
+     * @return {@code true} si no hay ningún cambio.
+     */
+    public boolean isEmpty() {
+        return modificadas.isEmpty() && borradas.isEmpty();
+    }
+}
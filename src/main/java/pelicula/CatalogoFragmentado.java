@@ -0,0 +1,422 @@
+package pelicula;
+
+import copiaPelicula.CopiaPelicula;
+import copiaPelicula.Disponibilidad;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import session.ConfiguracionConexion;
+import session.UnitOfWork;
+import utils.AsyncUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Catálogo de películas repartido entre varios ficheros ObjectDB (fragmentos), con consultas en paralelo.
+ * <p>
+ * Es una capa opcional para catálogos que no caben cómodamente en un único {@code db/ad.odb}. Cada fragmento
+ * es una base de datos independiente con su propia factoría; una película y todas sus copias se guardan
+ * siempre en el mismo fragmento, así que las relaciones entre ellas siguen siendo referencias locales.
+ * </p>
+ * <p>
+ * <b>Encaminamiento.</b> ObjectDB genera los IDs por fichero, de modo que el mismo ID local se repite en
+ * todos los fragmentos. Hacia fuera se usa un ID global que lleva el fragmento dentro:
+ * {@code global = local * N + fragmento}, con {@code N} fragmentos. Encontrar el fragmento de un ID es
+ * {@code global % N}, sin tabla de encaminamiento. Las películas nuevas se reparten por turnos, y sus copias
+ * van al fragmento de la película. Dentro de un fragmento el orden por ID local es el mismo que por ID global,
+ * así que el desempate por ID de las páginas sigue siendo coherente entre fragmentos.
+ * </p>
+ * <p>
+ * <b>Consultas.</b> Las lecturas de un ID van a un solo fragmento. Las páginas del catálogo se piden a todos
+ * los fragmentos a la vez (cada uno con el mismo filtro, orden y cursor traducido a sus IDs locales, y el mismo
+ * límite), y sus resultados ya ordenados se mezclan con una mezcla de k vías hasta completar la página.
+ * El coste de la mezcla es {@code O(límite · log N)}; cada fragmento recorre índices N veces más pequeños.
+ * </p>
+ * <p>
+ * <b>Límites.</b> ObjectDB no admite referencias entre ficheros, así que la capa cubre el catálogo (películas
+ * y copias) pero no los usuarios: un alquiler ({@code User.copiaAsignada}) no puede apuntar a una copia de otro
+ * fragmento, y los cambios incrementales ({@link PeliculaRepository#findCambiosDesde(long)}), la caché del
+ * catálogo y el índice de búsqueda siguen trabajando sobre la base de datos principal. Tampoco hay
+ * transacciones entre fragmentos: cada escritura afecta a un único fragmento. El número de fragmentos no se
+ * puede cambiar una vez creados (los IDs globales dependen de él) y los IDs locales deben ser menores que
+ * {@code Integer.MAX_VALUE / N}. Las entidades devueltas llevan el ID global y están desvinculadas;
+ * su colección {@code copias} no se carga.
+ * </p>
+ */
+public final class CatalogoFragmentado implements AutoCloseable {
+
+    private static final String UNIDAD_PERSISTENCIA = "objectdbPU";
+
+    private final List<EntityManagerFactory> fragmentos;
+    private final AtomicInteger turno = new AtomicInteger();
+
+    /**
+     * Abre un catálogo con un fragmento por URL de ObjectDB. El orden de las URL fija el número de cada
+     * fragmento y no debe cambiar entre ejecuciones.
+     *
+     * @param urls Las URL de los fragmentos (al menos una).
+     * @throws IllegalArgumentException Si no se indica ninguna URL.
+     */
+    public CatalogoFragmentado(List<String> urls) {
+        if (urls.isEmpty()) throw new IllegalArgumentException("Se necesita al menos un fragmento.");
+        ConfiguracionConexion conexion = ConfiguracionConexion.cargar();
+        List<EntityManagerFactory> factorias = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            Map<String, String> propiedades = new ConfiguracionConexion(conexion.modo(), url,
+                    conexion.usuario(), conexion.clave(), conexion.puerto()).propiedadesJpa();
+            factorias.add(Persistence.createEntityManagerFactory(UNIDAD_PERSISTENCIA, propiedades));
+        }
+        this.fragmentos = List.copyOf(factorias);
+    }
+
+    /**
+     * Abre {@code n} fragmentos junto a la base de datos configurada: para {@code objectdb:db/ad.odb}
+     * son {@code db/ad-0.odb}, {@code db/ad-1.odb}...
+     *
+     * @param n El número de fragmentos.
+     * @return El catálogo fragmentado.
+     */
+    public static CatalogoFragmentado abrir(int n) {
+        String base = ConfiguracionConexion.cargar().url();
+        String sinExtension = base.endsWith(".odb") ? base.substring(0, base.length() - 4) : base;
+        List<String> urls = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            urls.add(sinExtension + "-" + i + ".odb");
+        }
+        return new CatalogoFragmentado(urls);
+    }
+
+    /**
+     * @return El número de fragmentos.
+     */
+    public int getFragmentos() {
+        return fragmentos.size();
+    }
+
+    /**
+     * Guarda una película: las nuevas van al siguiente fragmento por turnos y las existentes a su fragmento.
+     *
+     * @param pelicula La película; al volver, si era nueva, tiene asignado su ID global (y sus copias, que se
+     *                 guardan en cascada, también). De una película existente solo se actualizan sus campos.
+     * @return La misma película.
+     */
+    public Pelicula guardar(Pelicula pelicula) {
+        if (pelicula.getId() == null) {
+            int fragmento = Math.floorMod(turno.getAndIncrement(), fragmentos.size());
+            enTransaccion(fragmento, em -> {
+                em.persist(pelicula);
+                return null;
+            });
+            aGlobal(pelicula, fragmento);
+            return pelicula;
+        }
+        int global = pelicula.getId();
+        int fragmento = fragmentoDe(global);
+        // Solo se actualiza la película: sus copias llevan IDs globales y el merge en cascada las confundiría
+        Set<CopiaPelicula> copias = pelicula.getCopias();
+        pelicula.setId(local(global));
+        pelicula.setCopias(null);
+        try {
+            enTransaccion(fragmento, em -> em.merge(pelicula));
+        } finally {
+            pelicula.setId(global);
+            pelicula.setCopias(copias);
+        }
+        return pelicula;
+    }
+
+    /**
+     * Guarda muchas películas nuevas repartidas por turnos, con una transacción por fragmento en paralelo.
+     *
+     * @param peliculas Las películas nuevas (sin ID), con sus copias si las tienen; al volver tienen asignado
+     *                  su ID global, igual que sus copias.
+     * @return Las mismas películas.
+     */
+    public List<Pelicula> guardarTodas(List<Pelicula> peliculas) {
+        List<List<Pelicula>> reparto = new ArrayList<>(fragmentos.size());
+        for (int i = 0; i < fragmentos.size(); i++) reparto.add(new ArrayList<>());
+        for (Pelicula p : peliculas) {
+            reparto.get(Math.floorMod(turno.getAndIncrement(), fragmentos.size())).add(p);
+        }
+        enTodos(fragmento -> enTransaccion(fragmento, em -> {
+            for (Pelicula p : reparto.get(fragmento)) em.persist(p);
+            return null;
+        }));
+        for (int fragmento = 0; fragmento < reparto.size(); fragmento++) {
+            for (Pelicula p : reparto.get(fragmento)) aGlobal(p, fragmento);
+        }
+        return peliculas;
+    }
+
+    /**
+     * Guarda copias nuevas de una película en el fragmento de la película.
+     *
+     * @param idPelicula El ID global de la película.
+     * @param copias     Las copias nuevas; se asocian a la película y, al volver, tienen su ID global.
+     * @return Las mismas copias.
+     * @throws IllegalArgumentException Si la película no existe.
+     */
+    public List<CopiaPelicula> guardarCopias(Integer idPelicula, List<CopiaPelicula> copias) {
+        int fragmento = fragmentoDe(idPelicula);
+        enTransaccion(fragmento, em -> {
+            Pelicula pelicula = em.find(Pelicula.class, local(idPelicula));
+            if (pelicula == null) throw new IllegalArgumentException("No existe la película " + idPelicula);
+            for (CopiaPelicula copia : copias) {
+                copia.setPelicula(pelicula);
+                // Su ultimaModificacion basta para que el refresco incremental vea la nueva disponibilidad
+                em.persist(copia);
+            }
+            return null;
+        });
+        for (CopiaPelicula copia : copias) copia.setId(global(copia.getId(), fragmento));
+        return copias;
+    }
+
+    /**
+     * Busca una película por su ID global, consultando solo su fragmento.
+     *
+     * @param id El ID global.
+     * @return La película, desvinculada y con el ID global.
+     */
+    public Optional<Pelicula> findById(Integer id) {
+        Pelicula pelicula = leer(fragmentoDe(id), em -> em.find(Pelicula.class, local(id)));
+        if (pelicula != null) pelicula.setId(id);
+        return Optional.ofNullable(pelicula);
+    }
+
+    /**
+     * Elimina una película y sus copias de su fragmento.
+     *
+     * @param id El ID global de la película.
+     * @return {@code true} si existía.
+     */
+    public boolean eliminar(Integer id) {
+        return enTransaccion(fragmentoDe(id), em -> {
+            Pelicula pelicula = em.find(Pelicula.class, local(id));
+            if (pelicula == null) return false;
+            em.createQuery("DELETE FROM CopiaPelicula c WHERE c.pelicula = :p").setParameter("p", pelicula).executeUpdate();
+            em.remove(pelicula);
+            return true;
+        });
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo, filtrada y ordenada, consultando todos los fragmentos
+     * en paralelo y mezclando sus resultados. Equivale a
+     * {@link PeliculaRepository#findResumenPage(OrdenCatalogo, boolean, FiltroCatalogo, PeliculaResumen, int)}
+     * sobre la unión de los fragmentos.
+     *
+     * @param orden      El campo por el que ordenar.
+     * @param ascendente {@code true} para orden ascendente, {@code false} para descendente.
+     * @param filtro     El filtro a aplicar ({@link FiltroCatalogo#NINGUNO} para no filtrar).
+     * @param despuesDe  El último resumen de la página anterior, o {@code null} para la primera página.
+     * @param limit      El número máximo de resúmenes a devolver.
+     * @return Los resúmenes de la página, con IDs globales, en el orden indicado.
+     */
+    public List<PeliculaResumen> findResumenPage(OrdenCatalogo orden, boolean ascendente, FiltroCatalogo filtro,
+                                                 PeliculaResumen despuesDe, int limit) {
+        List<List<PeliculaResumen>> parciales = enTodos(fragmento -> leer(fragmento, em -> {
+            List<PeliculaResumen> filas = PeliculaRepository.leerPagina(em, PeliculaRepository.SELECCION_RESUMEN,
+                    PeliculaResumen.class, orden, ascendente, filtro,
+                    despuesDe == null ? null : orden.valorDe(despuesDe),
+                    despuesDe == null ? null : cursorLocal(despuesDe.id(), fragmento, fragmentos.size(), ascendente), limit);
+            List<PeliculaResumen> globales = new ArrayList<>(filas.size());
+            for (PeliculaResumen r : filas) {
+                globales.add(new PeliculaResumen(global(r.id(), fragmento), r.titulo(), r.genero(), r.año(), r.imageUrl()));
+            }
+            return globales;
+        }));
+        return mezclar(parciales, orden.comparador(ascendente), limit);
+    }
+
+    /**
+     * Obtiene los resúmenes de varias películas por ID global, con una consulta por fragmento implicado.
+     *
+     * @param ids Los IDs globales.
+     * @return Los resúmenes de las que existen, sin un orden concreto.
+     */
+    public List<PeliculaResumen> findResumenesById(Collection<Integer> ids) {
+        Map<Integer, List<Integer>> porFragmento = agruparLocales(ids);
+        List<PeliculaResumen> resultado = new ArrayList<>();
+        for (List<PeliculaResumen> parcial : enFragmentos(porFragmento.keySet(), fragmento -> leer(fragmento, em -> {
+            List<PeliculaResumen> globales = new ArrayList<>();
+            for (PeliculaResumen r : em.createQuery("SELECT " + PeliculaRepository.SELECCION_RESUMEN
+                            + " FROM Pelicula p WHERE p.id IN :ids", PeliculaResumen.class)
+                    .setParameter("ids", porFragmento.get(fragmento))
+                    .getResultList()) {
+                globales.add(new PeliculaResumen(global(r.id(), fragmento), r.titulo(), r.genero(), r.año(), r.imageUrl()));
+            }
+            return globales;
+        }))) {
+            resultado.addAll(parcial);
+        }
+        return resultado;
+    }
+
+    /**
+     * Cuenta las copias libres y alquiladas de varias películas, con una consulta agregada por fragmento.
+     *
+     * @param idsPeliculas Los IDs globales de las películas.
+     * @return La disponibilidad por ID global; las películas sin copias no aparecen.
+     */
+    public Map<Integer, Disponibilidad> contarDisponibilidad(Collection<Integer> idsPeliculas) {
+        Map<Integer, List<Integer>> porFragmento = agruparLocales(idsPeliculas);
+        Map<Integer, Disponibilidad> disponibilidad = new HashMap<>();
+        List<Integer> implicados = new ArrayList<>(porFragmento.keySet());
+        List<List<Object[]>> parciales = enFragmentos(implicados, fragmento -> leer(fragmento, em -> em.createQuery(
+                        "SELECT c.pelicula.id, COUNT(c), SUM(CASE WHEN c.usuario IS NULL THEN 1 ELSE 0 END) " +
+                                "FROM CopiaPelicula c WHERE c.pelicula.id IN :ids GROUP BY c.pelicula.id", Object[].class)
+                .setParameter("ids", porFragmento.get(fragmento))
+                .getResultList()));
+        for (int i = 0; i < implicados.size(); i++) {
+            for (Object[] fila : parciales.get(i)) {
+                long total = ((Number) fila[1]).longValue();
+                long libres = ((Number) fila[2]).longValue();
+                disponibilidad.put(global((Integer) fila[0], implicados.get(i)), new Disponibilidad(libres, total - libres));
+            }
+        }
+        return disponibilidad;
+    }
+
+    /**
+     * @return El número total de películas, sumando los fragmentos.
+     */
+    public long count() {
+        long total = 0;
+        for (Long parcial : enTodos(fragmento -> leer(fragmento,
+                em -> em.createQuery("SELECT COUNT(p) FROM Pelicula p", Long.class).getSingleResult()))) {
+            total += parcial;
+        }
+        return total;
+    }
+
+    /**
+     * Cierra las factorías de todos los fragmentos.
+     */
+    @Override
+    public void close() {
+        for (EntityManagerFactory factoria : fragmentos) {
+            if (factoria.isOpen()) factoria.close();
+        }
+    }
+
+    /**
+     * Mezcla listas ya ordenadas con una cola de prioridad que guarda la siguiente fila de cada lista.
+     *
+     * @param listas     Las listas ordenadas según {@code comparador}.
+     * @param comparador El orden de las listas.
+     * @param limite     El número máximo de filas del resultado.
+     * @param <T>        El tipo de las filas.
+     * @return Las primeras {@code limite} filas de la unión, en orden.
+     */
+    static <T> List<T> mezclar(List<List<T>> listas, Comparator<? super T> comparador, int limite) {
+        // Cada entrada es {lista, posición}; se compara por la fila a la que apunta
+        PriorityQueue<int[]> cola = new PriorityQueue<>(Math.max(1, listas.size()),
+                (a, b) -> comparador.compare(listas.get(a[0]).get(a[1]), listas.get(b[0]).get(b[1])));
+        for (int i = 0; i < listas.size(); i++) {
+            if (!listas.get(i).isEmpty()) cola.add(new int[]{i, 0});
+        }
+        List<T> resultado = new ArrayList<>(limite);
+        while (resultado.size() < limite && !cola.isEmpty()) {
+            int[] cabeza = cola.poll();
+            List<T> lista = listas.get(cabeza[0]);
+            resultado.add(lista.get(cabeza[1]));
+            if (++cabeza[1] < lista.size()) cola.add(cabeza);
+        }
+        return resultado;
+    }
+
+    private int fragmentoDe(int global) {
+        return Math.floorMod(global, fragmentos.size());
+    }
+
+    private int local(int global) {
+        return Math.floorDiv(global, fragmentos.size());
+    }
+
+    private int global(int local, int fragmento) {
+        return Math.addExact(Math.multiplyExact(local, fragmentos.size()), fragmento);
+    }
+
+    // Pasa a IDs globales una película recién guardada y las copias guardadas con ella en cascada
+    private void aGlobal(Pelicula pelicula, int fragmento) {
+        pelicula.setId(global(pelicula.getId(), fragmento));
+        if (pelicula.getCopias() != null) {
+            for (CopiaPelicula copia : pelicula.getCopias()) copia.setId(global(copia.getId(), fragmento));
+        }
+    }
+
+    /**
+     * Traduce el ID global del cursor al ID local equivalente en un fragmento: el que deja a un lado del
+     * cursor exactamente las filas del fragmento cuyo ID global queda a ese lado.
+     *
+     * @param idGlobal   El ID global de la última fila de la página anterior.
+     * @param fragmento  El número del fragmento.
+     * @param n          El número de fragmentos.
+     * @param ascendente Si el orden es ascendente.
+     * @return El ID local que hace de cursor en el fragmento.
+     */
+    static int cursorLocal(int idGlobal, int fragmento, int n, boolean ascendente) {
+        // local * n + fragmento > global  <=>  local > floor((global - fragmento) / n)
+        // local * n + fragmento < global  <=>  local < ceil((global - fragmento) / n)
+        return ascendente ? Math.floorDiv(idGlobal - fragmento, n) : Math.ceilDiv(idGlobal - fragmento, n);
+    }
+
+    private Map<Integer, List<Integer>> agruparLocales(Collection<Integer> ids) {
+        Map<Integer, List<Integer>> porFragmento = new HashMap<>();
+        for (Integer id : ids) {
+            porFragmento.computeIfAbsent(fragmentoDe(id), f -> new ArrayList<>()).add(local(id));
+        }
+        return porFragmento;
+    }
+
+    private <R> List<R> enTodos(Function<Integer, R> consulta) {
+        List<Integer> todos = new ArrayList<>(fragmentos.size());
+        for (int i = 0; i < fragmentos.size(); i++) todos.add(i);
+        return enFragmentos(todos, consulta);
+    }
+
+    /**
+     * Ejecuta una operación en varios fragmentos a la vez, cada uno en un hilo virtual.
+     *
+     * @return Los resultados, en el orden de {@code implicados}.
+     */
+    private <R> List<R> enFragmentos(Collection<Integer> implicados, Function<Integer, R> consulta) {
+        if (implicados.size() == 1) return List.of(consulta.apply(implicados.iterator().next()));
+        List<CompletableFuture<R>> tareas = new ArrayList<>(implicados.size());
+        for (Integer fragmento : implicados) {
+            tareas.add(AsyncUtil.supply(() -> consulta.apply(fragmento)));
+        }
+        List<R> resultados = new ArrayList<>(tareas.size());
+        for (CompletableFuture<R> tarea : tareas) {
+            try {
+                resultados.add(tarea.join());
+            } catch (RuntimeException e) {
+                Throwable causa = AsyncUtil.causa(e);
+                throw causa instanceof RuntimeException r ? r : e;
+            }
+        }
+        return resultados;
+    }
+
+    // Los EntityManagers de los fragmentos cuentan en las estadísticas y en el registro de consultas lentas
+    // igual que los de la base de datos principal
+    private <R> R leer(int fragmento, Function<EntityManager, R> trabajo) {
+        return UnitOfWork.readOn(fragmentos.get(fragmento), trabajo);
+    }
+
+    private <R> R enTransaccion(int fragmento, Function<EntityManager, R> trabajo) {
+        return UnitOfWork.inTransactionOn(fragmentos.get(fragmento), trabajo);
+    }
+}
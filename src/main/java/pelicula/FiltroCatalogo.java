@@ -0,0 +1,70 @@
+package pelicula;
+
+import jakarta.persistence.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro del catálogo aplicado en la base de datos al consultar las páginas del listado.
+ * <p>
+ * Cada criterio es opcional ({@code null} = sin filtrar por él) y se traduce en una condición JPQL
+ * sobre el alias {@code p}, que se combina con el cursor de la paginación por clave. Los campos
+ * filtrados tienen índice en {@link Pelicula}, así que el filtro no obliga a recorrer el catálogo.
+ * </p>
+ *
+ * @param genero   El género exacto, o {@code null} para todos.
+ * @param añoDesde El año mínimo (incluido), o {@code null}.
+ * @param añoHasta El año máximo (incluido), o {@code null}.
+ */
+public record FiltroCatalogo(String genero, Integer añoDesde, Integer añoHasta) {
+
+    /**
+     * Filtro que no excluye ninguna película.
+     */
+    public static final FiltroCatalogo NINGUNO = new FiltroCatalogo(null, null, null);
+
+    /**
+     * @return {@code true} si el filtro no tiene ningún criterio.
+     */
+    public boolean isVacio() {
+        return genero == null && añoDesde == null && añoHasta == null;
+    }
+
+    /**
+     * Comprueba en memoria si un resumen cumple el filtro, con el mismo criterio que la consulta.
+     *
+     * @param resumen El resumen de la película.
+     * @return {@code true} si la película pasa el filtro.
+     */
+    public boolean acepta(PeliculaResumen resumen) {
+        if (genero != null && !genero.equals(resumen.genero())) return false;
+        if (añoDesde != null && (resumen.año() == null || resumen.año() < añoDesde)) return false;
+        if (añoHasta != null && (resumen.año() == null || resumen.año() > añoHasta)) return false;
+        return true;
+    }
+
+    /**
+     * Condiciones JPQL del filtro sobre el alias {@code p}, para unir con {@code AND}.
+     *
+     * @return Las condiciones; vacía si el filtro no tiene criterios.
+     */
+    List<String> condiciones() {
+        List<String> condiciones = new ArrayList<>();
+        if (genero != null) condiciones.add("p.genero = :filtroGenero");
+        if (añoDesde != null) condiciones.add("p.año >= :filtroAñoDesde");
+        if (añoHasta != null) condiciones.add("p.año <= :filtroAñoHasta");
+        return condiciones;
+    }
+
+    /**
+     * Asigna a la consulta los parámetros de las condiciones de {@link #condiciones()}.
+     *
+     * @param query La consulta construida con esas condiciones.
+     */
+    void asignarParametros(Query query) {
+        if (genero != null) query.setParameter("filtroGenero", genero);
+        if (añoDesde != null) query.setParameter("filtroAñoDesde", añoDesde);
+        if (añoHasta != null) query.setParameter("filtroAñoHasta", añoHasta);
+    }
+}
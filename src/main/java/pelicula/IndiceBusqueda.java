@@ -0,0 +1,585 @@
+package pelicula;
+
+import utils.AsyncUtil;
+import utils.Metricas;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria para la búsqueda de texto completo en el catálogo, compartido por toda la aplicación.
+ * <p>
+ * Indexa el título, el director y la descripción de cada {@link Pelicula}. El texto se normaliza (minúsculas
+ * y sin tildes, de modo que "accion" encuentra "Acción") y se divide en palabras; cada palabra guarda la
+ * lista ordenada de documentos y campos donde aparece. Para tolerar erratas, el vocabulario tiene además
+ * un índice de trigramas: una palabra que no existe se sustituye por las del vocabulario a distancia de
+ * edición 1 o 2. La última palabra de la consulta también se busca como prefijo, para buscar mientras se escribe.
+ * </p>
+ * <p>
+ * Una película encaja si contiene todas las palabras de la consulta. La búsqueda recorre solo los documentos
+ * de la palabra menos frecuente y comprueba las demás por búsqueda binaria; la puntuación suma, por palabra,
+ * el peso del campo (título &gt; director &gt; descripción) por su rareza (IDF), y se devuelven los IDs de
+ * las mejores en orden.
+ * </p>
+ * <p>
+ * Se construye en segundo plano recorriendo el catálogo ({@link #construirEnSegundoPlano()}) y se mantiene
+ * al día tras confirmar cada alta, modificación o borrado. Como {@link PeliculaCache}, es una pista y no la
+ * fuente de verdad: quien lo usa carga los resultados de la base de datos, que descarta las películas que
+ * ya no existan. Modificar una película no reescribe sus listas: se le asigna un documento nuevo y el
+ * anterior se marca como eliminado, y las listas se compactan cuando los eliminados son muchos.
+ * </p>
+ */
+public final class IndiceBusqueda {
+
+    /**
+     * Número de resultados devueltos si no se indica otro límite.
+     */
+    public static final int RESULTADOS_POR_DEFECTO = 50;
+
+    private static final IndiceBusqueda INSTANCIA = new IndiceBusqueda();
+
+    // Campos indexados (los dos bits bajos de cada entrada de las listas) y su peso en la puntuación
+    private static final int TITULO = 0;
+    private static final int DIRECTOR = 1;
+    private static final int DESCRIPCION = 2;
+    private static final float[] PESO_CAMPO = {3f, 2f, 1f};
+
+    // Peso de las palabras que no son la de la consulta sino una ampliación suya
+    private static final float PESO_PREFIJO = 0.8f;
+    private static final float PESO_APROXIMADO = 0.5f;
+    // Máximo de palabras del vocabulario en que se amplía cada palabra de la consulta
+    private static final int MAX_AMPLIACIONES = 32;
+    private static final int MAX_PREFIJOS_REVISADOS = 20_000;
+
+    private static final int TAMAÑO_BLOQUE_CONSTRUCCION = 1000;
+    private static final int MIN_ELIMINADOS_COMPACTAR = 10_000;
+
+    private static final Pattern SEPARADOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    // Palabras demasiado frecuentes para distinguir una película de otra
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "de", "la", "el", "los", "las", "y", "en", "un", "una", "del", "al", "que", "por", "con", "su", "se", "lo",
+            "the", "of", "and", "an", "in", "to", "is", "on");
+
+    private enum Estado { VACIO, CONSTRUYENDO, LISTO }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Vocabulario: palabra -> ID (ordenado, para los prefijos) y, por ID, la palabra y su lista de entradas (doc << 2 | campo)
+    private final NavigableMap<String, Integer> terminos = new TreeMap<>();
+    private final List<String> textoTermino = new ArrayList<>();
+    private final List<ListaEnteros> ocurrencias = new ArrayList<>();
+    // Trigrama -> IDs de las palabras que lo contienen, para las búsquedas aproximadas
+    private final Map<String, ListaEnteros> trigramas = new HashMap<>();
+
+    // Documento -> ID de película (-1 si se eliminó) y ID de película -> su documento actual
+    private final ListaEnteros peliculaDeDoc = new ListaEnteros();
+    private final Map<Integer, Integer> docDePelicula = new HashMap<>();
+    private int docsEliminados = 0;
+
+    private volatile Estado estado = Estado.VACIO;
+    // Borrados recibidos durante la construcción, para que el recorrido no vuelva a añadirlos
+    private final Set<Integer> borradasDuranteConstruccion = new HashSet<>();
+
+    // Visible en el paquete para que las pruebas usen índices propios en lugar del compartido
+    IndiceBusqueda() {}
+
+    /**
+     * Obtiene el índice compartido.
+     *
+     * @return La instancia única del índice.
+     */
+    public static IndiceBusqueda getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Construye el índice en segundo plano recorriendo el catálogo por bloques, si no se ha construido ya.
+     * <p>
+     * Mientras se construye se puede buscar (con resultados parciales) y se aplican las altas, cambios y
+     * borrados que lleguen: el recorrido no sobrescribe las películas ya indexadas ni añade las borradas.
+     * </p>
+     *
+     * @return Un {@link CompletableFuture} que se completa al terminar la construcción.
+     */
+    public synchronized CompletableFuture<Void> construirEnSegundoPlano() {
+        if (estado != Estado.VACIO) return CompletableFuture.completedFuture(null);
+        estado = Estado.CONSTRUYENDO;
+        return AsyncUtil.run(() -> construir(accion ->
+                Metricas.instrumentar(new PeliculaRepository()).streamAll(TAMAÑO_BLOQUE_CONSTRUCCION, accion)));
+    }
+
+    /**
+     * Construye el índice en el hilo llamante con las películas indicadas en lugar de recorrer la base de datos.
+     *
+     * @param peliculas Las películas del catálogo.
+     */
+    synchronized void construirCon(Iterable<Pelicula> peliculas) {
+        if (estado != Estado.VACIO) return;
+        estado = Estado.CONSTRUYENDO;
+        construir(peliculas::forEach);
+    }
+
+    private void construir(Consumer<Consumer<Pelicula>> recorrido) {
+        long inicio = System.nanoTime();
+        try {
+            recorrido.accept(this::indexarSiAusente);
+            int peliculas;
+            int palabras;
+            lock.writeLock().lock();
+            try {
+                borradasDuranteConstruccion.clear();
+                estado = Estado.LISTO;
+                peliculas = docDePelicula.size();
+                palabras = terminos.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.printf("Índice de búsqueda construido: %d películas, %d palabras en %d ms%n",
+                    peliculas, palabras, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            System.err.println("Error al construir el índice de búsqueda: " + e.getMessage());
+            clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Añade o reemplaza una película en el índice.
+     * <p>
+     * Si el índice no se ha empezado a construir no hace nada: la construcción recorrerá la base de datos y
+     * la encontrará. Así los procesos que escriben sin buscar (p. ej. el importador del catálogo) no
+     * acumulan en memoria un índice que nadie consulta.
+     * </p>
+     *
+     * @param pelicula La película, con su ID asignado.
+     */
+    public void indexar(Pelicula pelicula) {
+        if (pelicula == null || pelicula.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            if (estado == Estado.VACIO) return;
+            quitar(pelicula.getId());
+            añadir(pelicula);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita una película del índice. Como {@link #indexar(Pelicula)}, no hace nada si el índice está vacío.
+     *
+     * @param id El ID de la película.
+     */
+    public void eliminar(Integer id) {
+        if (id == null) return;
+        lock.writeLock().lock();
+        try {
+            if (estado == Estado.VACIO) return;
+            quitar(id);
+            if (estado == Estado.CONSTRUYENDO) borradasDuranteConstruccion.add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las películas que contienen todas las palabras del texto, de mejor a peor puntuación.
+     *
+     * @param texto  El texto de búsqueda.
+     * @param limite El número máximo de resultados.
+     * @return Los IDs de las películas encontradas, ordenados por relevancia.
+     */
+    public List<Integer> buscar(String texto, int limite) {
+        List<String> palabras = new ArrayList<>(new LinkedHashSet<>(tokens(texto)));
+        if (palabras.isEmpty() || limite <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            List<List<Ampliacion>> porPalabra = new ArrayList<>();
+            for (int i = 0; i < palabras.size(); i++) {
+                List<Ampliacion> ampliaciones = ampliar(palabras.get(i), i == palabras.size() - 1);
+                if (ampliaciones.isEmpty()) return List.of();
+                porPalabra.add(ampliaciones);
+            }
+            // La palabra con menos apariciones decide qué documentos se revisan
+            porPalabra.sort(Comparator.comparingLong(IndiceBusqueda::apariciones));
+
+            PriorityQueue<Candidato> mejores = new PriorityQueue<>(Comparator.comparingDouble(Candidato::puntuacion));
+            for (int doc : documentos(porPalabra.get(0))) {
+                if (peliculaDeDoc.get(doc) < 0) continue;
+                float puntuacion = 0;
+                for (List<Ampliacion> ampliaciones : porPalabra) {
+                    float p = puntuar(ampliaciones, doc);
+                    if (p == 0) {
+                        puntuacion = 0;
+                        break;
+                    }
+                    puntuacion += p;
+                }
+                if (puntuacion == 0) continue;
+                if (mejores.size() < limite) {
+                    mejores.add(new Candidato(doc, puntuacion));
+                } else if (puntuacion > mejores.peek().puntuacion()) {
+                    mejores.poll();
+                    mejores.add(new Candidato(doc, puntuacion));
+                }
+            }
+
+            List<Candidato> ordenados = new ArrayList<>(mejores);
+            ordenados.sort(Comparator.comparingDouble(Candidato::puntuacion).reversed());
+            return ordenados.stream().map(c -> peliculaDeDoc.get(c.doc())).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code true} si el índice ya contiene todo el catálogo.
+     */
+    public boolean isListo() {
+        return estado == Estado.LISTO;
+    }
+
+    /**
+     * @return El número de películas indexadas.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docDePelicula.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Vacía el índice; habrá que volver a construirlo.
+     */
+    public synchronized void clear() {
+        lock.writeLock().lock();
+        try {
+            terminos.clear();
+            textoTermino.clear();
+            ocurrencias.clear();
+            trigramas.clear();
+            peliculaDeDoc.clear();
+            docDePelicula.clear();
+            docsEliminados = 0;
+            borradasDuranteConstruccion.clear();
+            estado = Estado.VACIO;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Normaliza un texto para indexarlo o buscarlo: minúsculas y sin tildes ni diacríticos.
+     *
+     * @param texto El texto original.
+     * @return El texto normalizado.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) return "";
+        return MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> tokens(String texto) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARADOR.split(normalizar(texto))) {
+            if (!token.isEmpty() && !PALABRAS_VACIAS.contains(token)) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private void indexarSiAusente(Pelicula pelicula) {
+        lock.writeLock().lock();
+        try {
+            // Lo indexado tras confirmar una escritura es más reciente que lo que lee el recorrido
+            if (!docDePelicula.containsKey(pelicula.getId()) && !borradasDuranteConstruccion.contains(pelicula.getId())) {
+                añadir(pelicula);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void añadir(Pelicula pelicula) {
+        int doc = peliculaDeDoc.size();
+        peliculaDeDoc.add(pelicula.getId());
+        docDePelicula.put(pelicula.getId(), doc);
+        // Los documentos se numeran en orden creciente, por lo que las listas quedan siempre ordenadas
+        añadirCampo(doc, TITULO, pelicula.getTitulo());
+        añadirCampo(doc, DIRECTOR, pelicula.getDirector());
+        añadirCampo(doc, DESCRIPCION, pelicula.getDescripcion());
+    }
+
+    private void añadirCampo(int doc, int campo, String texto) {
+        for (String token : new LinkedHashSet<>(tokens(texto))) {
+            ocurrencias.get(termino(token)).add(doc << 2 | campo);
+        }
+    }
+
+    private int termino(String token) {
+        Integer id = terminos.get(token);
+        if (id != null) return id;
+        int nuevo = textoTermino.size();
+        terminos.put(token, nuevo);
+        textoTermino.add(token);
+        ocurrencias.add(new ListaEnteros());
+        for (String trigrama : trigramasDe(token)) {
+            trigramas.computeIfAbsent(trigrama, t -> new ListaEnteros()).add(nuevo);
+        }
+        return nuevo;
+    }
+
+    private void quitar(Integer id) {
+        Integer doc = docDePelicula.remove(id);
+        if (doc == null) return;
+        peliculaDeDoc.set(doc, -1);
+        docsEliminados++;
+        if (docsEliminados >= MIN_ELIMINADOS_COMPACTAR && docsEliminados > docDePelicula.size() / 4) {
+            compactar();
+        }
+    }
+
+    private void compactar() {
+        for (ListaEnteros lista : ocurrencias) {
+            lista.eliminarSi(entrada -> peliculaDeDoc.get(entrada >>> 2) < 0);
+        }
+        docsEliminados = 0;
+    }
+
+    /**
+     * Una palabra del vocabulario que se busca en lugar de (o además de) una palabra de la consulta.
+     */
+    private static final class Ampliacion {
+        final ListaEnteros ocurrencias;
+        final float peso;
+        // Los documentos se comprueban en orden creciente: la posición en la lista solo avanza
+        int cursor;
+
+        Ampliacion(ListaEnteros ocurrencias, float peso) {
+            this.ocurrencias = ocurrencias;
+            this.peso = peso;
+        }
+    }
+
+    private record Candidato(int doc, float puntuacion) {}
+
+    private List<Ampliacion> ampliar(String palabra, boolean prefijo) {
+        List<Ampliacion> ampliaciones = new ArrayList<>();
+        Integer exacta = terminos.get(palabra);
+        if (exacta != null) ampliaciones.add(ampliacion(exacta, 1f));
+
+        if (prefijo && palabra.length() >= 2) {
+            // Entre las que empiezan igual, las más frecuentes
+            PriorityQueue<Integer> frecuentes = new PriorityQueue<>(Comparator.comparingInt(id -> ocurrencias.get(id).size()));
+            int revisadas = 0;
+            for (Integer id : terminos.subMap(palabra, false, palabra + Character.MAX_VALUE, false).values()) {
+                frecuentes.add(id);
+                if (frecuentes.size() > MAX_AMPLIACIONES) frecuentes.poll();
+                if (++revisadas == MAX_PREFIJOS_REVISADOS) break;
+            }
+            for (Integer id : frecuentes) {
+                ampliaciones.add(ampliacion(id, PESO_PREFIJO));
+            }
+        }
+
+        if (exacta == null && palabra.length() >= 4) {
+            for (Integer id : aproximadas(palabra)) {
+                ampliaciones.add(ampliacion(id, PESO_APROXIMADO));
+            }
+        }
+        return ampliaciones;
+    }
+
+    private Ampliacion ampliacion(int termino, float peso) {
+        ListaEnteros lista = ocurrencias.get(termino);
+        double idf = Math.log(1 + (double) Math.max(1, docDePelicula.size()) / Math.max(1, lista.size()));
+        return new Ampliacion(lista, (float) (peso * idf));
+    }
+
+    /**
+     * Palabras del vocabulario a distancia de edición 1 (2 si la palabra tiene más de 5 letras).
+     * Cada edición cambia como mucho tres trigramas, así que solo se comprueban las que comparten
+     * suficientes trigramas con la palabra buscada.
+     */
+    private List<Integer> aproximadas(String palabra) {
+        int distanciaMaxima = palabra.length() > 5 ? 2 : 1;
+        List<String> propios = trigramasDe(palabra);
+        int minimoComunes = Math.max(1, propios.size() - 3 * distanciaMaxima);
+
+        Map<Integer, Integer> comunes = new HashMap<>();
+        for (String trigrama : propios) {
+            ListaEnteros ids = trigramas.get(trigrama);
+            if (ids == null) continue;
+            for (int i = 0; i < ids.size(); i++) {
+                comunes.merge(ids.get(i), 1, Integer::sum);
+            }
+        }
+        List<Integer> encontradas = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : comunes.entrySet()) {
+            if (e.getValue() < minimoComunes) continue;
+            String candidata = textoTermino.get(e.getKey());
+            if (Math.abs(candidata.length() - palabra.length()) > distanciaMaxima) continue;
+            if (distanciaEdicion(palabra, candidata, distanciaMaxima) <= distanciaMaxima) encontradas.add(e.getKey());
+        }
+        encontradas.sort(Comparator.comparingInt((Integer id) -> ocurrencias.get(id).size()).reversed());
+        return encontradas.subList(0, Math.min(encontradas.size(), MAX_AMPLIACIONES));
+    }
+
+    private static List<String> trigramasDe(String palabra) {
+        String marcada = "$" + palabra + "$";
+        List<String> resultado = new ArrayList<>(marcada.length() - 2);
+        for (int i = 0; i + 3 <= marcada.length(); i++) {
+            resultado.add(marcada.substring(i, i + 3));
+        }
+        return resultado;
+    }
+
+    /**
+     * Distancia de Levenshtein, abandonando en cuanto una fila supera el máximo.
+     */
+    private static int distanciaEdicion(String a, String b, int maximo) {
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) anterior[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            int minimoFila = actual[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int coste = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                actual[j] = Math.min(Math.min(actual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + coste);
+                minimoFila = Math.min(minimoFila, actual[j]);
+            }
+            if (minimoFila > maximo) return maximo + 1;
+            int[] t = anterior;
+            anterior = actual;
+            actual = t;
+        }
+        return anterior[b.length()];
+    }
+
+    private static long apariciones(List<Ampliacion> ampliaciones) {
+        long total = 0;
+        for (Ampliacion a : ampliaciones) total += a.ocurrencias.size();
+        return total;
+    }
+
+    /**
+     * Documentos distintos de una palabra (la unión de sus ampliaciones), en orden creciente.
+     */
+    private static int[] documentos(List<Ampliacion> ampliaciones) {
+        ListaEnteros docs = new ListaEnteros();
+        for (Ampliacion a : ampliaciones) {
+            ListaEnteros lista = a.ocurrencias;
+            for (int i = 0; i < lista.size(); i++) docs.add(lista.get(i) >>> 2);
+        }
+        int[] ordenados = docs.toArray();
+        if (ampliaciones.size() > 1) Arrays.sort(ordenados);
+        int distintos = 0;
+        for (int i = 0; i < ordenados.length; i++) {
+            if (distintos == 0 || ordenados[distintos - 1] != ordenados[i]) ordenados[distintos++] = ordenados[i];
+        }
+        return Arrays.copyOf(ordenados, distintos);
+    }
+
+    /**
+     * Mejor puntuación de un documento para una palabra, o 0 si no la contiene.
+     * Debe llamarse con documentos crecientes.
+     */
+    private static float puntuar(List<Ampliacion> ampliaciones, int doc) {
+        float mejor = 0;
+        for (Ampliacion a : ampliaciones) {
+            ListaEnteros lista = a.ocurrencias;
+            a.cursor = lista.avanzar(a.cursor, doc << 2);
+            for (int i = a.cursor; i < lista.size() && lista.get(i) >>> 2 == doc; i++) {
+                mejor = Math.max(mejor, PESO_CAMPO[lista.get(i) & 3] * a.peso);
+            }
+        }
+        return mejor;
+    }
+
+    /**
+     * Lista de enteros primitivos que crece según se necesita, para no guardar millones de {@link Integer}.
+     */
+    private static final class ListaEnteros {
+        private int[] valores = new int[4];
+        private int tamaño;
+
+        void add(int valor) {
+            if (tamaño == valores.length) valores = Arrays.copyOf(valores, tamaño + (tamaño >> 1) + 1);
+            valores[tamaño++] = valor;
+        }
+
+        int get(int i) {
+            return valores[i];
+        }
+
+        void set(int i, int valor) {
+            valores[i] = valor;
+        }
+
+        int size() {
+            return tamaño;
+        }
+
+        void clear() {
+            valores = new int[4];
+            tamaño = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(valores, tamaño);
+        }
+
+        /**
+         * Posición del primer valor mayor o igual que la clave a partir de {@code desde} (la lista debe
+         * estar ordenada). Avanza a saltos crecientes y termina con una búsqueda binaria, así que recorrer
+         * la lista con claves crecientes cuesta lo que la distancia avanzada, no una búsqueda completa cada vez.
+         */
+        int avanzar(int desde, int clave) {
+            int salto = 1;
+            int hasta = desde;
+            while (hasta < tamaño && valores[hasta] < clave) {
+                desde = hasta + 1;
+                hasta += salto;
+                salto <<= 1;
+            }
+            hasta = Math.min(hasta, tamaño);
+            while (desde < hasta) {
+                int medio = (desde + hasta) >>> 1;
+                if (valores[medio] < clave) desde = medio + 1;
+                else hasta = medio;
+            }
+            return desde;
+        }
+
+        void eliminarSi(IntPredicate condicion) {
+            int quedan = 0;
+            for (int i = 0; i < tamaño; i++) {
+                if (!condicion.test(valores[i])) valores[quedan++] = valores[i];
+            }
+            tamaño = quedan;
+            valores = Arrays.copyOf(valores, Math.max(4, quedan));
+        }
+    }
+}
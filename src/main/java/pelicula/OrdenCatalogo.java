@@ -0,0 +1,87 @@
+package pelicula;
+
+import java.util.Comparator;
+
+/**
+ * Campos por los que se puede ordenar el catálogo de películas en las consultas paginadas.
+ * <p>
+ * Cada constante conoce el nombre del atributo JPQL correspondiente y cómo leer su valor
+ * de una {@link Pelicula} o de un {@link PeliculaResumen}, lo que permite construir el cursor (keyset) de la siguiente página
+ * a partir de la última fila recibida.
+ * </p>
+ */
+public enum OrdenCatalogo {
+    ID("id"),
+    TITULO("titulo"),
+    GENERO("genero"),
+    AÑO("año");
+
+    private final String campo;
+
+    OrdenCatalogo(String campo) {
+        this.campo = campo;
+    }
+
+    /**
+     * Obtiene el nombre del atributo de {@link Pelicula} usado en la consulta JPQL.
+     *
+     * @return El nombre del campo.
+     */
+    public String getCampo() {
+        return campo;
+    }
+
+    /**
+     * Extrae de la película el valor del campo de ordenación.
+     *
+     * @param pelicula La película de la que leer el valor.
+     * @return El valor del campo (puede ser {@code null}).
+     */
+    public Object valorDe(Pelicula pelicula) {
+        return switch (this) {
+            case ID -> pelicula.getId();
+            case TITULO -> pelicula.getTitulo();
+            case GENERO -> pelicula.getGenero();
+            case AÑO -> pelicula.getAño();
+        };
+    }
+
+    /**
+     * Extrae del resumen de una película el valor del campo de ordenación.
+     *
+     * @param resumen El resumen del que leer el valor.
+     * @return El valor del campo (puede ser {@code null}).
+     */
+    public Object valorDe(PeliculaResumen resumen) {
+        return switch (this) {
+            case ID -> resumen.id();
+            case TITULO -> resumen.titulo();
+            case GENERO -> resumen.genero();
+            case AÑO -> resumen.año();
+        };
+    }
+
+    /**
+     * Comparador con el mismo orden que las consultas paginadas: el campo y, como desempate, el ID.
+     * Las filas sin valor en el campo van al final en ambas direcciones, ordenadas por ID.
+     * Permite colocar en memoria una fila nueva o modificada entre las ya cargadas.
+     *
+     * @param ascendente {@code true} para orden ascendente, {@code false} para descendente.
+     * @return El comparador de resúmenes.
+     */
+    public Comparator<PeliculaResumen> comparador(boolean ascendente) {
+        Comparator<PeliculaResumen> porId = ascendente
+                ? Comparator.comparing(PeliculaResumen::id)
+                : Comparator.comparing(PeliculaResumen::id).reversed();
+        return switch (this) {
+            case ID -> porId;
+            case TITULO -> Comparator.comparing(PeliculaResumen::titulo, conNulosAlFinal(ascendente)).thenComparing(porId);
+            case GENERO -> Comparator.comparing(PeliculaResumen::genero, conNulosAlFinal(ascendente)).thenComparing(porId);
+            case AÑO -> Comparator.comparing(PeliculaResumen::año, conNulosAlFinal(ascendente)).thenComparing(porId);
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<T> conNulosAlFinal(boolean ascendente) {
+        return Comparator.nullsLast(ascendente ? Comparator.<T>naturalOrder() : Comparator.<T>reverseOrder());
+    }
+}
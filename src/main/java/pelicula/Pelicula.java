@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import copiaPelicula.CopiaPelicula;
 
+import javax.jdo.annotations.Index;
 import java.io.Serializable;
 import java.util.Set;
 
@@ -20,12 +21,16 @@ public class Pelicula implements Serializable {
     @Column(name = "id_pelicula")
     private Integer id;
 
+    // Índices para ordenar y filtrar el catálogo en la base de datos con paginación por clave
+    @Index
     @Column(name = "titulo")
     private String titulo;
 
+    @Index
     @Column(name = "genero")
     private String genero;
 
+    @Index
     @Column(name = "año")
     private Integer año;
 
@@ -44,6 +49,43 @@ public class Pelicula implements Serializable {
 
     private String image_url;
 
+    // Instante (ms) del último cambio, para el refresco incremental del catálogo; con índice para "cambiadas desde"
+    @Index
+    private long ultimaModificacion;
+
+    // Bloqueo optimista: guardar una copia obsoleta (editada por otro cliente mientras tanto) falla en lugar de pisarla
+    @Version
+    private long version;
+
+    /**
+     * Actualiza la marca de modificación cada vez que la película se inserta o se modifica.
+     */
+    @PrePersist
+    @PreUpdate
+    void marcarModificacion() {
+        ultimaModificacion = System.currentTimeMillis();
+    }
+
+    /**
+     * Crea una copia desvinculada con los mismos campos, para modificarla sin tocar la instancia original
+     * (p. ej. la de {@link PeliculaCache}). La colección {@code copias} no se copia: queda a {@code null}.
+     *
+     * @return La copia.
+     */
+    public Pelicula copiar() {
+        Pelicula copia = new Pelicula();
+        copia.id = id;
+        copia.titulo = titulo;
+        copia.genero = genero;
+        copia.año = año;
+        copia.descripcion = descripcion;
+        copia.director = director;
+        copia.image_url = image_url;
+        copia.ultimaModificacion = ultimaModificacion;
+        copia.version = version;
+        return copia;
+    }
+
     @Override
     public String toString() {
         // IMPORTANTE: Nunca incluir colecciones LAZY en toString() para evitar LazyInitializationException
@@ -0,0 +1,40 @@
+package pelicula;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import javax.jdo.annotations.Index;
+import java.io.Serializable;
+
+/**
+ * Marca de borrado (lápida) de una película.
+ * <p>
+ * Se guarda en la misma transacción que el borrado para que el refresco incremental del catálogo
+ * pueda saber qué películas han desaparecido desde la última consulta, ya que la propia película
+ * ya no existe para consultarla.
+ * </p>
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeliculaBorrada implements Serializable {
+
+    // El ID que tenía la película borrada
+    @Id
+    private Integer id;
+
+    // Instante (ms) del borrado; con índice para la consulta "borradas desde"
+    @Index
+    private long borradaEn;
+
+    @Override
+    public String toString() {
+        return "PeliculaBorrada{" +
+                "id=" + id +
+                ", borradaEn=" + borradaEn +
+                '}';
+    }
+}
@@ -0,0 +1,238 @@
+package pelicula;
+
+import session.ConfiguracionConexion;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché en memoria del catálogo de películas, indexada por {@link Pelicula#getId()}.
+ * <p>
+ * Es una caché LRU de tamaño acotado compartida por {@link PeliculaRepository} y {@code UserService}:
+ * las lecturas por ID pasan por ella (read-through) y las escrituras la actualizan o invalidan
+ * una vez confirmada la transacción. Lleva la cuenta de aciertos, fallos y desalojos.
+ * </p>
+ * <p>
+ * La capacidad se configura con la propiedad de sistema {@code catalogo.cache.capacidad}
+ * (por defecto {@value #CAPACIDAD_POR_DEFECTO} películas). La caché guarda y devuelve copias
+ * ({@link Pelicula#copiar()}): quien lee una película puede modificarla sin que el resto de lectores vean
+ * cambios sin guardar, y el estado cacheado solo cambia con {@link #put(Pelicula)} tras confirmar la escritura.
+ * </p>
+ * <p>
+ * En modo cliente/servidor la caché está desactivada por defecto: otros clientes pueden modificar o borrar
+ * películas en el servidor y esta caché no se enteraría. Se puede forzar con {@code -Dcatalogo.cache.activa}.
+ * Desactivada, las lecturas van siempre a la base de datos y las escrituras no guardan nada.
+ * </p>
+ * <p>
+ * Implementa {@link PeliculaCacheMXBean} para poder vigilar la tasa de aciertos por JMX.
+ * </p>
+ */
+public final class PeliculaCache implements PeliculaCacheMXBean {
+
+    /**
+     * Número máximo de películas en caché si no se indica otra capacidad.
+     */
+    public static final int CAPACIDAD_POR_DEFECTO = 10_000;
+
+    private static final PeliculaCache INSTANCIA =
+            new PeliculaCache(Integer.getInteger("catalogo.cache.capacidad", CAPACIDAD_POR_DEFECTO), activaPorDefecto());
+
+    private final int capacidad;
+    private final boolean activa;
+    private final Map<Integer, Pelicula> entradas;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+
+    // Se incrementa con cada escritura: una carga iniciada antes no debe sobrescribir datos más nuevos
+    private long generacion;
+
+    private PeliculaCache(int capacidad, boolean activa) {
+        this.capacidad = capacidad;
+        this.activa = activa;
+        // accessOrder = true: el primer elemento es siempre el menos usado recientemente
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Pelicula> eldest) {
+                if (size() > PeliculaCache.this.capacidad) {
+                    desalojos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static boolean activaPorDefecto() {
+        String activa = System.getProperty("catalogo.cache.activa");
+        if (activa != null) return Boolean.parseBoolean(activa);
+        return ConfiguracionConexion.cargar().modo() == ConfiguracionConexion.Modo.EMBEBIDO;
+    }
+
+    /**
+     * Obtiene la instancia única de la caché del catálogo.
+     *
+     * @return La caché compartida.
+     */
+    public static PeliculaCache getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Busca una película en la caché sin acceder a la base de datos.
+     *
+     * @param id El ID de la película.
+     * @return Una copia de la película si estaba en caché.
+     */
+    public synchronized Optional<Pelicula> get(Integer id) {
+        if (!activa) return Optional.empty();
+        Pelicula pelicula = entradas.get(id);
+        if (pelicula != null) {
+            aciertos.increment();
+            return Optional.of(pelicula.copiar());
+        }
+        fallos.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Devuelve la película de la caché o, si no está, la carga con el cargador indicado y la guarda.
+     * <p>
+     * La carga se hace fuera del bloqueo para no serializar accesos a la base de datos. Si mientras
+     * tanto se produce una escritura en la caché, el resultado cargado no se guarda porque podría estar obsoleto.
+     * </p>
+     *
+     * @param id       El ID de la película.
+     * @param cargador Función que lee la película de la base de datos (puede devolver {@code null}).
+     * @return La película, o vacío si no existe.
+     */
+    public Optional<Pelicula> getOrLoad(Integer id, Function<Integer, Pelicula> cargador) {
+        if (!activa) return Optional.ofNullable(cargador.apply(id));
+        long generacionInicial;
+        synchronized (this) {
+            Optional<Pelicula> enCache = get(id);
+            if (enCache.isPresent()) return enCache;
+            generacionInicial = generacion;
+        }
+        Pelicula cargada = cargador.apply(id);
+        if (cargada != null) {
+            synchronized (this) {
+                if (generacion == generacionInicial) {
+                    entradas.put(id, cargada.copiar());
+                }
+            }
+        }
+        return Optional.ofNullable(cargada);
+    }
+
+    /**
+     * Guarda o reemplaza una película en la caché. Se guarda una copia: los cambios posteriores
+     * sobre {@code pelicula} no afectan a la caché.
+     *
+     * @param pelicula La película (debe tener ID).
+     */
+    public synchronized void put(Pelicula pelicula) {
+        if (!activa || pelicula == null || pelicula.getId() == null) return;
+        generacion++;
+        entradas.put(pelicula.getId(), pelicula.copiar());
+    }
+
+    /**
+     * Elimina una película de la caché.
+     *
+     * @param id El ID de la película.
+     */
+    public synchronized void invalidate(Integer id) {
+        if (id == null) return;
+        generacion++;
+        entradas.remove(id);
+    }
+
+    /**
+     * Vacía la caché por completo (los contadores se mantienen).
+     */
+    @Override
+    public synchronized void clear() {
+        generacion++;
+        entradas.clear();
+    }
+
+    /**
+     * @return El número de películas actualmente en caché.
+     */
+    public synchronized int size() {
+        return entradas.size();
+    }
+
+    /**
+     * @return {@code true} si la caché guarda películas; {@code false} en modo cliente/servidor salvo que se fuerce.
+     */
+    @Override
+    public boolean isActiva() {
+        return activa;
+    }
+
+    @Override
+    public int getTamaño() {
+        return size();
+    }
+
+    /**
+     * @return La capacidad máxima de la caché.
+     */
+    @Override
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * @return El número de lecturas servidas desde la caché.
+     */
+    @Override
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    /**
+     * @return El número de lecturas que no encontraron la película en caché.
+     */
+    @Override
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /**
+     * @return El número de películas expulsadas por superar la capacidad.
+     */
+    @Override
+    public long getDesalojos() {
+        return desalojos.sum();
+    }
+
+    /**
+     * Calcula la proporción de lecturas servidas desde la caché.
+     *
+     * @return Un valor entre 0 y 1, o 0 si todavía no hubo lecturas.
+     */
+    @Override
+    public double getTasaAciertos() {
+        long a = getAciertos();
+        long total = a + getFallos();
+        return total == 0 ? 0.0 : (double) a / total;
+    }
+
+    @Override
+    public String toString() {
+        return "PeliculaCache{" +
+                "activa=" + activa +
+                ", tamaño=" + size() +
+                ", capacidad=" + capacidad +
+                ", aciertos=" + getAciertos() +
+                ", fallos=" + getFallos() +
+                ", desalojos=" + getDesalojos() +
+                '}';
+    }
+}
@@ -0,0 +1,51 @@
+package pelicula;
+
+/**
+ * Interfaz de gestión (JMX) de la {@link PeliculaCache}.
+ * <p>
+ * Expone el tamaño y los contadores de aciertos, fallos y desalojos, y permite vaciar la caché
+ * desde JConsole o VisualVM.
+ * </p>
+ */
+public interface PeliculaCacheMXBean {
+
+    /**
+     * @return {@code true} si la caché está activa (desactivada por defecto en modo cliente/servidor).
+     */
+    boolean isActiva();
+
+    /**
+     * @return El número de películas actualmente en caché.
+     */
+    int getTamaño();
+
+    /**
+     * @return La capacidad máxima de la caché.
+     */
+    int getCapacidad();
+
+    /**
+     * @return El número de lecturas servidas desde la caché.
+     */
+    long getAciertos();
+
+    /**
+     * @return El número de lecturas que no encontraron la película en caché.
+     */
+    long getFallos();
+
+    /**
+     * @return El número de películas expulsadas por superar la capacidad.
+     */
+    long getDesalojos();
+
+    /**
+     * @return La proporción de lecturas servidas desde la caché, entre 0 y 1.
+     */
+    double getTasaAciertos();
+
+    /**
+     * Vacía la caché (los contadores se mantienen).
+     */
+    void clear();
+}
@@ -1,23 +1,58 @@
 package pelicula;
 
+import copiaPelicula.CopiaBorrada;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
-import session.JPAUtil;
+import session.InstantaneaInformes;
+import session.UnitOfWork;
+import utils.Metricas;
 import utils.Repository;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * Repositorio para la entidad {@link Pelicula}.
  * <p>
  * Proporciona acceso a datos para objetos Pelicula utilizando JPA y ObjectDB.
  * Implementa operaciones CRUD estándar definidas en la interfaz {@link Repository}.
+ * Todas las operaciones se ejecutan a través de {@link UnitOfWork}, por lo que reutilizan el
+ * EntityManager (y la transacción) de la llamada que las invoca, si existe.
+ * Las búsquedas por ID pasan por {@link PeliculaCache}, que se actualiza tras confirmar cada escritura.
+ * Las consultas propias del catálogo, que no están en {@link Repository} y por tanto no pasan por
+ * {@link Metricas#instrumentar(Repository)}, se miden aquí con el mismo nombre {@code PeliculaRepository.metodo}.
  * </p>
  */
 public class PeliculaRepository implements Repository<Pelicula> {
 
+    /**
+     * Solapamiento, en milisegundos, entre consultas consecutivas de {@link #findCambiosDesde(long)}.
+     */
+    public static final long MARGEN_CAMBIOS_MS = 2_000;
+
+    /**
+     * Tiempo que se conservan las lápidas ({@link PeliculaBorrada} y {@link CopiaBorrada}) antes de purgarlas con
+     * {@link #purgarLapidas()}.
+     * Configurable en días con la propiedad de sistema {@code catalogo.lapidas.retencionDias} (7 por defecto).
+     */
+    public static final long RETENCION_LAPIDAS_MS =
+            Long.getLong("catalogo.lapidas.retencionDias", 7) * 24 * 60 * 60 * 1000;
+
+    // Proyección de los listados: solo las columnas de la tabla del catálogo
+    static final String SELECCION_RESUMEN = "NEW pelicula.PeliculaResumen(p.id, p.titulo, p.genero, p.año, p.image_url)";
+
+    private final PeliculaCache cache = PeliculaCache.getInstance();
+    private final IndiceBusqueda indiceBusqueda = IndiceBusqueda.getInstance();
+    private final Metricas metricas = Metricas.getInstance();
+
     /**
      * Guarda o actualiza una película en la base de datos.
      * <p>
@@ -29,29 +64,42 @@ public class PeliculaRepository implements Repository<Pelicula> {
      */
     @Override
     public Pelicula save(Pelicula entity) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            em.getTransaction().begin();
-            // Si el objeto ya existe (tiene ID), usamos merge, si no, persist
-            if (entity.getId() == null) {
-                em.persist(entity);
-            } else {
-                entity = em.merge(entity);
-            }
-            em.getTransaction().commit();
-            return entity;
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
+        return UnitOfWork.inTransaction(em -> guardar(em, entity));
+    }
+
+    /**
+     * Guarda o actualiza varias películas en transacciones de {@code tamañoLote} elementos.
+     *
+     * @param entidades  Las películas a guardar.
+     * @param tamañoLote El número de películas por transacción.
+     * @return Las películas persistidas, en el mismo orden.
+     */
+    @Override
+    public List<Pelicula> saveAll(Collection<Pelicula> entidades, int tamañoLote) {
+        return UnitOfWork.inChunks(entidades, tamañoLote, this::guardar);
+    }
+
+    private Pelicula guardar(EntityManager em, Pelicula entity) {
+        // Si el objeto ya existe (tiene ID), usamos merge, si no, persist
+        Pelicula guardada;
+        if (entity.getId() == null) {
+            em.persist(entity);
+            guardada = entity;
+        } else {
+            guardada = em.merge(entity);
         }
+        UnitOfWork.afterCommit(() -> {
+            cache.put(guardada);
+            indiceBusqueda.indexar(guardada);
+        });
+        return guardada;
     }
 
     /**
      * Elimina una película de la base de datos.
      * <p>
-     * Primero adjunta la entidad al contexto de persistencia usando {@code merge} y luego la elimina.
+     * Carga la entidad gestionada por su ID, la elimina y deja una {@link PeliculaBorrada} para el
+     * refresco incremental de los listados.
      * </p>
      *
      * @param entity La película a eliminar.
@@ -59,19 +107,12 @@ public class PeliculaRepository implements Repository<Pelicula> {
      */
     @Override
     public Optional<Pelicula> delete(Pelicula entity) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
         try {
-            em.getTransaction().begin();
-            // En JPA, el objeto debe estar en estado 'Managed' para ser eliminado
-            Pelicula managedEntity = em.merge(entity);
-            em.remove(managedEntity);
-            em.getTransaction().commit();
+            // En JPA, el objeto debe estar en estado 'Managed' para ser eliminado: lo buscamos por su ID
+            UnitOfWork.runInTransaction(em -> eliminar(em, entity.getId()));
             return Optional.of(entity);
         } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
             return Optional.empty();
-        } finally {
-            em.close();
         }
     }
 
@@ -83,39 +124,78 @@ public class PeliculaRepository implements Repository<Pelicula> {
      */
     @Override
     public Optional<Pelicula> deleteById(Long id) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
         try {
-            em.getTransaction().begin();
-            Pelicula pelicula = em.find(Pelicula.class, id.intValue()); // ObjectDB usa int/long según tu @Id
-            if (pelicula != null) {
-                em.remove(pelicula);
-                em.getTransaction().commit();
-                return Optional.of(pelicula);
-            }
-            return Optional.empty();
+            return UnitOfWork.inTransaction(em -> eliminar(em, id.intValue())); // ObjectDB usa int/long según tu @Id
         } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
             return Optional.empty();
-        } finally {
-            em.close();
         }
     }
 
+    /**
+     * Elimina varias películas por ID en transacciones de {@code tamañoLote} borrados.
+     * <p>
+     * Las copias asociadas se eliminan en cascada junto con cada película.
+     * </p>
+     *
+     * @param ids        Los identificadores de las películas.
+     * @param tamañoLote El número de borrados por transacción.
+     * @return El número de películas eliminadas.
+     */
+    @Override
+    public int deleteAllById(Collection<Long> ids, int tamañoLote) {
+        List<Boolean> eliminadas = UnitOfWork.inChunks(ids, tamañoLote,
+                (em, id) -> eliminar(em, id.intValue()).isPresent());
+        return (int) eliminadas.stream().filter(Boolean::booleanValue).count();
+    }
+
+    /**
+     * Elimina una película (y sus copias, en cascada) propagando cualquier error.
+     * <p>
+     * A diferencia de {@link #deleteById(Long)}, no oculta los fallos: está pensado para los servicios,
+     * que deben informar al usuario si el borrado no se pudo completar.
+     * </p>
+     *
+     * @param id El ID de la película.
+     * @return La película eliminada, o vacío si no existía.
+     */
+    public Optional<Pelicula> eliminar(Integer id) {
+        return metricas.medir("PeliculaRepository.eliminar", () -> UnitOfWork.inTransaction(em -> eliminar(em, id)));
+    }
+
+    private Optional<Pelicula> eliminar(EntityManager em, Integer id) {
+        Pelicula pelicula = em.find(Pelicula.class, id);
+        if (pelicula == null) return Optional.empty();
+        em.remove(pelicula);
+        // La lápida se guarda en la misma transacción: los listados sabrán que la película ya no existe
+        em.merge(new PeliculaBorrada(id, System.currentTimeMillis()));
+        UnitOfWork.afterCommit(() -> {
+            cache.invalidate(id);
+            indiceBusqueda.eliminar(id);
+        });
+        return Optional.of(pelicula);
+    }
+
     /**
      * Busca una película por su ID.
+     * <p>
+     * Fuera de una unidad de trabajo se consulta primero la caché del catálogo y solo se accede a la base
+     * de datos en caso de fallo. Dentro de una unidad de trabajo se devuelve siempre la entidad gestionada.
+     * </p>
      *
      * @param id El identificador de la película.
      * @return Un {@link Optional} con la película encontrada.
      */
     @Override
     public Optional<Pelicula> findById(Long id) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            // find() devuelve el objeto directamente por su clave primaria
-            return Optional.ofNullable(em.find(Pelicula.class, id.intValue()));
-        } finally {
-            em.close();
+        if (UnitOfWork.isActive()) {
+            return Optional.ofNullable(buscarEnBaseDeDatos(id.intValue()));
         }
+        return cache.getOrLoad(id.intValue(), this::buscarEnBaseDeDatos);
+    }
+
+    private Pelicula buscarEnBaseDeDatos(Integer id) {
+        // find() devuelve el objeto directamente por su clave primaria
+        return UnitOfWork.read(em -> em.find(Pelicula.class, id));
     }
 
     /**
@@ -125,14 +205,351 @@ public class PeliculaRepository implements Repository<Pelicula> {
      */
     @Override
     public List<Pelicula> findAll() {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
+        return UnitOfWork.read(em -> {
             // Usamos TypedQuery para mayor seguridad de tipos en JPQL
             TypedQuery<Pelicula> query = em.createQuery("SELECT p FROM Pelicula p", Pelicula.class);
             return query.getResultList();
-        } finally {
-            em.close();
+        });
+    }
+
+    /**
+     * Recupera una página del catálogo ordenada por ID usando paginación por clave (keyset).
+     * <p>
+     * En lugar de {@code OFFSET}, filtra por {@code id > afterId}, de modo que el coste de cada página
+     * no depende de cuántas películas se hayan recorrido antes.
+     * </p>
+     *
+     * @param afterId El ID de la última película de la página anterior, o {@code null} para la primera página.
+     * @param limit   El número máximo de películas a devolver.
+     * @return Las películas de la página, ordenadas por ID ascendente.
+     */
+    public List<Pelicula> findPage(Integer afterId, int limit) {
+        return metricas.medir("PeliculaRepository.findPage", () ->
+                consultarPagina("p", Pelicula.class, OrdenCatalogo.ID, true, FiltroCatalogo.NINGUNO, afterId, afterId, limit));
+    }
+
+    /**
+     * Recupera una página del catálogo ordenada por un campo, usando paginación por clave (keyset).
+     * <p>
+     * El cursor es la pareja (valor del campo, ID) de la última película de la página anterior;
+     * el ID actúa como desempate para que el orden sea total y ninguna fila se repita ni se pierda.
+     * Las películas con el campo de ordenación a {@code null} van al final, ordenadas por ID.
+     * </p>
+     *
+     * @param orden      El campo por el que ordenar.
+     * @param ascendente {@code true} para orden ascendente, {@code false} para descendente.
+     * @param despuesDe  La última película de la página anterior, o {@code null} para la primera página.
+     * @param limit      El número máximo de películas a devolver.
+     * @return Las películas de la página en el orden solicitado.
+     */
+    public List<Pelicula> findPage(OrdenCatalogo orden, boolean ascendente, Pelicula despuesDe, int limit) {
+        return metricas.medir("PeliculaRepository.findPage", () ->
+                consultarPagina("p", Pelicula.class, orden, ascendente, FiltroCatalogo.NINGUNO,
+                        despuesDe == null ? null : orden.valorDe(despuesDe),
+                        despuesDe == null ? null : despuesDe.getId(), limit));
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo ordenada por ID, para los listados.
+     * <p>
+     * Igual que {@link #findPage(Integer, int)}, pero solo lee las columnas de {@link PeliculaResumen}
+     * y no crea entidades gestionadas.
+     * </p>
+     *
+     * @param afterId El ID de la última película de la página anterior, o {@code null} para la primera página.
+     * @param limit   El número máximo de resúmenes a devolver.
+     * @return Los resúmenes de la página, ordenados por ID ascendente.
+     */
+    public List<PeliculaResumen> findResumenPage(Integer afterId, int limit) {
+        return metricas.medir("PeliculaRepository.findResumenPage", () ->
+                consultarPagina(SELECCION_RESUMEN, PeliculaResumen.class, OrdenCatalogo.ID, true, FiltroCatalogo.NINGUNO,
+                        afterId, afterId, limit));
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo ordenada por un campo, para los listados.
+     *
+     * @param orden      El campo por el que ordenar.
+     * @param ascendente {@code true} para orden ascendente, {@code false} para descendente.
+     * @param despuesDe  El último resumen de la página anterior, o {@code null} para la primera página.
+     * @param limit      El número máximo de resúmenes a devolver.
+     * @return Los resúmenes de la página en el orden solicitado.
+     * @see #findPage(OrdenCatalogo, boolean, Pelicula, int)
+     */
+    public List<PeliculaResumen> findResumenPage(OrdenCatalogo orden, boolean ascendente, PeliculaResumen despuesDe, int limit) {
+        return findResumenPage(orden, ascendente, FiltroCatalogo.NINGUNO, despuesDe, limit);
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo filtrada y ordenada en la base de datos.
+     * <p>
+     * Las condiciones del filtro se añaden a las del cursor, de modo que ordenar o filtrar un catálogo
+     * de cualquier tamaño solo lee las filas de la página pedida.
+     * </p>
+     *
+     * @param orden      El campo por el que ordenar.
+     * @param ascendente {@code true} para orden ascendente, {@code false} para descendente.
+     * @param filtro     El filtro a aplicar ({@link FiltroCatalogo#NINGUNO} para no filtrar).
+     * @param despuesDe  El último resumen de la página anterior, o {@code null} para la primera página.
+     * @param limit      El número máximo de resúmenes a devolver.
+     * @return Los resúmenes de la página en el orden indicado.
+     */
+    public List<PeliculaResumen> findResumenPage(OrdenCatalogo orden, boolean ascendente, FiltroCatalogo filtro,
+                                                 PeliculaResumen despuesDe, int limit) {
+        return metricas.medir("PeliculaRepository.findResumenPage", () ->
+                consultarPagina(SELECCION_RESUMEN, PeliculaResumen.class, orden, ascendente, filtro,
+                        despuesDe == null ? null : orden.valorDe(despuesDe),
+                        despuesDe == null ? null : despuesDe.id(), limit));
+    }
+
+    /**
+     * Obtiene los géneros distintos del catálogo, para ofrecerlos en el filtro.
+     * <p>
+     * Recorre el índice de géneros de todo el catálogo, así que se lee de la instantánea de informes si está
+     * activa ({@link InstantaneaInformes}): un género nuevo aparece en el filtro con la siguiente instantánea.
+     * </p>
+     *
+     * @return Los géneros, ordenados alfabéticamente.
+     */
+    public List<String> findGeneros() {
+        return metricas.medir("PeliculaRepository.findGeneros", () -> InstantaneaInformes.getInstance().leer(em -> em.createQuery(
+                        "SELECT DISTINCT p.genero FROM Pelicula p WHERE p.genero IS NOT NULL ORDER BY p.genero", String.class)
+                .getResultList()));
+    }
+
+    /**
+     * Ejecuta una consulta de página por clave con la selección indicada (la entidad o una proyección).
+     *
+     * @param seleccion    La expresión del {@code SELECT} sobre el alias {@code p}.
+     * @param tipo         El tipo del resultado.
+     * @param orden        El campo de ordenación.
+     * @param ascendente   Si el orden es ascendente.
+     * @param filtro       El filtro cuyas condiciones se añaden a las del cursor.
+     * @param valorCursor  El valor del campo de ordenación en la última fila de la página anterior.
+     * @param idCursor     El ID de la última fila de la página anterior, o {@code null} para la primera página.
+     * @param limit        El número máximo de filas.
+     * @param <R>          El tipo del resultado.
+     * @return Las filas de la página.
+     */
+    private <R> List<R> consultarPagina(String seleccion, Class<R> tipo, OrdenCatalogo orden, boolean ascendente,
+                                        FiltroCatalogo filtro, Object valorCursor, Integer idCursor, int limit) {
+        return UnitOfWork.read(em -> leerPagina(em, seleccion, tipo, orden, ascendente, filtro, valorCursor, idCursor, limit));
+    }
+
+    /**
+     * Lee una página por clave con el EntityManager indicado.
+     * <p>
+     * Al ordenar por un campo que admite {@code null}, el recorrido tiene dos tramos: primero las filas con valor,
+     * por (campo, ID), y después las filas sin valor, por ID en la misma dirección. Así ninguna película queda
+     * fuera del listado por no tener género o año. Un cursor con ID pero sin valor indica que la página anterior
+     * terminó en el segundo tramo. Cuando el primer tramo no llena la página, se completa con el principio del
+     * segundo.
+     * </p>
+     *
+     * @param em          El EntityManager con el que consultar.
+     * @param seleccion   La expresión del {@code SELECT} sobre el alias {@code p}.
+     * @param tipo        El tipo del resultado.
+     * @param orden       El campo de ordenación.
+     * @param ascendente  Si el orden es ascendente.
+     * @param filtro      El filtro cuyas condiciones se añaden a las del cursor.
+     * @param valorCursor El valor del campo de ordenación en la última fila de la página anterior.
+     * @param idCursor    El ID de la última fila de la página anterior, o {@code null} para la primera página.
+     * @param limit       El número máximo de filas.
+     * @param <R>         El tipo del resultado.
+     * @return Las filas de la página.
+     */
+    static <R> List<R> leerPagina(EntityManager em, String seleccion, Class<R> tipo, OrdenCatalogo orden,
+                                  boolean ascendente, FiltroCatalogo filtro, Object valorCursor, Integer idCursor,
+                                  int limit) {
+        boolean conCursor = idCursor != null;
+        if (orden == OrdenCatalogo.ID) {
+            return consultarTramo(em, jpqlPagina(seleccion, orden, ascendente, filtro, conCursor, false), tipo,
+                    filtro, null, idCursor, limit);
+        }
+        boolean enTramoNulos = conCursor && valorCursor == null;
+        List<R> filas = new ArrayList<>();
+        if (!enTramoNulos) {
+            filas.addAll(consultarTramo(em, jpqlPagina(seleccion, orden, ascendente, filtro, conCursor, false), tipo,
+                    filtro, valorCursor, idCursor, limit));
+        }
+        if (filas.size() < limit) {
+            filas.addAll(consultarTramo(em, jpqlPagina(seleccion, orden, ascendente, filtro, enTramoNulos, true), tipo,
+                    filtro, null, enTramoNulos ? idCursor : null, limit - filas.size()));
         }
+        return filas;
+    }
+
+    private static <R> List<R> consultarTramo(EntityManager em, String jpql, Class<R> tipo, FiltroCatalogo filtro,
+                                              Object valorCursor, Integer idCursor, int limit) {
+        TypedQuery<R> query = em.createQuery(jpql, tipo);
+        if (idCursor != null) query.setParameter("id", idCursor);
+        if (valorCursor != null) query.setParameter("valor", valorCursor);
+        filtro.asignarParametros(query);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Construye la consulta JPQL de un tramo de una página por clave. Si hay cursor, usa el parámetro
+     * {@code :id} y, en el tramo de filas con valor y salvo al ordenar por ID, {@code :valor}; el filtro
+     * añade los suyos.
+     *
+     * @param seleccion  La expresión del {@code SELECT} sobre el alias {@code p}.
+     * @param orden      El campo de ordenación.
+     * @param ascendente Si el orden es ascendente.
+     * @param filtro     El filtro cuyas condiciones se añaden a las del cursor.
+     * @param conCursor  Si la consulta parte de la última fila de una página anterior.
+     * @param nulos      {@code true} para el tramo de filas con el campo a {@code null}, ordenado solo por ID.
+     * @return La consulta JPQL.
+     */
+    static String jpqlPagina(String seleccion, OrdenCatalogo orden, boolean ascendente, FiltroCatalogo filtro,
+                             boolean conCursor, boolean nulos) {
+        boolean porId = orden == OrdenCatalogo.ID || nulos;
+        String campo = "p." + orden.getCampo();
+        String direccion = ascendente ? "ASC" : "DESC";
+        String comparador = ascendente ? ">" : "<";
+
+        List<String> condiciones = new ArrayList<>();
+        if (nulos) {
+            condiciones.add(campo + " IS NULL");
+        }
+        if (conCursor) {
+            if (porId) {
+                condiciones.add("p.id " + comparador + " :id");
+            } else {
+                condiciones.add("(" + campo + " " + comparador + " :valor OR (" + campo + " = :valor AND p.id "
+                        + comparador + " :id))");
+            }
+        } else if (!porId) {
+            condiciones.add(campo + " IS NOT NULL");
+        }
+        condiciones.addAll(filtro.condiciones());
+
+        StringBuilder jpql = new StringBuilder("SELECT ").append(seleccion).append(" FROM Pelicula p");
+        if (!condiciones.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", condiciones));
+        }
+        if (porId) {
+            jpql.append(" ORDER BY p.id ").append(direccion);
+        } else {
+            jpql.append(" ORDER BY ").append(campo).append(' ').append(direccion).append(", p.id ").append(direccion);
+        }
+        return jpql.toString();
+    }
+
+    /**
+     * Obtiene los resúmenes de varias películas por ID con una sola consulta.
+     *
+     * @param ids Los IDs de las películas.
+     * @return Los resúmenes de las que existen, sin un orden concreto.
+     */
+    public List<PeliculaResumen> findResumenesById(Collection<Integer> ids) {
+        if (ids.isEmpty()) return List.of();
+        return metricas.medir("PeliculaRepository.findResumenesById", () -> UnitOfWork.read(em -> em.createQuery(
+                        "SELECT " + SELECCION_RESUMEN + " FROM Pelicula p WHERE p.id IN :ids", PeliculaResumen.class)
+                .setParameter("ids", ids)
+                .getResultList()));
+    }
+
+    /**
+     * Obtiene los cambios del catálogo desde una marca de tiempo.
+     * <p>
+     * Devuelve los resúmenes de las películas creadas o modificadas, las de las películas cuyas copias
+     * han cambiado o se han borrado ({@link CopiaBorrada}), cuya disponibilidad es distinta, y los IDs de las
+     * películas borradas, usando los índices de
+     * {@code ultimaModificacion} y {@code borradaEn}: el coste depende del número de cambios, no del
+     * tamaño del catálogo.
+     * </p>
+     * <p>
+     * Para no perder cambios de transacciones que se confirmaron justo después de la consulta anterior,
+     * se consulta con {@value #MARGEN_CAMBIOS_MS} ms de solapamiento; un cambio puede devolverse dos veces
+     * y quien lo aplica debe tratarlo como idempotente.
+     * </p>
+     * <p>
+     * Las lápidas se purgan pasado {@link #RETENCION_LAPIDAS_MS}: con una marca más antigua podrían faltar
+     * borrados, y conviene recargar el listado entero en lugar de pedir los cambios.
+     * </p>
+     *
+     * @param marca La marca devuelta por la consulta anterior (o el instante de la carga inicial).
+     * @return Los cambios y la marca para la siguiente consulta.
+     */
+    public CambiosCatalogo findCambiosDesde(long marca) {
+        return metricas.medir("PeliculaRepository.findCambiosDesde", () -> consultarCambiosDesde(marca));
+    }
+
+    private CambiosCatalogo consultarCambiosDesde(long marca) {
+        long siguienteMarca = System.currentTimeMillis();
+        long desde = marca - MARGEN_CAMBIOS_MS;
+        return UnitOfWork.read(em -> {
+            Map<Integer, PeliculaResumen> modificadas = new TreeMap<>();
+            em.createQuery("SELECT " + SELECCION_RESUMEN + " FROM Pelicula p WHERE p.ultimaModificacion >= :desde",
+                            PeliculaResumen.class)
+                    .setParameter("desde", desde)
+                    .getResultList()
+                    .forEach(r -> modificadas.put(r.id(), r));
+
+            Set<Integer> idsConCopiasCambiadas = new HashSet<>(em.createQuery(
+                            "SELECT DISTINCT c.pelicula.id FROM CopiaPelicula c WHERE c.ultimaModificacion >= :desde",
+                            Integer.class)
+                    .setParameter("desde", desde)
+                    .getResultList());
+            // Las copias borradas ya no existen: sus películas se conocen por las lápidas de copia
+            idsConCopiasCambiadas.addAll(em.createQuery(
+                            "SELECT DISTINCT b.idPelicula FROM CopiaBorrada b WHERE b.borradaEn >= :desde", Integer.class)
+                    .setParameter("desde", desde)
+                    .getResultList());
+            List<Integer> conCopiasCambiadas = idsConCopiasCambiadas.stream()
+                    .filter(id -> id != null && !modificadas.containsKey(id))
+                    .toList();
+            if (!conCopiasCambiadas.isEmpty()) {
+                em.createQuery("SELECT " + SELECCION_RESUMEN + " FROM Pelicula p WHERE p.id IN :ids", PeliculaResumen.class)
+                        .setParameter("ids", conCopiasCambiadas)
+                        .getResultList()
+                        .forEach(r -> modificadas.put(r.id(), r));
+            }
+
+            Set<Integer> borradas = new HashSet<>(em.createQuery(
+                            "SELECT b.id FROM PeliculaBorrada b WHERE b.borradaEn >= :desde", Integer.class)
+                    .setParameter("desde", desde)
+                    .getResultList());
+            modificadas.keySet().removeAll(borradas);
+
+            return new CambiosCatalogo(new ArrayList<>(modificadas.values()), borradas, siguienteMarca);
+        });
+    }
+
+    /**
+     * Elimina las lápidas más antiguas que {@link #RETENCION_LAPIDAS_MS}.
+     * <p>
+     * Sin purga, cada borrado deja una {@link PeliculaBorrada} o una {@link CopiaBorrada} para siempre, aunque
+     * {@link #findCambiosDesde(long)} solo necesita las posteriores a la marca de cada listado.
+     * Las consultas usan el índice de {@code borradaEn}.
+     * </p>
+     *
+     * @return El número de lápidas eliminadas.
+     */
+    public int purgarLapidas() {
+        long limite = System.currentTimeMillis() - RETENCION_LAPIDAS_MS;
+        return metricas.medir("PeliculaRepository.purgarLapidas", () -> UnitOfWork.inTransaction(em ->
+                em.createQuery("DELETE FROM PeliculaBorrada b WHERE b.borradaEn < :limite")
+                        .setParameter("limite", limite)
+                        .executeUpdate()
+                        + em.createQuery("DELETE FROM CopiaBorrada b WHERE b.borradaEn < :limite")
+                        .setParameter("limite", limite)
+                        .executeUpdate()));
+    }
+
+    /**
+     * Recorre todas las entidades {@link Pelicula} por bloques ordenados por ID.
+     * <p>
+     * Usa {@link Repository#recorrerPorBloques(Class, java.util.function.Function, int, Consumer)}.
+     * </p>
+     *
+     * @param tamañoBloque El número de entidades cargadas por consulta.
+     * @param accion       La acción a ejecutar sobre cada entidad.
+     */
+    @Override
+    public void streamAll(int tamañoBloque, Consumer<Pelicula> accion) {
+        Repository.recorrerPorBloques(Pelicula.class, Pelicula::getId, tamañoBloque, accion);
     }
 
     /**
@@ -142,12 +559,7 @@ public class PeliculaRepository implements Repository<Pelicula> {
      */
     @Override
     public Long count() {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            // Las funciones agregadas como COUNT funcionan igual en JPQL
-            return em.createQuery("SELECT COUNT(p) FROM Pelicula p", Long.class).getSingleResult();
-        } finally {
-            em.close();
-        }
+        // Las funciones agregadas como COUNT funcionan igual en JPQL
+        return UnitOfWork.read(em -> em.createQuery("SELECT COUNT(p) FROM Pelicula p", Long.class).getSingleResult());
     }
-}
\ No newline at end of file
+}
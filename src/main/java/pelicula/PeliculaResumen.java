@@ -0,0 +1,30 @@
+package pelicula;
+
+/**
+ * Proyección ligera de una {@link Pelicula} para los listados del catálogo.
+ * <p>
+ * Contiene solo las columnas que muestra la tabla del catálogo (más el ID, para el cursor de
+ * paginación y para cargar la entidad completa al abrir el detalle). Se construye directamente en la
+ * consulta con {@code SELECT NEW}, por lo que no se cargan ni gestionan entidades, y la descripción
+ * o el director nunca llegan a leerse. La URL del póster sí se incluye, para su miniatura en la tabla.
+ * </p>
+ *
+ * @param id       El ID de la película.
+ * @param titulo   El título.
+ * @param genero   El género.
+ * @param año      El año de estreno.
+ * @param imageUrl La URL del póster, o {@code null}.
+ */
+public record PeliculaResumen(Integer id, String titulo, String genero, Integer año, String imageUrl) {
+
+    /**
+     * Crea el resumen de una película ya cargada.
+     *
+     * @param pelicula La película completa.
+     * @return Su resumen.
+     */
+    public static PeliculaResumen de(Pelicula pelicula) {
+        return new PeliculaResumen(pelicula.getId(), pelicula.getTitulo(), pelicula.getGenero(), pelicula.getAño(),
+                pelicula.getImage_url());
+    }
+}
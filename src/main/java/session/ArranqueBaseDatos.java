@@ -0,0 +1,171 @@
+package session;
+
+import utils.AsyncUtil;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.metamodel.EntityType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Arranque de la base de datos en segundo plano, para mostrar la interfaz sin esperar a ObjectDB.
+ * <p>
+ * Abrir {@code db/ad.odb} puede tardar varios segundos en una base de datos grande. En lugar de hacerlo
+ * antes de mostrar el login, {@link #iniciar(Runnable)} lanza en hilos virtuales:
+ * <ol>
+ *     <li>la creación de la factoría de EntityManagers ({@link JPAUtil});</li>
+ *     <li>a continuación, y en paralelo, la comprobación de los datos iniciales y el calentamiento del esquema
+ *     (una lectura de una fila por entidad, para que ObjectDB cargue los tipos);</li>
+ *     <li>cuando la base de datos está lista, las fases añadidas con {@link #enSegundoPlano(String, Runnable)},
+ *     como la carga de índices en memoria.</li>
+ * </ol>
+ * La base de datos se considera lista ({@link #getListo()}) al terminar la factoría y los datos iniciales:
+ * la vista de login mantiene deshabilitado el botón de entrar hasta entonces.
+ * </p>
+ * <p>
+ * Cada fase se cronometra; {@link #informe()} muestra su duración y cuándo terminó, contado desde el inicio.
+ * </p>
+ */
+public final class ArranqueBaseDatos {
+
+    private static final ArranqueBaseDatos INSTANCIA = new ArranqueBaseDatos();
+
+    private final Map<String, long[]> fases = new LinkedHashMap<>();
+    private final List<CompletableFuture<Void>> tareas = new ArrayList<>();
+    private long inicio;
+    private long listoEn = -1;
+    private CompletableFuture<Void> listo;
+
+    private ArranqueBaseDatos() {}
+
+    /**
+     * Obtiene el arranque compartido.
+     *
+     * @return La instancia única.
+     */
+    public static ArranqueBaseDatos getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Empieza a arrancar la base de datos en segundo plano. Las llamadas siguientes devuelven el mismo arranque.
+     *
+     * @param datosIniciales La comprobación o carga de los datos de prueba, que se ejecuta con la factoría creada.
+     * @return Un {@link CompletableFuture} que se completa cuando la base de datos está lista para usarse.
+     */
+    public synchronized CompletableFuture<Void> iniciar(Runnable datosIniciales) {
+        if (listo != null) return listo;
+        inicio = System.nanoTime();
+        CompletableFuture<Void> factoria = AsyncUtil.run(() -> medir("factoría", JPAUtil::getEntityManagerFactory));
+        tareas.add(factoria.thenCompose(v -> AsyncUtil.run(() -> medir("esquema", ArranqueBaseDatos::calentarEsquema))));
+        listo = factoria
+                .thenCompose(v -> AsyncUtil.run(() -> medir("datos iniciales", datosIniciales)))
+                .thenRun(() -> {
+                    synchronized (this) {
+                        listoEn = System.nanoTime() - inicio;
+                    }
+                });
+        return listo;
+    }
+
+    /**
+     * Programa una fase para cuando la base de datos esté lista. Si el arranque falla, no se ejecuta.
+     *
+     * @param fase  El nombre de la fase en el informe.
+     * @param tarea El trabajo de la fase.
+     * @throws IllegalStateException Si el arranque no se ha iniciado.
+     */
+    public synchronized void enSegundoPlano(String fase, Runnable tarea) {
+        if (listo == null) throw new IllegalStateException("El arranque no se ha iniciado.");
+        tareas.add(listo.thenCompose(v -> AsyncUtil.run(() -> medir(fase, tarea))));
+    }
+
+    /**
+     * Anota una fase cronometrada por otro componente, p. ej. la carga de la interfaz en el hilo de JavaFX.
+     *
+     * @param fase        El nombre de la fase.
+     * @param inicioNanos El instante en que empezó, obtenido con {@link System#nanoTime()}.
+     */
+    public void registrarFase(String fase, long inicioNanos) {
+        long fin = System.nanoTime();
+        synchronized (this) {
+            fases.put(fase, new long[]{fin - inicioNanos, fin - inicio});
+        }
+    }
+
+    /**
+     * @return El {@link CompletableFuture} que se completa cuando la base de datos está lista.
+     * @throws IllegalStateException Si el arranque no se ha iniciado.
+     */
+    public synchronized CompletableFuture<Void> getListo() {
+        if (listo == null) throw new IllegalStateException("El arranque no se ha iniciado.");
+        return listo;
+    }
+
+    /**
+     * @return {@code true} si la base de datos ya está lista para usarse.
+     */
+    public synchronized boolean isListo() {
+        return listo != null && listo.isDone() && !listo.isCompletedExceptionally();
+    }
+
+    /**
+     * Devuelve un {@link CompletableFuture} que se completa al terminar todas las fases programadas hasta ahora,
+     * hayan fallado o no.
+     *
+     * @return El {@link CompletableFuture} de fin del arranque.
+     */
+    public synchronized CompletableFuture<Void> getTerminado() {
+        List<CompletableFuture<Void>> todas = new ArrayList<>(tareas);
+        todas.add(getListo());
+        return CompletableFuture.allOf(todas.stream()
+                        .map(tarea -> tarea.exceptionally(error -> null))
+                        .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Genera un informe con la duración de cada fase y el momento en que terminó, en milisegundos.
+     *
+     * @return El informe.
+     */
+    public synchronized String informe() {
+        StringBuilder sb = new StringBuilder("Arranque de la aplicación:").append(System.lineSeparator());
+        sb.append(String.format("  %-25s %10s %12s%n", "Fase", "Duración", "Fin a los"));
+        for (Map.Entry<String, long[]> fase : fases.entrySet()) {
+            sb.append(String.format("  %-25s %7d ms %9d ms%n",
+                    fase.getKey(), fase.getValue()[0] / 1_000_000, fase.getValue()[1] / 1_000_000));
+        }
+        sb.append(listoEn < 0
+                ? "  La base de datos no llegó a estar lista."
+                : "  Base de datos lista a los " + listoEn / 1_000_000 + " ms.");
+        return sb.toString();
+    }
+
+    private void medir(String fase, Runnable trabajo) {
+        long inicioFase = System.nanoTime();
+        try {
+            trabajo.run();
+        } catch (RuntimeException e) {
+            System.err.println("Error en la fase de arranque '" + fase + "': " + e.getMessage());
+            throw e;
+        } finally {
+            registrarFase(fase, inicioFase);
+        }
+    }
+
+    /**
+     * Lee como mucho una instancia de cada entidad para que ObjectDB cargue su esquema antes del primer uso.
+     */
+    private static void calentarEsquema() {
+        UnitOfWork.read((EntityManager em) -> {
+            for (EntityType<?> entidad : em.getMetamodel().getEntities()) {
+                em.createQuery("SELECT e FROM " + entidad.getName() + " e").setMaxResults(1).getResultList();
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,135 @@
+package session;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Configuración de la conexión con ObjectDB: modo embebido o cliente/servidor.
+ * <p>
+ * Se lee, de menor a mayor prioridad, de:
+ * <ol>
+ *     <li>{@code conexion.properties} en el classpath (los valores por defecto que se distribuyen);</li>
+ *     <li>{@code conexion.properties} en el directorio de trabajo, o el fichero indicado con
+ *     {@code -Dconexion.fichero=ruta};</li>
+ *     <li>propiedades de sistema {@code -Dconexion.<clave>=valor}, p. ej. {@code -Dconexion.modo=servidor}.</li>
+ * </ol>
+ * Por compatibilidad, {@code -Dobjectdb.url=...} sigue teniendo prioridad sobre todo lo anterior
+ * (lo usan las pruebas de rendimiento para abrir una base de datos temporal).
+ * </p>
+ *
+ * @param modo       El modo de conexión.
+ * @param url        La URL de ObjectDB, sin credenciales.
+ * @param usuario    El usuario del servidor.
+ * @param clave      La contraseña del servidor.
+ * @param puerto     El puerto del servidor (también lo usa {@link ServidorObjectDB} al arrancarlo).
+ */
+public record ConfiguracionConexion(Modo modo, String url, String usuario, String clave, int puerto) {
+
+    /**
+     * Nombre del fichero de configuración.
+     */
+    public static final String FICHERO = "conexion.properties";
+
+    /**
+     * Modo de conexión con la base de datos.
+     */
+    public enum Modo {
+        /**
+         * La aplicación abre el fichero de la base de datos en su propio proceso.
+         */
+        EMBEBIDO,
+        /**
+         * La aplicación se conecta a un servidor ObjectDB que pueden compartir varios clientes.
+         */
+        SERVIDOR
+    }
+
+    /**
+     * Lee la configuración actual.
+     *
+     * @return La configuración.
+     * @throws IllegalStateException Si el modo o el puerto no son válidos.
+     */
+    public static ConfiguracionConexion cargar() {
+        Properties propiedades = new Properties();
+        try (InputStream in = ConfiguracionConexion.class.getResourceAsStream("/" + FICHERO)) {
+            if (in != null) propiedades.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("No se pudo leer " + FICHERO + " del classpath: " + e.getMessage());
+        }
+        Path externo = Path.of(System.getProperty("conexion.fichero", FICHERO));
+        if (Files.isRegularFile(externo)) {
+            try (Reader in = Files.newBufferedReader(externo, StandardCharsets.UTF_8)) {
+                propiedades.load(in);
+            } catch (IOException e) {
+                System.err.println("No se pudo leer " + externo + ": " + e.getMessage());
+            }
+        }
+        for (String clave : System.getProperties().stringPropertyNames()) {
+            if (clave.startsWith("conexion.")) {
+                propiedades.setProperty(clave.substring("conexion.".length()), System.getProperty(clave));
+            }
+        }
+
+        String usuario = propiedades.getProperty("usuario", "admin");
+        String clave = propiedades.getProperty("clave", "admin");
+        int puerto;
+        try {
+            puerto = Integer.parseInt(propiedades.getProperty("servidor.puerto", "6136").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Puerto de servidor no válido: " + propiedades.getProperty("servidor.puerto"));
+        }
+
+        String urlForzada = System.getProperty("objectdb.url");
+        if (urlForzada != null) {
+            Modo modo = urlForzada.startsWith("objectdb://") ? Modo.SERVIDOR : Modo.EMBEBIDO;
+            return new ConfiguracionConexion(modo, urlForzada, usuario, clave, puerto);
+        }
+
+        Modo modo;
+        try {
+            modo = Modo.valueOf(propiedades.getProperty("modo", "embebido").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Modo de conexión no válido: " + propiedades.getProperty("modo")
+                    + " (debe ser embebido o servidor)");
+        }
+        String url = modo == Modo.EMBEBIDO
+                ? "objectdb:" + propiedades.getProperty("embebido.ruta", "db/ad.odb").trim()
+                : "objectdb://" + propiedades.getProperty("servidor.host", "localhost").trim() + ":" + puerto
+                        + "/" + propiedades.getProperty("servidor.base", "ad.odb").trim();
+        return new ConfiguracionConexion(modo, url, usuario, clave, puerto);
+    }
+
+    /**
+     * Propiedades para {@code Persistence.createEntityManagerFactory}, con la URL y, en modo servidor,
+     * las credenciales.
+     *
+     * @return Las propiedades de la unidad de persistencia.
+     */
+    public Map<String, String> propiedadesJpa() {
+        Map<String, String> propiedades = new HashMap<>();
+        propiedades.put("javax.persistence.jdbc.url", url);
+        propiedades.put("jakarta.persistence.jdbc.url", url);
+        if (modo == Modo.SERVIDOR) {
+            propiedades.put("javax.persistence.jdbc.user", usuario);
+            propiedades.put("jakarta.persistence.jdbc.user", usuario);
+            propiedades.put("javax.persistence.jdbc.password", clave);
+            propiedades.put("jakarta.persistence.jdbc.password", clave);
+        }
+        return propiedades;
+    }
+
+    @Override
+    public String toString() {
+        // Sin la contraseña: la configuración se muestra por consola y por JMX
+        return modo + " " + url;
+    }
+}
@@ -0,0 +1,36 @@
+package session;
+
+import java.time.Instant;
+
+/**
+ * Una consulta JPQL que tardó más que el umbral de {@link RegistroConsultasLentas}.
+ *
+ * @param inicio     El instante en que empezó a ejecutarse.
+ * @param jpql       El texto de la consulta.
+ * @param parametros Los parámetros asignados, ya formateados (p. ej. {@code {id=3, p=Pelicula#12}}).
+ * @param filas      El número de filas devueltas o modificadas, o -1 si no se conoce (consultas en stream).
+ * @param nanos      La duración de la ejecución, en nanosegundos.
+ * @param hilo       El nombre del hilo que la ejecutó.
+ * @param error      El tipo de la excepción si la consulta falló, o {@code null}.
+ */
+public record ConsultaLenta(Instant inicio, String jpql, String parametros, long filas, long nanos,
+                            String hilo, String error) {
+
+    /**
+     * @return La duración de la ejecución, en milisegundos.
+     */
+    public double getMs() {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Formatea la consulta como una línea del fichero de registro.
+     *
+     * @return La línea, sin salto de línea final.
+     */
+    public String comoLinea() {
+        return String.format("%s %10.3f ms filas=%s hilo=%s%s jpql=[%s] parametros=%s",
+                inicio, getMs(), filas < 0 ? "?" : filas, hilo, error == null ? "" : " error=" + error,
+                jpql.replaceAll("\\s+", " "), parametros);
+    }
+}
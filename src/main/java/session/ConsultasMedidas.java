@@ -0,0 +1,163 @@
+package session;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.Query;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Proxies que miden las consultas creadas con un {@link EntityManager}.
+ * <p>
+ * {@link UnitOfWork} envuelve con {@link #envolver(EntityManager)} el EntityManager de cada unidad de trabajo:
+ * así todas las consultas de los repositorios y servicios se miden sin cambiar su código. El proxy del
+ * EntityManager solo intercepta {@code createQuery}; el de la consulta anota los parámetros asignados y mide
+ * {@code getResultList}, {@code getSingleResult}, {@code getResultStream} y {@code executeUpdate}.
+ * Las que superan el umbral se pasan a {@link RegistroConsultasLentas}.
+ * </p>
+ * <p>
+ * En {@code getResultStream} se mide lo que tarda en abrirse el cursor, no su recorrido, que depende
+ * de quien lo consume; el número de filas queda como desconocido.
+ * </p>
+ */
+final class ConsultasMedidas {
+
+    private static final Set<String> EJECUCIONES =
+            Set.of("getResultList", "getSingleResult", "getSingleResultOrNull", "getResultStream", "executeUpdate");
+    private static final int LONGITUD_MAXIMA_VALOR = 100;
+    private static final int ELEMENTOS_MAXIMOS = 5;
+
+    /**
+     * Constructor privado para prevenir la instanciación.
+     */
+    private ConsultasMedidas() {}
+
+    /**
+     * Envuelve un EntityManager para que las consultas que cree se midan.
+     *
+     * @param em El EntityManager real.
+     * @return El EntityManager instrumentado.
+     */
+    static EntityManager envolver(EntityManager em) {
+        InvocationHandler manejador = (proxy, metodo, argumentos) -> {
+            Object resultado = invocar(em, metodo, argumentos);
+            if (metodo.getName().equals("createQuery") && argumentos != null && argumentos[0] instanceof String jpql
+                    && resultado instanceof Query query) {
+                return envolver(query, metodo.getReturnType(), jpql);
+            }
+            return resultado;
+        };
+        return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class}, manejador);
+    }
+
+    private static Object envolver(Query query, Class<?> tipo, String jpql) {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        RegistroConsultasLentas registro = RegistroConsultasLentas.getInstance();
+        InvocationHandler manejador = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method metodo, Object[] argumentos) throws Throwable {
+                String nombre = metodo.getName();
+                if (nombre.equals("setParameter") && argumentos.length >= 2
+                        && (argumentos[0] instanceof String || argumentos[0] instanceof Integer)) {
+                    parametros.put(String.valueOf(argumentos[0]), argumentos[1]);
+                }
+                if (!EJECUCIONES.contains(nombre)) {
+                    Object resultado = invocar(query, metodo, argumentos);
+                    // Los métodos encadenables devuelven la consulta real: se devuelve el proxy para seguir midiendo
+                    return resultado == query ? proxy : resultado;
+                }
+                Instant inicio = Instant.now();
+                long inicioNanos = System.nanoTime();
+                long filas = -1;
+                String error = null;
+                try {
+                    Object resultado = invocar(query, metodo, argumentos);
+                    if (resultado instanceof List<?> lista) {
+                        filas = lista.size();
+                    } else if (resultado instanceof Integer modificadas && nombre.equals("executeUpdate")) {
+                        filas = modificadas;
+                    } else if (!nombre.equals("getResultStream")) {
+                        filas = resultado == null ? 0 : 1;
+                    }
+                    return resultado;
+                } catch (NoResultException e) {
+                    filas = 0;
+                    throw e;
+                } catch (RuntimeException e) {
+                    error = e.getClass().getSimpleName();
+                    throw e;
+                } finally {
+                    long nanos = System.nanoTime() - inicioNanos;
+                    if (nanos >= registro.getUmbralNanos()) {
+                        registro.registrar(new ConsultaLenta(inicio, jpql, formatear(parametros), filas, nanos,
+                                Thread.currentThread().getName(), error));
+                    }
+                }
+            }
+        };
+        return Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, manejador);
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] argumentos) throws Throwable {
+        try {
+            return metodo.invoke(destino, argumentos);
+        } catch (InvocationTargetException e) {
+            // Se relanza la excepción original, no la de reflexión
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Formatea los parámetros sin recorrer las entidades: de una entidad solo se muestra su clase e ID,
+     * ya que su {@code toString} podría cargar relaciones perezosas dentro de la transacción.
+     */
+    private static String formatear(Map<String, Object> parametros) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Object> p : parametros.entrySet()) {
+            if (sb.length() > 1) sb.append(", ");
+            String nombre = p.getKey().toLowerCase();
+            boolean secreto = nombre.contains("contrase") || nombre.contains("password");
+            sb.append(p.getKey()).append('=').append(secreto ? "****" : formatear(p.getValue()));
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String formatear(Object valor) {
+        if (valor == null) return "null";
+        if (valor instanceof CharSequence texto) {
+            String s = texto.toString();
+            return '"' + (s.length() > LONGITUD_MAXIMA_VALOR ? s.substring(0, LONGITUD_MAXIMA_VALOR) + "…" : s) + '"';
+        }
+        if (valor instanceof Number || valor instanceof Boolean || valor instanceof Enum<?>
+                || valor instanceof java.time.temporal.Temporal) {
+            return valor.toString();
+        }
+        if (valor instanceof Collection<?> coleccion) {
+            StringBuilder sb = new StringBuilder("[");
+            Iterator<?> it = coleccion.iterator();
+            for (int i = 0; i < ELEMENTOS_MAXIMOS && it.hasNext(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(formatear(it.next()));
+            }
+            if (coleccion.size() > ELEMENTOS_MAXIMOS) sb.append(", … (").append(coleccion.size()).append(" en total)");
+            return sb.append(']').toString();
+        }
+        String clase = valor.getClass().getSimpleName();
+        try {
+            return clase + "#" + valor.getClass().getMethod("getId").invoke(valor);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return clase;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package session;
+
+import utils.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de uso de la persistencia, alimentados por {@link UnitOfWork} y {@link JPAUtil}.
+ * <p>
+ * Registrar un evento es un incremento sin bloqueos, por lo que se puede llamar en cada unidad de trabajo
+ * sin coste apreciable. Es además la implementación de {@link PersistenciaMXBean} que publica {@link utils.MonitorJMX}.
+ * </p>
+ */
+public final class EstadisticasPersistencia implements PersistenciaMXBean {
+
+    private static final EstadisticasPersistencia INSTANCIA = new EstadisticasPersistencia();
+
+    private final LongAdder emCreados = new LongAdder();
+    private final LongAdder emCerrados = new LongAdder();
+    private final LongAdder confirmadas = new LongAdder();
+    private final LongAdder deshechas = new LongAdder();
+    private final Tasa tasaConfirmadas = new Tasa();
+    private final Tasa tasaDeshechas = new Tasa();
+    private final LatencyHistogram duracionTransacciones = new LatencyHistogram("Transacciones");
+
+    private EstadisticasPersistencia() {}
+
+    /**
+     * Obtiene las estadísticas compartidas.
+     *
+     * @return La instancia única.
+     */
+    public static EstadisticasPersistencia getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Cuenta los eventos de un tipo en una ventana del último minuto, con una cubeta por segundo.
+     * <p>
+     * Cada cubeta guarda el segundo al que pertenece; si al registrar o leer el segundo no coincide,
+     * la cubeta es de una vuelta anterior y se descarta.
+     * </p>
+     */
+    private static final class Tasa {
+        private static final int SEGUNDOS = 60;
+        /** Cada cubeta guarda el segundo en los 32 bits altos y la cuenta de ese segundo en los 32 bajos. */
+        private final AtomicLongArray cubetas = new AtomicLongArray(SEGUNDOS);
+
+        void registrar() {
+            long ahora = System.currentTimeMillis() / 1000;
+            int i = (int) (ahora % SEGUNDOS);
+            // Segundo y cuenta cambian con un único CAS: si la cubeta es de una vuelta anterior se reinicia a 1,
+            // sin perder los eventos que otros hilos registren a la vez en el mismo segundo
+            cubetas.getAndUpdate(i, valor -> segundoDe(valor) == ahora ? valor + 1 : (ahora << 32) | 1);
+        }
+
+        double porSegundo() {
+            long ahora = System.currentTimeMillis() / 1000;
+            long total = 0;
+            for (int i = 0; i < SEGUNDOS; i++) {
+                long valor = cubetas.get(i);
+                if (ahora - segundoDe(valor) < SEGUNDOS) total += valor & 0xFFFF_FFFFL;
+            }
+            return (double) total / SEGUNDOS;
+        }
+
+        void reset() {
+            for (int i = 0; i < SEGUNDOS; i++) {
+                cubetas.set(i, 0);
+            }
+        }
+
+        private static long segundoDe(long valor) {
+            return valor >>> 32;
+        }
+    }
+
+    void entityManagerCreado() {
+        emCreados.increment();
+    }
+
+    void entityManagerCerrado() {
+        emCerrados.increment();
+    }
+
+    void transaccionConfirmada(long inicioNanos) {
+        duracionTransacciones.recordSince(inicioNanos);
+        confirmadas.increment();
+        tasaConfirmadas.registrar();
+    }
+
+    void transaccionDeshecha() {
+        deshechas.increment();
+        tasaDeshechas.registrar();
+    }
+
+    @Override
+    public boolean isFactoriaAbierta() {
+        return JPAUtil.isAbierta();
+    }
+
+    @Override
+    public String getUrl() {
+        return JPAUtil.getUrl();
+    }
+
+    @Override
+    public String getModoConexion() {
+        return JPAUtil.getConexion().modo().name();
+    }
+
+    @Override
+    public long getArranqueFactoriaMs() {
+        return JPAUtil.getArranqueMs();
+    }
+
+    @Override
+    public long getEntityManagersAbiertos() {
+        // Se leen primero los cerrados para no ver nunca un número negativo
+        long cerrados = emCerrados.sum();
+        return emCreados.sum() - cerrados;
+    }
+
+    @Override
+    public long getEntityManagersCreados() {
+        return emCreados.sum();
+    }
+
+    @Override
+    public long getTransaccionesConfirmadas() {
+        return confirmadas.sum();
+    }
+
+    @Override
+    public long getTransaccionesDeshechas() {
+        return deshechas.sum();
+    }
+
+    @Override
+    public double getConfirmacionesPorSegundo() {
+        return tasaConfirmadas.porSegundo();
+    }
+
+    @Override
+    public double getRollbacksPorSegundo() {
+        return tasaDeshechas.porSegundo();
+    }
+
+    @Override
+    public double getDuracionMediaTransaccionMs() {
+        return duracionTransacciones.getMean() / 1_000_000.0;
+    }
+
+    @Override
+    public double getDuracionP99TransaccionMs() {
+        return duracionTransacciones.percentile(99) / 1_000_000.0;
+    }
+
+    @Override
+    public void resetEstadisticas() {
+        // Los EntityManagers abiertos no se tocan: siguen abiertos y se cerrarán más tarde
+        confirmadas.reset();
+        deshechas.reset();
+        tasaConfirmadas.reset();
+        tasaDeshechas.reset();
+        duracionTransacciones.reset();
+    }
+}
@@ -0,0 +1,325 @@
+package session;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.Persistence;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Instantáneas periódicas de la base de datos para las consultas de informes.
+ * <p>
+ * Si se activan con {@code -Dinstantanea.intervaloMin=N} (desactivadas por defecto), cada N minutos se hace
+ * una copia de seguridad en caliente de {@code db/ad.odb} con la consulta {@code "objectdb backup"} de ObjectDB,
+ * que produce una copia coherente sin detener la aplicación, en una subcarpeta nueva de
+ * {@code -Dinstantanea.carpeta} ({@code db/instantaneas} por defecto). Después se abre una factoría sobre la
+ * copia y se publica en {@link JPAUtil#getFactoriaInformes()}. Las consultas pesadas de informes leen de la
+ * copia y nunca esperan por los bloqueos de los alquileres; a cambio, ven los datos de la última instantánea.
+ * </p>
+ * <p>
+ * {@link #leer(Function)} da a la consulta un EntityManager de solo lectura sobre la instantánea actual: no
+ * permite transacciones ni {@code persist}, {@code merge}, {@code remove} o {@code flush}, así que la copia no
+ * se modifica nunca. Solo pasan por aquí las consultas de informes que toleran datos algo antiguos (como los
+ * géneros del catálogo); los recuentos y el resto de lecturas de los repositorios usan siempre la base de datos
+ * principal. Con las instantáneas desactivadas también leen de la principal. Cada instantánea
+ * cuenta sus lecturas en curso, de modo que la anterior se cierra y se borra cuando termina su última lectura y
+ * no a mitad de un informe.
+ * </p>
+ * <p>
+ * Solo funciona con la conexión embebida: en modo servidor la copia se escribiría en el equipo del servidor.
+ * En ese caso, hasta que se crea la primera instantánea, o si la llamada está dentro de una unidad de trabajo
+ * (y debe ver sus propios cambios), los informes leen de la base de datos principal.
+ * </p>
+ */
+public final class InstantaneaInformes {
+
+    /**
+     * Minutos entre instantáneas si no se indica {@code -Dinstantanea.intervaloMin}: 0, desactivadas.
+     * Cada instantánea es una copia completa de la base de datos, así que solo compensa si hay informes pesados.
+     */
+    public static final long INTERVALO_POR_DEFECTO_MIN = 0;
+
+    /**
+     * Carpeta de las instantáneas si no se indica {@code -Dinstantanea.carpeta}.
+     */
+    public static final String CARPETA_POR_DEFECTO = "db/instantaneas";
+
+    // Métodos del EntityManager que podrían modificar la instantánea
+    private static final Set<String> ESCRITURAS =
+            Set.of("getTransaction", "joinTransaction", "persist", "merge", "remove", "flush", "lock");
+
+    private static final DateTimeFormatter FORMATO_CARPETA = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private static final InstantaneaInformes INSTANCIA = new InstantaneaInformes();
+
+    private final long intervaloMin = Long.getLong("instantanea.intervaloMin", INTERVALO_POR_DEFECTO_MIN);
+    private final Path carpeta = Path.of(System.getProperty("instantanea.carpeta", CARPETA_POR_DEFECTO));
+
+    private volatile Generacion actual;
+    private ScheduledExecutorService programador;
+
+    /**
+     * Una instantánea abierta: su factoría, su carpeta y cuántos la usan.
+     * <p>
+     * {@code usos} empieza en 1, la referencia de {@link #actual}; cada lectura suma uno mientras dura.
+     * Al llegar a 0 la instantánea está retirada y ya no se puede adquirir.
+     * </p>
+     */
+    private static final class Generacion {
+        private final EntityManagerFactory factoria;
+        private final Path carpeta;
+        private final long creadaMs;
+        private final long duracionMs;
+        private final AtomicInteger usos = new AtomicInteger(1);
+
+        private Generacion(EntityManagerFactory factoria, Path carpeta, long creadaMs, long duracionMs) {
+            this.factoria = factoria;
+            this.carpeta = carpeta;
+            this.creadaMs = creadaMs;
+            this.duracionMs = duracionMs;
+        }
+
+        private boolean adquirir() {
+            int usosActuales;
+            do {
+                usosActuales = usos.get();
+                if (usosActuales == 0) return false;
+            } while (!usos.compareAndSet(usosActuales, usosActuales + 1));
+            return true;
+        }
+
+        private void liberar() {
+            if (usos.decrementAndGet() == 0) {
+                if (factoria.isOpen()) factoria.close();
+                borrar(carpeta);
+            }
+        }
+    }
+
+    private InstantaneaInformes() {}
+
+    /**
+     * Obtiene el gestor de instantáneas compartido.
+     *
+     * @return La instancia única.
+     */
+    public static InstantaneaInformes getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Crea la primera instantánea y programa las siguientes. No hace nada si están desactivadas, si la conexión
+     * es a un servidor o si ya se había iniciado. Se espera que se llame con la base de datos ya arrancada,
+     * p. ej. como fase de {@link ArranqueBaseDatos#enSegundoPlano(String, Runnable)}.
+     */
+    public void iniciar() {
+        if (intervaloMin <= 0) return;
+        if (JPAUtil.getConexion().modo() != ConfiguracionConexion.Modo.EMBEBIDO) {
+            System.out.println("Instantáneas de informes desactivadas: la conexión es a un servidor ObjectDB.");
+            return;
+        }
+        synchronized (this) {
+            if (programador != null) return;
+            programador = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("instantanea-informes").daemon(true).factory());
+            programador.scheduleWithFixedDelay(this::crearSinFallar, intervaloMin, intervaloMin, TimeUnit.MINUTES);
+        }
+        // Las de una ejecución anterior ya no sirven: pueden ser de hace días
+        borrarAnteriores();
+        // Si la primera falla, la fase de arranque lo anota y se reintenta en el siguiente intervalo
+        crear();
+    }
+
+    /**
+     * Crea una instantánea nueva ahora y la publica como factoría de informes. La anterior se cierra y se borra
+     * cuando terminan las lecturas que la estén usando.
+     *
+     * @throws RuntimeException Si la copia de seguridad o la apertura de la copia fallan; la instantánea
+     *                          anterior sigue en uso.
+     */
+    public synchronized void crear() {
+        long inicio = System.nanoTime();
+        Path destino = carpeta.resolve(LocalDateTime.now().format(FORMATO_CARPETA)).toAbsolutePath();
+        EntityManagerFactory factoria = null;
+        try {
+            Files.createDirectories(destino);
+            // Copia en caliente: ObjectDB la hace coherente sin bloquear a los demás usuarios de la base de datos
+            UnitOfWork.read(em -> em.createQuery("objectdb backup")
+                    .setParameter("target", destino.toFile())
+                    .getSingleResult());
+            ConfiguracionConexion conexion = JPAUtil.getConexion();
+            String url = "objectdb:" + ficheroCopia(destino);
+            factoria = Persistence.createEntityManagerFactory("objectdbPU", new ConfiguracionConexion(
+                    ConfiguracionConexion.Modo.EMBEBIDO, url, conexion.usuario(), conexion.clave(), conexion.puerto())
+                    .propiedadesJpa());
+        } catch (IOException | RuntimeException e) {
+            if (factoria != null) factoria.close();
+            borrar(destino);
+            throw new RuntimeException("No se pudo crear la instantánea de informes en " + destino, e);
+        }
+        Generacion anterior = actual;
+        actual = new Generacion(factoria, destino, System.currentTimeMillis(), (System.nanoTime() - inicio) / 1_000_000);
+        JPAUtil.setFactoriaInformes(factoria);
+        if (anterior != null) anterior.liberar();
+    }
+
+    /**
+     * Ejecuta una consulta de informes sobre la instantánea actual, o sobre la base de datos principal si no hay
+     * o si ya hay una unidad de trabajo en curso en el hilo.
+     * <p>
+     * El EntityManager es de solo lectura: los métodos que escriben lanzan {@link IllegalStateException}.
+     * La instantánea no se cierra mientras dura la consulta aunque se cree otra nueva.
+     * Las entidades devueltas quedan desvinculadas.
+     * </p>
+     *
+     * @param consulta La consulta a ejecutar.
+     * @param <R>      El tipo del resultado.
+     * @return El resultado de la consulta.
+     */
+    public <R> R leer(Function<EntityManager, R> consulta) {
+        Generacion generacion;
+        do {
+            generacion = actual;
+            if (generacion == null || UnitOfWork.isActive()) {
+                return UnitOfWork.read(em -> consulta.apply(soloLectura(em)));
+            }
+        } while (!generacion.adquirir());
+        try {
+            EntityManager em = generacion.factoria.createEntityManager();
+            try {
+                em.setFlushMode(FlushModeType.COMMIT);
+                return consulta.apply(soloLectura(em));
+            } finally {
+                em.close();
+            }
+        } finally {
+            generacion.liberar();
+        }
+    }
+
+    /**
+     * @return {@code true} si hay una instantánea publicada.
+     */
+    public boolean isDisponible() {
+        return actual != null;
+    }
+
+    /**
+     * @return El instante (ms desde la época) en que terminó la instantánea actual, o -1 si no hay.
+     */
+    public long getCreadaMs() {
+        Generacion generacion = actual;
+        return generacion != null ? generacion.creadaMs : -1;
+    }
+
+    /**
+     * @return Lo que tardaron la copia y la apertura de la instantánea actual en milisegundos, o -1 si no hay.
+     */
+    public long getDuracionMs() {
+        Generacion generacion = actual;
+        return generacion != null ? generacion.duracionMs : -1;
+    }
+
+    /**
+     * Detiene las instantáneas periódicas, quita la factoría de informes de {@link JPAUtil} y cierra la
+     * instantánea actual en cuanto no la use nadie. Debe llamarse antes de {@link JPAUtil#shutdown()}.
+     */
+    public void shutdown() {
+        ScheduledExecutorService programado;
+        synchronized (this) {
+            programado = programador;
+            programador = null;
+        }
+        if (programado != null) {
+            programado.shutdownNow();
+            try {
+                programado.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            Generacion ultima = actual;
+            actual = null;
+            JPAUtil.setFactoriaInformes(null);
+            if (ultima != null) ultima.liberar();
+        }
+    }
+
+    /**
+     * Envuelve un EntityManager en un proxy que rechaza las transacciones y las escrituras.
+     */
+    private static EntityManager soloLectura(EntityManager em) {
+        InvocationHandler manejador = (proxy, metodo, argumentos) -> {
+            if (ESCRITURAS.contains(metodo.getName())) {
+                throw new IllegalStateException("Las consultas de informes son de solo lectura: no admiten " + metodo.getName());
+            }
+            try {
+                return metodo.invoke(em, argumentos);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class}, manejador);
+    }
+
+    private void crearSinFallar() {
+        try {
+            crear();
+        } catch (RuntimeException e) {
+            // Se reintenta en el siguiente intervalo; mientras, los informes siguen con la instantánea anterior
+            System.err.println(e.getMessage() + ": " + e.getCause());
+        }
+    }
+
+    /**
+     * Localiza el fichero de la copia: ObjectDB lo crea con el nombre de la base de datos dentro del destino.
+     */
+    private static Path ficheroCopia(Path destino) throws IOException {
+        try (Stream<Path> ficheros = Files.walk(destino)) {
+            List<Path> copias = ficheros.filter(f -> f.getFileName().toString().endsWith(".odb")).toList();
+            if (copias.size() != 1) {
+                throw new IOException("Se esperaba un fichero .odb en la copia y hay " + copias.size());
+            }
+            return copias.getFirst();
+        }
+    }
+
+    private void borrarAnteriores() {
+        if (!Files.isDirectory(carpeta)) return;
+        try (Stream<Path> anteriores = Files.list(carpeta)) {
+            anteriores.filter(Files::isDirectory).forEach(InstantaneaInformes::borrar);
+        } catch (IOException e) {
+            System.err.println("No se pudieron borrar las instantáneas anteriores: " + e.getMessage());
+        }
+    }
+
+    private static void borrar(Path directorio) {
+        if (!Files.exists(directorio)) return;
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            for (Path f : ficheros.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(f);
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo borrar la instantánea " + directorio + ": " + e.getMessage());
+        }
+    }
+}
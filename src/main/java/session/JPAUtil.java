@@ -2,8 +2,6 @@ package session;
 
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Clase de utilidad para gestionar la factoría de EntityManagers de JPA (EntityManagerFactory).
@@ -18,30 +16,35 @@ public class JPAUtil {
     // El nombre debe coincidir EXACTAMENTE con el <persistence-unit name="..."> de tu persistence.xml
     private static final String PERSISTENCE_UNIT_NAME = "objectdbPU";
     private static EntityManagerFactory factory;
+    private static ConfiguracionConexion conexion;
+    private static long arranqueMs;
+    // Factoría de la instantánea de solo lectura para informes; la gestiona InstantaneaInformes
+    private static volatile EntityManagerFactory factoriaInformes;
 
     /**
      * Obtiene la instancia única de {@link EntityManagerFactory}.
      * <p>
      * Si la factoría no ha sido creada, la inicializa utilizando la configuración definida
-     * en {@code persistence.xml} o mediante propiedades programáticas si es necesario.
+     * en {@code persistence.xml} y la conexión de {@link ConfiguracionConexion} (embebida o con un servidor).
+     * Es sincronizado porque las tareas en segundo plano pueden pedir la factoría a la vez.
      * </p>
      *
      * @return La instancia de {@link EntityManagerFactory}.
      * @throws RuntimeException Si ocurre un error crítico al crear la factoría.
      */
-    public static EntityManagerFactory getEntityManagerFactory() {
+    public static synchronized EntityManagerFactory getEntityManagerFactory() {
         if (factory == null) {
             try {
                 // Intentamos pasar la URL explícitamente si el persistence.xml falla
-                Map<String, String> properties = new HashMap<>();
-                properties.put("javax.persistence.jdbc.url", "objectdb:db/ad.odb");
-                properties.put("jakarta.persistence.jdbc.url", "objectdb:db/ad.odb");
-                
-                factory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, properties);
+                long inicio = System.nanoTime();
+                // Embebido o servidor según conexion.properties (o -Dobjectdb.url=..., p. ej. en las pruebas de rendimiento)
+                conexion = ConfiguracionConexion.cargar();
+                factory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, conexion.propiedadesJpa());
                 
                 if (factory == null) {
                     throw new RuntimeException("Persistence.createEntityManagerFactory devolvió null. Revisa persistence.xml");
                 }
+                arranqueMs = (System.nanoTime() - inicio) / 1_000_000;
             } catch (Exception e) {
                 System.err.println("--- ERROR CRÍTICO AL INICIAR LA FACTORÍA ---");
                 e.printStackTrace();
@@ -55,11 +58,70 @@ public class JPAUtil {
      * Cierra la {@link EntityManagerFactory} y libera los recursos asociados.
      * <p>
      * Debe llamarse al finalizar la aplicación para asegurar un cierre limpio de la conexión a la base de datos.
+     * Tras cerrarla, la siguiente llamada a {@link #getEntityManagerFactory()} crea una factoría nueva.
      * </p>
      */
-    public static void shutdown() {
+    public static synchronized void shutdown() {
         if (factory != null && factory.isOpen()) {
             factory.close();
         }
+        factory = null;
+    }
+
+    /**
+     * Obtiene la factoría dedicada a consultas de informes y estadísticas.
+     * <p>
+     * Apunta a la última instantánea de la base de datos creada por {@link InstantaneaInformes}, una copia
+     * que nadie modifica, de modo que las lecturas pesadas no compiten con los alquileres por {@code db/ad.odb}.
+     * Mientras no hay instantánea (desactivadas, modo servidor o aún no creada), es la factoría principal.
+     * La instantánea se sustituye periódicamente: para que no se cierre a mitad de un informe y para que la
+     * consulta no pueda escribir, es preferible consultar con {@link InstantaneaInformes#leer(java.util.function.Function)}.
+     * </p>
+     *
+     * @return La factoría de la instantánea, o la principal si no la hay.
+     */
+    public static EntityManagerFactory getFactoriaInformes() {
+        EntityManagerFactory informes = factoriaInformes;
+        return informes != null ? informes : getEntityManagerFactory();
+    }
+
+    /**
+     * Cambia la factoría de informes por la de una instantánea nueva, o la quita con {@code null}.
+     * No cierra la anterior: de eso se encarga {@link InstantaneaInformes} cuando nadie la usa.
+     *
+     * @param nueva La factoría de la nueva instantánea.
+     */
+    static void setFactoriaInformes(EntityManagerFactory nueva) {
+        factoriaInformes = nueva;
+    }
+
+    /**
+     * Indica si la factoría está creada y abierta, sin crearla si no lo está.
+     *
+     * @return {@code true} si la factoría está abierta.
+     */
+    public static synchronized boolean isAbierta() {
+        return factory != null && factory.isOpen();
+    }
+
+    /**
+     * @return La URL con la que se creó la factoría, o la que se usará si aún no se ha creado.
+     */
+    public static synchronized String getUrl() {
+        return getConexion().url();
+    }
+
+    /**
+     * @return La configuración con la que se creó la factoría, o la que se usará si aún no se ha creado.
+     */
+    public static synchronized ConfiguracionConexion getConexion() {
+        return conexion != null ? conexion : ConfiguracionConexion.cargar();
+    }
+
+    /**
+     * @return Lo que tardó en crearse la última factoría, en milisegundos (0 si aún no se ha creado).
+     */
+    public static synchronized long getArranqueMs() {
+        return arranqueMs;
     }
 }
\ No newline at end of file
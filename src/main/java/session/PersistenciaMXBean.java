@@ -0,0 +1,77 @@
+package session;
+
+/**
+ * Interfaz de gestión (JMX) con el estado de la persistencia de la aplicación.
+ * <p>
+ * Se registra como {@value utils.MonitorJMX#DOMINIO}{@code :type=Persistencia} y se puede consultar con JConsole o
+ * VisualVM mientras el cliente está en marcha. Las tasas se calculan sobre el último minuto; los totales,
+ * desde el arranque o desde el último {@link #resetEstadisticas()}.
+ * </p>
+ */
+public interface PersistenciaMXBean {
+
+    /**
+     * @return {@code true} si la factoría de EntityManagers está creada y abierta.
+     */
+    boolean isFactoriaAbierta();
+
+    /**
+     * @return La URL de conexión de ObjectDB.
+     */
+    String getUrl();
+
+    /**
+     * @return El modo de conexión: {@code EMBEBIDO} o {@code SERVIDOR}.
+     */
+    String getModoConexion();
+
+    /**
+     * @return Lo que tardó en crearse la factoría, en milisegundos (0 si aún no se ha creado).
+     */
+    long getArranqueFactoriaMs();
+
+    /**
+     * @return El número de EntityManagers abiertos en este momento.
+     */
+    long getEntityManagersAbiertos();
+
+    /**
+     * @return El número total de EntityManagers creados.
+     */
+    long getEntityManagersCreados();
+
+    /**
+     * @return El número total de transacciones confirmadas.
+     */
+    long getTransaccionesConfirmadas();
+
+    /**
+     * @return El número total de transacciones deshechas.
+     */
+    long getTransaccionesDeshechas();
+
+    /**
+     * @return Las transacciones confirmadas por segundo, de media en el último minuto.
+     */
+    double getConfirmacionesPorSegundo();
+
+    /**
+     * @return Las transacciones deshechas por segundo, de media en el último minuto.
+     */
+    double getRollbacksPorSegundo();
+
+    /**
+     * @return La duración media de las transacciones confirmadas, en milisegundos.
+     */
+    double getDuracionMediaTransaccionMs();
+
+    /**
+     * @return El percentil 99 de la duración de las transacciones confirmadas, en milisegundos.
+     */
+    double getDuracionP99TransaccionMs();
+
+    /**
+     * Pone a cero los totales y la duración de las transacciones.
+     */
+    void resetEstadisticas();
+}
@@ -0,0 +1,234 @@
+package session;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de las consultas JPQL lentas, compartido por toda la aplicación.
+ * <p>
+ * {@link UnitOfWork} mide todas las consultas (ver {@link ConsultasMedidas}) y las que tardan al menos
+ * el umbral se guardan aquí, en un búfer circular de tamaño fijo: si se llena antes de volcarlo, las más
+ * antiguas se pierden y se cuentan. Un hilo en segundo plano vuelca cada pocos segundos las consultas
+ * nuevas a un fichero de texto, que rota al alcanzar un tamaño máximo; quien registra una consulta nunca
+ * espera a la escritura en disco.
+ * </p>
+ * <p>
+ * Se configura con propiedades de sistema:
+ * <ul>
+ *     <li>{@code consultas.umbralMs}: umbral en milisegundos (por defecto {@value #UMBRAL_POR_DEFECTO_MS});
+ *     un valor negativo desactiva la medición.</li>
+ *     <li>{@code consultas.capacidad}: tamaño del búfer (por defecto {@value #CAPACIDAD_POR_DEFECTO}).</li>
+ *     <li>{@code consultas.fichero}: fichero de registro (por defecto {@value #FICHERO_POR_DEFECTO}).</li>
+ *     <li>{@code consultas.fichero.maxMB}: tamaño a partir del cual rota el fichero (por defecto
+ *     {@value #TAMAÑO_MAXIMO_POR_DEFECTO_MB} MB); se guardan {@value #FICHEROS_ROTADOS} ficheros antiguos.</li>
+ * </ul>
+ * </p>
+ */
+public final class RegistroConsultasLentas {
+
+    /**
+     * Umbral por defecto a partir del cual una consulta se considera lenta, en milisegundos.
+     */
+    public static final long UMBRAL_POR_DEFECTO_MS = 500;
+    /**
+     * Número de consultas lentas que caben en el búfer por defecto.
+     */
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+    /**
+     * Fichero de registro por defecto.
+     */
+    public static final String FICHERO_POR_DEFECTO = "logs/consultas-lentas.log";
+    /**
+     * Tamaño del fichero por defecto a partir del cual rota, en megabytes.
+     */
+    public static final long TAMAÑO_MAXIMO_POR_DEFECTO_MB = 10;
+    /**
+     * Número de ficheros rotados que se conservan ({@code .1} es el más reciente).
+     */
+    public static final int FICHEROS_ROTADOS = 5;
+
+    private static final long PERIODO_VOLCADO_MS = 2_000;
+
+    private static final RegistroConsultasLentas INSTANCIA = new RegistroConsultasLentas();
+
+    private final ConsultaLenta[] bufer =
+            new ConsultaLenta[Math.max(1, Integer.getInteger("consultas.capacidad", CAPACIDAD_POR_DEFECTO))];
+    private final Path fichero = Path.of(System.getProperty("consultas.fichero", FICHERO_POR_DEFECTO));
+    private final long tamañoMaximo =
+            Long.getLong("consultas.fichero.maxMB", TAMAÑO_MAXIMO_POR_DEFECTO_MB) * 1024 * 1024;
+    private final Object escritura = new Object();
+    private volatile long umbralNanos =
+            aNanos(Long.getLong("consultas.umbralMs", UMBRAL_POR_DEFECTO_MS));
+
+    // Protegidos por this: consultas registradas desde el arranque, las ya volcadas y las perdidas sin volcar
+    private long registradas;
+    private long volcadas;
+    private long perdidas;
+
+    private ScheduledExecutorService volcador;
+
+    private RegistroConsultasLentas() {}
+
+    /**
+     * Obtiene el registro compartido.
+     *
+     * @return La instancia única del registro.
+     */
+    public static RegistroConsultasLentas getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * @return {@code true} si las consultas se están midiendo (umbral no negativo).
+     */
+    public boolean isActivo() {
+        return umbralNanos != Long.MAX_VALUE;
+    }
+
+    /**
+     * @return El umbral en nanosegundos, o {@link Long#MAX_VALUE} si la medición está desactivada.
+     */
+    public long getUmbralNanos() {
+        return umbralNanos;
+    }
+
+    /**
+     * Cambia el umbral en caliente. Las unidades de trabajo ya abiertas con la medición desactivada
+     * no se ven afectadas.
+     *
+     * @param umbralMs El nuevo umbral en milisegundos; negativo para desactivar la medición.
+     */
+    public void setUmbralMs(long umbralMs) {
+        umbralNanos = aNanos(umbralMs);
+    }
+
+    /**
+     * Guarda una consulta lenta en el búfer y, la primera vez, arranca el volcado periódico.
+     *
+     * @param consulta La consulta.
+     */
+    public void registrar(ConsultaLenta consulta) {
+        synchronized (this) {
+            bufer[(int) (registradas % bufer.length)] = consulta;
+            registradas++;
+            if (volcador == null) {
+                volcador = Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("consultas-lentas").daemon(true).factory());
+                volcador.scheduleWithFixedDelay(this::volcarPendientes,
+                        PERIODO_VOLCADO_MS, PERIODO_VOLCADO_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Devuelve las consultas lentas más recientes que siguen en el búfer, de la más antigua a la más nueva.
+     *
+     * @return Una copia de las consultas del búfer.
+     */
+    public synchronized List<ConsultaLenta> getRecientes() {
+        long desde = Math.max(0, registradas - bufer.length);
+        List<ConsultaLenta> recientes = new ArrayList<>((int) (registradas - desde));
+        for (long i = desde; i < registradas; i++) {
+            recientes.add(bufer[(int) (i % bufer.length)]);
+        }
+        return recientes;
+    }
+
+    /**
+     * @return El número de consultas lentas que se sobrescribieron en el búfer antes de volcarlas al fichero.
+     */
+    public synchronized long getPerdidas() {
+        return perdidas;
+    }
+
+    /**
+     * Escribe en el fichero las consultas registradas desde el último volcado.
+     * <p>
+     * Lo llama periódicamente el hilo de volcado; también se puede llamar a mano, p. ej. al cerrar la aplicación.
+     * Un error de escritura se informa por consola y las consultas de ese volcado se descartan.
+     * </p>
+     */
+    public void volcarPendientes() {
+        synchronized (escritura) {
+            List<ConsultaLenta> pendientes;
+            long perdidasAhora;
+            synchronized (this) {
+                long desde = Math.max(volcadas, registradas - bufer.length);
+                perdidasAhora = desde - volcadas;
+                perdidas += perdidasAhora;
+                pendientes = new ArrayList<>((int) (registradas - desde));
+                for (long i = desde; i < registradas; i++) {
+                    pendientes.add(bufer[(int) (i % bufer.length)]);
+                }
+                volcadas = registradas;
+            }
+            if (pendientes.isEmpty() && perdidasAhora == 0) return;
+            try {
+                rotarSiHaceFalta();
+                try (BufferedWriter out = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    if (perdidasAhora > 0) {
+                        out.write("... " + perdidasAhora + " consultas lentas perdidas (búfer lleno)");
+                        out.newLine();
+                    }
+                    for (ConsultaLenta consulta : pendientes) {
+                        out.write(consulta.comoLinea());
+                        out.newLine();
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("No se pudo escribir el registro de consultas lentas: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Detiene el volcado periódico y vuelca lo que quede pendiente.
+     */
+    public void shutdown() {
+        ScheduledExecutorService actual;
+        synchronized (this) {
+            actual = volcador;
+            volcador = null;
+        }
+        if (actual != null) {
+            actual.shutdown();
+            try {
+                actual.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        volcarPendientes();
+    }
+
+    private void rotarSiHaceFalta() throws IOException {
+        Path carpeta = fichero.toAbsolutePath().getParent();
+        if (carpeta != null) Files.createDirectories(carpeta);
+        if (!Files.exists(fichero) || Files.size(fichero) < tamañoMaximo) return;
+        // consultas-lentas.log.4 -> .5, ..., .log -> .log.1; el más antiguo se sobrescribe
+        for (int i = FICHEROS_ROTADOS - 1; i >= 1; i--) {
+            Path origen = rotado(i);
+            if (Files.exists(origen)) Files.move(origen, rotado(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(fichero, rotado(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotado(int numero) {
+        return fichero.resolveSibling(fichero.getFileName() + "." + numero);
+    }
+
+    private static long aNanos(long umbralMs) {
+        return umbralMs < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(umbralMs);
+    }
+}
@@ -0,0 +1,66 @@
+package session;
+
+import com.objectdb.Server;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Lanzador del servidor ObjectDB para el modo cliente/servidor.
+ * <p>
+ * En modo embebido solo un proceso puede abrir {@code db/ad.odb}; con el servidor en marcha, varios clientes
+ * de escritorio comparten la misma base de datos configurando {@code modo=servidor} en
+ * {@link ConfiguracionConexion#FICHERO conexion.properties}. Uso:
+ * <pre>
+ *     mvn -Pservidor compile exec:java                      (arrancar)
+ *     mvn -Pservidor exec:java -Dexec.args=parar            (parar)
+ * </pre>
+ * El servidor escucha en {@code servidor.puerto} de la configuración y sirve las bases de datos de la carpeta
+ * {@code db} del directorio indicado con {@code -Dobjectdb.home} (por defecto, el directorio de trabajo):
+ * la configuración por defecto de ObjectDB usa {@code $objectdb/db} como carpeta de datos, de modo que
+ * {@code servidor.base=ad.odb} es el mismo fichero que usa el modo embebido. Para otra configuración
+ * (usuarios, permisos, carpeta de datos) se puede indicar un {@code objectdb.conf} con {@code -Dservidor.conf=ruta}.
+ * </p>
+ */
+public final class ServidorObjectDB {
+
+    /**
+     * Constructor privado para prevenir la instanciación.
+     */
+    private ServidorObjectDB() {}
+
+    /**
+     * Arranca o para el servidor.
+     *
+     * @param args {@code arrancar} (por defecto), {@code parar} o {@code reiniciar}.
+     */
+    public static void main(String[] args) {
+        String orden = args.length > 0 ? args[0] : "arrancar";
+        String comando = switch (orden) {
+            case "arrancar" -> "start";
+            case "parar" -> "stop";
+            case "reiniciar" -> "restart";
+            default -> throw new IllegalArgumentException("Orden desconocida: " + orden
+                    + " (debe ser arrancar, parar o reiniciar)");
+        };
+
+        ConfiguracionConexion conexion = ConfiguracionConexion.cargar();
+        if (System.getProperty("objectdb.home") == null) {
+            System.setProperty("objectdb.home", Path.of("").toAbsolutePath().toString());
+        }
+        try {
+            Files.createDirectories(Path.of(System.getProperty("objectdb.home"), "db"));
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo crear la carpeta de datos del servidor", e);
+        }
+
+        String conf = System.getProperty("servidor.conf");
+        String[] argumentos = conf != null
+                ? new String[]{"-conf", conf, "-port", String.valueOf(conexion.puerto()), comando}
+                : new String[]{"-port", String.valueOf(conexion.puerto()), comando};
+        System.out.println("Servidor ObjectDB (" + orden + ") en el puerto " + conexion.puerto()
+                + ", datos en " + Path.of(System.getProperty("objectdb.home"), "db"));
+        Server.main(argumentos);
+    }
+}
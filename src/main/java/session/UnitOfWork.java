@@ -0,0 +1,310 @@
+package session;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Unidad de trabajo asociada al hilo actual sobre la factoría de {@link JPAUtil}.
+ * <p>
+ * En lugar de que cada método de repositorio o servicio cree y cierre su propio {@link EntityManager},
+ * todos obtienen el del hilo a través de esta clase. La llamada más externa abre el EntityManager y
+ * lo cierra al terminar; las llamadas anidadas (por ejemplo, un servicio que usa varios repositorios)
+ * reutilizan el mismo EntityManager y, si hay una transacción en curso, se unen a ella.
+ * </p>
+ * <p>
+ * Las entidades devueltas quedan desvinculadas (detached) cuando termina la unidad de trabajo más externa,
+ * igual que ocurría al cerrar el EntityManager en cada método.
+ * </p>
+ * <p>
+ * Cada EntityManager abierto y cada transacción propia confirmada o deshecha se anotan en
+ * {@link EstadisticasPersistencia}, que se publica por JMX, y las consultas que superan el umbral
+ * configurado, en el {@link RegistroConsultasLentas}.
+ * </p>
+ */
+public final class UnitOfWork {
+
+    private static final ThreadLocal<Contexto> CONTEXTO = new ThreadLocal<>();
+    private static final EstadisticasPersistencia ESTADISTICAS = EstadisticasPersistencia.getInstance();
+    private static final RegistroConsultasLentas CONSULTAS = RegistroConsultasLentas.getInstance();
+
+    /**
+     * Estado de la unidad de trabajo del hilo: el EntityManager compartido y el nivel de anidamiento.
+     */
+    private static final class Contexto {
+        private final EntityManager em;
+        private int profundidad;
+        private final List<Runnable> trasConfirmar = new ArrayList<>();
+
+        private Contexto(EntityManager em) {
+            this.em = em;
+        }
+    }
+
+    /**
+     * Constructor privado para prevenir la instanciación.
+     */
+    private UnitOfWork() {}
+
+    /**
+     * Ejecuta un trabajo de solo lectura con el EntityManager del hilo.
+     * <p>
+     * No abre transacción: si ya hay una en curso (llamada anidada), el trabajo se ejecuta dentro de ella.
+     * </p>
+     *
+     * @param trabajo La operación a ejecutar.
+     * @param <R>     El tipo del resultado.
+     * @return El resultado de la operación.
+     */
+    public static <R> R read(Function<EntityManager, R> trabajo) {
+        Contexto ctx = abrir();
+        try {
+            return trabajo.apply(ctx.em);
+        } finally {
+            cerrar(ctx);
+        }
+    }
+
+    /**
+     * Ejecuta un trabajo dentro de una transacción.
+     * <p>
+     * Si no hay transacción activa en el hilo, la inicia, y la confirma al terminar o la deshace si se lanza
+     * una excepción. Si ya hay una activa, el trabajo se une a ella: en caso de error la marca como
+     * {@code rollbackOnly} y relanza la excepción, dejando la decisión final a la llamada que la abrió.
+     * </p>
+     *
+     * @param trabajo La operación a ejecutar.
+     * @param <R>     El tipo del resultado.
+     * @return El resultado de la operación.
+     */
+    public static <R> R inTransaction(Function<EntityManager, R> trabajo) {
+        Contexto ctx = abrir();
+        EntityTransaction tx = ctx.em.getTransaction();
+        boolean propia = !tx.isActive();
+        long inicio = System.nanoTime();
+        try {
+            if (propia) tx.begin();
+            R resultado = trabajo.apply(ctx.em);
+            if (propia) {
+                tx.commit();
+                ESTADISTICAS.transaccionConfirmada(inicio);
+                ejecutarTrasConfirmar(ctx);
+            }
+            return resultado;
+        } catch (RuntimeException e) {
+            if (propia) ctx.trasConfirmar.clear();
+            if (tx.isActive()) {
+                if (propia) {
+                    tx.rollback();
+                    ESTADISTICAS.transaccionDeshecha();
+                } else {
+                    tx.setRollbackOnly();
+                }
+            }
+            throw e;
+        } finally {
+            cerrar(ctx);
+        }
+    }
+
+    /**
+     * Variante de {@link #inTransaction(Function)} para operaciones sin resultado.
+     *
+     * @param trabajo La operación a ejecutar.
+     */
+    public static void runInTransaction(Consumer<EntityManager> trabajo) {
+        inTransaction(em -> {
+            trabajo.accept(em);
+            return null;
+        });
+    }
+
+    /**
+     * Aplica una operación a cada elemento de una colección, agrupándolos en lotes transaccionales.
+     * <p>
+     * Cada lote de {@code tamañoLote} elementos se ejecuta en su propia transacción; tras confirmarla
+     * se limpia el contexto de persistencia, de modo que el número de entidades gestionadas nunca supera
+     * el tamaño del lote. Si la llamada se produce dentro de una transacción ya abierta, todos los lotes
+     * se unen a ella y solo se hace {@code flush()} entre lotes, ya que limpiar o confirmar a mitad
+     * rompería la atomicidad que espera el llamante.
+     * </p>
+     *
+     * @param elementos  Los elementos a procesar.
+     * @param tamañoLote El número de elementos por transacción (mínimo 1).
+     * @param operacion  La operación a aplicar con el EntityManager del lote.
+     * @param <E>        El tipo de los elementos.
+     * @param <R>        El tipo del resultado por elemento.
+     * @return Los resultados de la operación, en el orden de los elementos.
+     */
+    public static <E, R> List<R> inChunks(Collection<E> elementos, int tamañoLote,
+                                          BiFunction<EntityManager, E, R> operacion) {
+        int lote = Math.max(1, tamañoLote);
+        Contexto ctx = abrir();
+        try {
+            boolean transaccionExterna = ctx.em.getTransaction().isActive();
+            List<R> resultados = new ArrayList<>(elementos.size());
+            Iterator<E> it = elementos.iterator();
+            while (it.hasNext()) {
+                resultados.addAll(inTransaction(em -> {
+                    List<R> parcial = new ArrayList<>(lote);
+                    for (int i = 0; i < lote && it.hasNext(); i++) {
+                        parcial.add(operacion.apply(em, it.next()));
+                    }
+                    return parcial;
+                }));
+                if (transaccionExterna) {
+                    ctx.em.flush();
+                } else if (ctx.profundidad == 1) {
+                    // Lote confirmado: desvinculamos sus entidades para acotar la memoria
+                    ctx.em.clear();
+                }
+            }
+            return resultados;
+        } finally {
+            cerrar(ctx);
+        }
+    }
+
+    /**
+     * Programa una acción para cuando se confirme la transacción en curso del hilo.
+     * <p>
+     * Si no hay transacción activa, la acción se ejecuta inmediatamente. Si la transacción se deshace,
+     * la acción se descarta. Se usa para mantener cachés en memoria coherentes con lo que realmente
+     * se ha escrito en la base de datos.
+     * </p>
+     *
+     * @param accion La acción a ejecutar tras el commit.
+     */
+    public static void afterCommit(Runnable accion) {
+        Contexto ctx = CONTEXTO.get();
+        if (ctx == null || !ctx.em.getTransaction().isActive()) {
+            accion.run();
+        } else {
+            ctx.trasConfirmar.add(accion);
+        }
+    }
+
+    /**
+     * Ejecuta un trabajo de solo lectura con un EntityManager propio de otra factoría (p. ej. la de un fragmento
+     * del catálogo), fuera de la unidad de trabajo del hilo.
+     * <p>
+     * El EntityManager se abre y se cierra en la llamada, pero cuenta en {@link EstadisticasPersistencia} y sus
+     * consultas pasan por el {@link RegistroConsultasLentas} igual que las del EntityManager del hilo.
+     * </p>
+     *
+     * @param factoria La factoría de la que abrir el EntityManager.
+     * @param trabajo  La operación a ejecutar.
+     * @param <R>      El tipo del resultado.
+     * @return El resultado de la operación.
+     */
+    public static <R> R readOn(EntityManagerFactory factoria, Function<EntityManager, R> trabajo) {
+        EntityManager em = crear(factoria);
+        try {
+            return trabajo.apply(em);
+        } finally {
+            cerrar(em);
+        }
+    }
+
+    /**
+     * Variante de {@link #readOn(EntityManagerFactory, Function)} que ejecuta el trabajo en una transacción
+     * propia, confirmada al terminar o deshecha si se lanza una excepción. No admite {@link #afterCommit(Runnable)}.
+     *
+     * @param factoria La factoría de la que abrir el EntityManager.
+     * @param trabajo  La operación a ejecutar.
+     * @param <R>      El tipo del resultado.
+     * @return El resultado de la operación.
+     */
+    public static <R> R inTransactionOn(EntityManagerFactory factoria, Function<EntityManager, R> trabajo) {
+        EntityManager em = crear(factoria);
+        long inicio = System.nanoTime();
+        try {
+            em.getTransaction().begin();
+            R resultado = trabajo.apply(em);
+            em.getTransaction().commit();
+            ESTADISTICAS.transaccionConfirmada(inicio);
+            return resultado;
+        } finally {
+            cerrar(em);
+        }
+    }
+
+    /**
+     * Indica si el hilo actual está dentro de una unidad de trabajo.
+     * <p>
+     * Útil para las cachés: dentro de una unidad de trabajo se espera trabajar con entidades gestionadas
+     * por su EntityManager, no con instancias compartidas desvinculadas.
+     * </p>
+     *
+     * @return {@code true} si hay una unidad de trabajo abierta en el hilo.
+     */
+    public static boolean isActive() {
+        return CONTEXTO.get() != null;
+    }
+
+    /**
+     * Indica si la llamada actual es la unidad de trabajo más externa del hilo.
+     * <p>
+     * Solo la unidad más externa debería limpiar el contexto de persistencia ({@code clear()}),
+     * ya que hacerlo en una llamada anidada desvincularía entidades que el llamante sigue usando.
+     * </p>
+     *
+     * @return {@code true} si no hay unidades de trabajo anidadas por encima de la actual.
+     */
+    public static boolean isOutermost() {
+        Contexto ctx = CONTEXTO.get();
+        return ctx != null && ctx.profundidad == 1;
+    }
+
+    private static Contexto abrir() {
+        Contexto ctx = CONTEXTO.get();
+        if (ctx == null) {
+            ctx = new Contexto(crear(JPAUtil.getEntityManagerFactory()));
+            CONTEXTO.set(ctx);
+        }
+        ctx.profundidad++;
+        return ctx;
+    }
+
+    private static void ejecutarTrasConfirmar(Contexto ctx) {
+        List<Runnable> acciones = new ArrayList<>(ctx.trasConfirmar);
+        ctx.trasConfirmar.clear();
+        for (Runnable accion : acciones) {
+            accion.run();
+        }
+    }
+
+    private static EntityManager crear(EntityManagerFactory factoria) {
+        EntityManager em = factoria.createEntityManager();
+        ESTADISTICAS.entityManagerCreado();
+        // Con la medición activa, las consultas lentas quedan en el RegistroConsultasLentas
+        return CONSULTAS.isActivo() ? ConsultasMedidas.envolver(em) : em;
+    }
+
+    private static void cerrar(Contexto ctx) {
+        if (--ctx.profundidad > 0) return;
+        CONTEXTO.remove();
+        cerrar(ctx.em);
+    }
+
+    private static void cerrar(EntityManager em) {
+        try {
+            // Una transacción que nadie confirmó (p. ej. abierta a mano dentro de read) no debe quedar colgada
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+                ESTADISTICAS.transaccionDeshecha();
+            }
+        } finally {
+            em.close();
+            ESTADISTICAS.entityManagerCerrado();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package user;
+
+import copiaPelicula.Disponibilidad;
+import pelicula.CambiosCatalogo;
+import pelicula.FiltroCatalogo;
+import pelicula.OrdenCatalogo;
+import pelicula.Pelicula;
+import pelicula.PeliculaResumen;
+import utils.AsyncUtil;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fachada asíncrona sobre {@link UserService} para los controladores.
+ * <p>
+ * Cada operación se ejecuta en un hilo virtual mediante {@link AsyncUtil} y devuelve un
+ * {@link CompletableFuture}. Los controladores encadenan la actualización de la interfaz con
+ * {@link AsyncUtil#fx()} para volver al hilo de JavaFX.
+ * </p>
+ */
+public class AsyncUserService {
+
+    private final UserService userService;
+
+    /**
+     * Crea la fachada sobre un {@link UserService} nuevo, instrumentado para registrar sus llamadas
+     * en {@link utils.Metricas}.
+     */
+    public AsyncUserService() {
+        this(new UserServiceInstrumentado());
+    }
+
+    /**
+     * Crea la fachada sobre el servicio indicado.
+     *
+     * @param userService El servicio síncrono que realiza las operaciones.
+     */
+    public AsyncUserService(UserService userService) {
+        this.userService = userService;
+    }
+
+    /**
+     * Alquila una copia disponible de la película en segundo plano.
+     *
+     * @param actor    El usuario que realiza el alquiler.
+     * @param pelicula La película que se desea alquilar.
+     * @return Un {@link CompletableFuture} que falla si el usuario ya tiene un alquiler o no hay copias.
+     * @see UserService#addPeliculaOrCopia(User, Pelicula)
+     */
+    public CompletableFuture<Void> addPeliculaOrCopia(User actor, Pelicula pelicula) {
+        return AsyncUtil.run(() -> userService.addPeliculaOrCopia(actor, pelicula));
+    }
+
+    /**
+     * Recupera todas las películas en segundo plano.
+     *
+     * @return Un {@link CompletableFuture} con todas las películas.
+     */
+    public CompletableFuture<List<Pelicula>> findAllPeliculas() {
+        return AsyncUtil.supply(userService::findAllPeliculas);
+    }
+
+    /**
+     * Busca una película por su ID en segundo plano.
+     *
+     * @param id El ID de la película.
+     * @return Un {@link CompletableFuture} con la película, si existe.
+     */
+    public CompletableFuture<Optional<Pelicula>> findPeliculaById(Integer id) {
+        return AsyncUtil.supply(() -> userService.findPeliculaById(id));
+    }
+
+    /**
+     * Recupera una página del catálogo ordenada por ID en segundo plano.
+     *
+     * @param afterId El ID de la última película ya cargada, o {@code null} para empezar desde el principio.
+     * @param limit   El tamaño máximo de la página.
+     * @return Un {@link CompletableFuture} con las películas de la página.
+     */
+    public CompletableFuture<List<Pelicula>> findPeliculasPage(Integer afterId, int limit) {
+        return AsyncUtil.supply(() -> userService.findPeliculasPage(afterId, limit));
+    }
+
+    /**
+     * Recupera una página del catálogo ordenada por el campo indicado en segundo plano.
+     *
+     * @param orden      El campo de ordenación.
+     * @param ascendente Si el orden es ascendente.
+     * @param despuesDe  La última película ya cargada, o {@code null} para la primera página.
+     * @param limit      El tamaño máximo de la página.
+     * @return Un {@link CompletableFuture} con las películas de la página.
+     */
+    public CompletableFuture<List<Pelicula>> findPeliculasPage(OrdenCatalogo orden, boolean ascendente,
+                                                               Pelicula despuesDe, int limit) {
+        return AsyncUtil.supply(() -> userService.findPeliculasPage(orden, ascendente, despuesDe, limit));
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo ordenada por ID en segundo plano.
+     *
+     * @param afterId El ID de la última película ya cargada, o {@code null} para empezar desde el principio.
+     * @param limit   El tamaño máximo de la página.
+     * @return Un {@link CompletableFuture} con los resúmenes de la página.
+     */
+    public CompletableFuture<List<PeliculaResumen>> findResumenesPage(Integer afterId, int limit) {
+        return AsyncUtil.supply(() -> userService.findResumenesPage(afterId, limit));
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo ordenada por el campo indicado en segundo plano.
+     *
+     * @param orden      El campo de ordenación.
+     * @param ascendente Si el orden es ascendente.
+     * @param despuesDe  El último resumen ya cargado, o {@code null} para la primera página.
+     * @param limit      El tamaño máximo de la página.
+     * @return Un {@link CompletableFuture} con los resúmenes de la página.
+     */
+    public CompletableFuture<List<PeliculaResumen>> findResumenesPage(OrdenCatalogo orden, boolean ascendente,
+                                                                      PeliculaResumen despuesDe, int limit) {
+        return AsyncUtil.supply(() -> userService.findResumenesPage(orden, ascendente, despuesDe, limit));
+    }
+
+    /**
+     * Recupera en segundo plano una página de resúmenes del catálogo filtrada y ordenada en la base de datos.
+     *
+     * @param orden      El campo de ordenación.
+     * @param ascendente Si el orden es ascendente.
+     * @param filtro     El filtro del catálogo.
+     * @param despuesDe  El último resumen ya cargado, o {@code null} para la primera página.
+     * @param limit      El tamaño máximo de la página.
+     * @return Un {@link CompletableFuture} con los resúmenes de la página.
+     */
+    public CompletableFuture<List<PeliculaResumen>> findResumenesPage(OrdenCatalogo orden, boolean ascendente,
+                                                                      FiltroCatalogo filtro, PeliculaResumen despuesDe,
+                                                                      int limit) {
+        return AsyncUtil.supply(() -> userService.findResumenesPage(orden, ascendente, filtro, despuesDe, limit));
+    }
+
+    /**
+     * Obtiene en segundo plano los géneros distintos del catálogo.
+     *
+     * @return Un {@link CompletableFuture} con los géneros, ordenados alfabéticamente.
+     */
+    public CompletableFuture<List<String>> findGeneros() {
+        return AsyncUtil.supply(userService::findGeneros);
+    }
+
+    /**
+     * Cuenta en segundo plano las copias libres y alquiladas de las películas indicadas.
+     *
+     * @param idsPeliculas Los IDs de las películas.
+     * @return Un {@link CompletableFuture} con la disponibilidad por ID de película.
+     */
+    public CompletableFuture<Map<Integer, Disponibilidad>> contarDisponibilidad(Collection<Integer> idsPeliculas) {
+        return AsyncUtil.supply(() -> userService.contarDisponibilidad(idsPeliculas));
+    }
+
+    /**
+     * Busca películas por título, director o descripción en segundo plano.
+     *
+     * @param texto  El texto de búsqueda.
+     * @param limite El número máximo de resultados.
+     * @return Un {@link CompletableFuture} con los resúmenes encontrados, de más a menos relevante.
+     * @see UserService#buscarPeliculas(String, int)
+     */
+    public CompletableFuture<List<PeliculaResumen>> buscarPeliculas(String texto, int limite) {
+        return AsyncUtil.supply(() -> userService.buscarPeliculas(texto, limite));
+    }
+
+    /**
+     * Obtiene en segundo plano los cambios del catálogo desde la marca indicada.
+     *
+     * @param marca La marca de la consulta anterior.
+     * @return Un {@link CompletableFuture} con los cambios y la marca para la siguiente consulta.
+     */
+    public CompletableFuture<CambiosCatalogo> findCambiosCatalogo(long marca) {
+        return AsyncUtil.supply(() -> userService.findCambiosCatalogo(marca));
+    }
+
+    /**
+     * Obtiene un usuario con su copia asignada y la película asociada en segundo plano.
+     *
+     * @param userId El ID del usuario.
+     * @return Un {@link CompletableFuture} con el usuario, o con {@code null} si no existe.
+     */
+    public CompletableFuture<User> getUserWithDependencies(Integer userId) {
+        return AsyncUtil.supply(() -> userService.getUserWithDependencies(userId));
+    }
+
+    /**
+     * Elimina una película y sus copias en segundo plano.
+     *
+     * @param admin    El administrador que realiza la acción.
+     * @param pelicula La película a eliminar.
+     * @return Un {@link CompletableFuture} que se completa al terminar el borrado.
+     */
+    public CompletableFuture<Void> removePeliculaOrCopia(User admin, Pelicula pelicula) {
+        return AsyncUtil.run(() -> userService.removePeliculaOrCopia(admin, pelicula));
+    }
+
+    /**
+     * Autentica a un usuario en segundo plano.
+     * <p>
+     * La búsqueda del usuario se hace en un hilo virtual y la comprobación del hash de la contraseña
+     * en el grupo de hilos de cálculo de {@link AsyncUtil}. La duración total se registra en
+     * {@link UserService#getLatenciasLogin()}.
+     * </p>
+     *
+     * @param username El nombre de usuario.
+     * @param password La contraseña.
+     * @return Un {@link CompletableFuture} con el usuario autenticado, o con {@code null} si las credenciales no son válidas.
+     */
+    public CompletableFuture<User> login(String username, String password) {
+        long inicio = System.nanoTime();
+        return AsyncUtil.supply(() -> userService.findUsuarioParaLogin(username))
+                .thenApplyAsync(usuario -> userService.verificarCredenciales(usuario, password), AsyncUtil.calculo())
+                .whenComplete((usuario, error) -> UserService.getLatenciasLogin().recordSince(inicio));
+    }
+
+    /**
+     * Actualiza una película en segundo plano.
+     *
+     * @param p La película con los datos modificados.
+     * @return Un {@link CompletableFuture} que se completa al guardar los cambios.
+     */
+    public CompletableFuture<Void> updatePelicula(Pelicula p) {
+        return AsyncUtil.run(() -> userService.updatePelicula(p));
+    }
+
+    /**
+     * Guarda una película nueva en segundo plano.
+     *
+     * @param nuevaPelicula La película a persistir.
+     * @return Un {@link CompletableFuture} con la película guardada.
+     */
+    public CompletableFuture<Pelicula> savePelicula(Pelicula nuevaPelicula) {
+        return AsyncUtil.supply(() -> userService.savePelicula(nuevaPelicula));
+    }
+}
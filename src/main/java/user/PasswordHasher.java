@@ -0,0 +1,119 @@
+package user;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Utilidad para guardar y comprobar contraseñas con PBKDF2 (HMAC-SHA256) y sal aleatoria.
+ * <p>
+ * El hash se guarda en {@link User#getContraseña()} con el formato {@code pbkdf2$iteraciones$sal$hash}
+ * (sal y hash en Base64), de modo que se puede subir el número de iteraciones sin invalidar los hashes
+ * existentes. Las contraseñas antiguas en texto plano se siguen aceptando y {@link #necesitaActualizar(String)}
+ * indica que deben volver a guardarse con hash.
+ * </p>
+ * <p>
+ * Comprobar una contraseña cuesta del orden de decenas de milisegundos de CPU a propósito:
+ * no debe hacerse en el hilo de JavaFX.
+ * </p>
+ */
+public final class PasswordHasher {
+
+    private static final String PREFIJO = "pbkdf2";
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int BYTES_SAL = 16;
+    private static final int BITS_HASH = 256;
+    // Se puede ajustar con -Dlogin.iteraciones=...; los hashes guardados conservan sus propias iteraciones
+    private static final int ITERACIONES = Integer.getInteger("login.iteraciones", 100_000);
+
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * Constructor privado para prevenir la instanciación.
+     */
+    private PasswordHasher() {}
+
+    /**
+     * Calcula el hash de una contraseña con una sal nueva.
+     *
+     * @param contraseña La contraseña en claro.
+     * @return El hash en formato {@code pbkdf2$iteraciones$sal$hash}.
+     */
+    public static String hash(String contraseña) {
+        byte[] sal = new byte[BYTES_SAL];
+        random.nextBytes(sal);
+        byte[] hash = pbkdf2(contraseña, sal, ITERACIONES);
+        Base64.Encoder b64 = Base64.getEncoder();
+        return PREFIJO + "$" + ITERACIONES + "$" + b64.encodeToString(sal) + "$" + b64.encodeToString(hash);
+    }
+
+    /**
+     * Comprueba una contraseña contra el valor guardado.
+     * <p>
+     * Si el valor guardado no es un hash (contraseña antigua en texto plano) se compara directamente.
+     * Las comparaciones se hacen en tiempo constante.
+     * </p>
+     *
+     * @param contraseña La contraseña introducida.
+     * @param guardada   El valor guardado en el usuario.
+     * @return {@code true} si la contraseña es correcta.
+     */
+    public static boolean verificar(String contraseña, String guardada) {
+        if (contraseña == null || guardada == null) return false;
+        if (!esHash(guardada)) {
+            return MessageDigest.isEqual(contraseña.getBytes(StandardCharsets.UTF_8),
+                    guardada.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] partes = guardada.split("\\$");
+        if (partes.length != 4) return false;
+        try {
+            int iteraciones = Integer.parseInt(partes[1]);
+            byte[] sal = Base64.getDecoder().decode(partes[2]);
+            byte[] esperado = Base64.getDecoder().decode(partes[3]);
+            return MessageDigest.isEqual(pbkdf2(contraseña, sal, iteraciones), esperado);
+        } catch (IllegalArgumentException e) {
+            // Hash mal formado: nunca coincide
+            return false;
+        }
+    }
+
+    /**
+     * Indica si el valor guardado debe sustituirse por un hash nuevo tras un login correcto:
+     * porque está en texto plano o porque se calculó con menos iteraciones de las actuales.
+     *
+     * @param guardada El valor guardado en el usuario.
+     * @return {@code true} si conviene volver a calcular el hash.
+     */
+    public static boolean necesitaActualizar(String guardada) {
+        if (guardada == null || !esHash(guardada)) return true;
+        String[] partes = guardada.split("\\$");
+        try {
+            return partes.length != 4 || Integer.parseInt(partes[1]) < ITERACIONES;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @param guardada El valor guardado en el usuario.
+     * @return {@code true} si el valor tiene formato de hash de esta clase.
+     */
+    public static boolean esHash(String guardada) {
+        return guardada != null && guardada.startsWith(PREFIJO + "$");
+    }
+
+    private static byte[] pbkdf2(String contraseña, byte[] sal, int iteraciones) {
+        PBEKeySpec spec = new PBEKeySpec(contraseña.toCharArray(), sal, iteraciones, BITS_HASH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("El algoritmo " + ALGORITMO + " no está disponible", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.*;
 import copiaPelicula.CopiaPelicula;
 
+import javax.jdo.annotations.Index;
+
 import java.io.Serializable;
 
 /**
@@ -23,9 +25,11 @@ public class User implements Serializable {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    // ObjectDB indexará este campo automáticamente si se usa mucho en búsquedas
+    // Índice de ObjectDB: el login y findByNombreUsuario filtran por este campo
+    @Index
     private String nombreUsuario;
 
+    // Hash PBKDF2 con sal (ver PasswordHasher); las contraseñas antiguas en texto plano se convierten en el siguiente login
     private String contraseña;
 
     private boolean isAdmin;
@@ -2,21 +2,30 @@ package user;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
-import session.JPAUtil;
+import session.UnitOfWork;
+import utils.Metricas;
 import utils.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Repositorio para la entidad {@link User}.
  * <p>
  * Proporciona operaciones de acceso a datos para gestionar usuarios, incluyendo
  * operaciones CRUD básicas y búsquedas específicas como buscar por nombre de usuario.
+ * Las operaciones se ejecutan a través de {@link UnitOfWork}. Las altas y bajas se reflejan en el
+ * {@link UsernameIndex} al confirmar la transacción. {@link #findByNombreUsuario(String)}, que no está en
+ * {@link Repository}, se mide aquí como {@code UserRepository.findByNombreUsuario}.
  * </p>
  */
 public class UserRepository implements Repository<User> {
 
+    private final UsernameIndex indice = UsernameIndex.getInstance();
+    private final Metricas metricas = Metricas.getInstance();
+
     /**
      * Guarda o actualiza un usuario en la base de datos.
      *
@@ -25,22 +34,32 @@ public class UserRepository implements Repository<User> {
      */
     @Override
     public User save(User entity) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            em.getTransaction().begin();
-            if (entity.getId() == null) {
-                em.persist(entity);
-            } else {
-                entity = em.merge(entity);
-            }
-            em.getTransaction().commit();
-            return entity;
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
+        return UnitOfWork.inTransaction(em -> guardar(em, entity));
+    }
+
+    /**
+     * Guarda o actualiza varios usuarios en transacciones de {@code tamañoLote} elementos.
+     *
+     * @param entidades  Las entidades a guardar.
+     * @param tamañoLote El número de entidades por transacción.
+     * @return Las entidades persistidas, en el mismo orden.
+     */
+    @Override
+    public List<User> saveAll(Collection<User> entidades, int tamañoLote) {
+        return UnitOfWork.inChunks(entidades, tamañoLote, this::guardar);
+    }
+
+    private User guardar(EntityManager em, User entity) {
+        User guardado;
+        if (entity.getId() == null) {
+            em.persist(entity);
+            guardado = entity;
+        } else {
+            guardado = em.merge(entity);
         }
+        // Tras un cambio de nombre la entrada antigua queda obsoleta y se descarta al consultarla
+        UnitOfWork.afterCommit(() -> indice.añadir(guardado.getNombreUsuario(), guardado.getId()));
+        return guardado;
     }
 
     /**
@@ -51,30 +70,41 @@ public class UserRepository implements Repository<User> {
      */
     @Override
     public Optional<User> findById(Long id) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            return Optional.ofNullable(em.find(User.class, id.intValue()));
-        } finally {
-            em.close();
-        }
+        return UnitOfWork.read(em -> Optional.ofNullable(em.find(User.class, id.intValue())));
     }
 
     /**
      * Busca un usuario por su nombre de usuario.
+     * <p>
+     * Resuelve el ID en el {@link UsernameIndex} y carga el usuario por clave primaria. Si el nombre
+     * no está en el índice, o la entrada ha quedado obsoleta, recurre a la consulta por nombre y
+     * actualiza el índice con el resultado.
+     * </p>
      *
      * @param nombreUsuario El nombre de usuario a buscar.
      * @return Un {@link Optional} con el usuario si existe.
      */
     public Optional<User> findByNombreUsuario(String nombreUsuario) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
+        return metricas.medir("UserRepository.findByNombreUsuario", () -> buscarPorNombreUsuario(nombreUsuario));
+    }
+
+    private Optional<User> buscarPorNombreUsuario(String nombreUsuario) {
+        return UnitOfWork.read(em -> {
+            Optional<Integer> id = indice.buscar(nombreUsuario);
+            if (id.isPresent()) {
+                User u = em.find(User.class, id.get());
+                if (u != null && nombreUsuario.equals(u.getNombreUsuario())) {
+                    return Optional.of(u);
+                }
+                indice.eliminar(nombreUsuario, id.get());
+            }
             TypedQuery<User> q = em.createQuery(
                     "SELECT u FROM User u WHERE u.nombreUsuario = :nombre", User.class);
             q.setParameter("nombre", nombreUsuario);
-            return q.getResultStream().findFirst();
-        } finally {
-            em.close();
-        }
+            Optional<User> encontrado = q.getResultStream().findFirst();
+            encontrado.ifPresent(u -> indice.añadir(u.getNombreUsuario(), u.getId()));
+            return encontrado;
+        });
     }
 
     /**
@@ -84,12 +114,7 @@ public class UserRepository implements Repository<User> {
      */
     @Override
     public List<User> findAll() {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            return em.createQuery("SELECT u FROM User u", User.class).getResultList();
-        } finally {
-            em.close();
-        }
+        return UnitOfWork.read(em -> em.createQuery("SELECT u FROM User u", User.class).getResultList());
     }
 
     /**
@@ -100,18 +125,15 @@ public class UserRepository implements Repository<User> {
      */
     @Override
     public Optional<User> delete(User entity) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
         try {
-            em.getTransaction().begin();
-            User managed = em.merge(entity);
-            em.remove(managed);
-            em.getTransaction().commit();
+            UnitOfWork.runInTransaction(em -> {
+                User managed = em.merge(entity);
+                em.remove(managed);
+                UnitOfWork.afterCommit(() -> indice.eliminar(managed.getNombreUsuario(), managed.getId()));
+            });
             return Optional.of(entity);
         } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
             return Optional.empty();
-        } finally {
-            em.close();
         }
     }
 
@@ -123,7 +145,41 @@ public class UserRepository implements Repository<User> {
      */
     @Override
     public Optional<User> deleteById(Long id) {
-        return findById(id).flatMap(this::delete);
+        // Búsqueda y borrado comparten EntityManager gracias a la unidad de trabajo
+        return UnitOfWork.read(em -> findById(id).flatMap(this::delete));
+    }
+
+    /**
+     * Elimina varios usuarios por ID en transacciones de {@code tamañoLote} borrados.
+     *
+     * @param ids        Los identificadores a eliminar.
+     * @param tamañoLote El número de borrados por transacción.
+     * @return El número de entidades eliminadas.
+     */
+    @Override
+    public int deleteAllById(Collection<Long> ids, int tamañoLote) {
+        List<Boolean> eliminadas = UnitOfWork.inChunks(ids, tamañoLote, (em, id) -> {
+            User u = em.find(User.class, id.intValue());
+            if (u == null) return false;
+            em.remove(u);
+            UnitOfWork.afterCommit(() -> indice.eliminar(u.getNombreUsuario(), u.getId()));
+            return true;
+        });
+        return (int) eliminadas.stream().filter(Boolean::booleanValue).count();
+    }
+
+    /**
+     * Recorre todos los usuarios por bloques ordenados por ID.
+     * <p>
+     * Usa {@link Repository#recorrerPorBloques(Class, java.util.function.Function, int, Consumer)}.
+     * </p>
+     *
+     * @param tamañoBloque El número de entidades cargadas por consulta.
+     * @param accion       La acción a ejecutar sobre cada entidad.
+     */
+    @Override
+    public void streamAll(int tamañoBloque, Consumer<User> accion) {
+        Repository.recorrerPorBloques(User.class, User::getId, tamañoBloque, accion);
     }
 
     /**
@@ -133,11 +189,6 @@ public class UserRepository implements Repository<User> {
      */
     @Override
     public Long count() {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            return em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult();
-        } finally {
-            em.close();
-        }
+        return UnitOfWork.read(em -> em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult());
     }
-}
\ No newline at end of file
+}
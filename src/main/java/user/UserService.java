@@ -1,29 +1,68 @@
 package user;
 
-import jakarta.persistence.EntityManager;
 import copiaPelicula.CopiaPelicula;
+import copiaPelicula.CopiaPeliculaRepository;
+import copiaPelicula.Disponibilidad;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
+import pelicula.CambiosCatalogo;
+import pelicula.FiltroCatalogo;
+import pelicula.IndiceBusqueda;
+import pelicula.OrdenCatalogo;
 import pelicula.Pelicula;
-import session.JPAUtil;
+import pelicula.PeliculaCache;
+import pelicula.PeliculaRepository;
+import pelicula.PeliculaResumen;
+import session.UnitOfWork;
+import utils.LatencyHistogram;
+import utils.Metricas;
+import utils.Repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 /**
  * Servicio de negocio para la gestión de usuarios y operaciones relacionadas con películas.
  * <p>
  * Encapsula la lógica de negocio compleja que involucra transacciones, relaciones entre entidades
  * (Usuario, Película, Copia) y consultas específicas que van más allá de un simple CRUD.
+ * Cada operación es una unidad de trabajo ({@link UnitOfWork}): las consultas y actualizaciones que la
+ * componen comparten un único EntityManager y transacción.
  * </p>
  */
 public class UserService {
 
+    // Latencias de login de todo el proceso (búsqueda del usuario y comprobación de la contraseña)
+    private static final LatencyHistogram latenciasLogin = new LatencyHistogram("login");
+
+    // Las consultas propias de cada repositorio se miden dentro de él; las de la interfaz Repository,
+    // a través del proxy instrumentado
+    private final PeliculaRepository peliculaRepository = new PeliculaRepository();
+    private final Repository<Pelicula> peliculas = Metricas.instrumentar(peliculaRepository);
+    private final UserRepository userRepository = new UserRepository();
+    private final CopiaPeliculaRepository copiaRepository = new CopiaPeliculaRepository();
+    private final PeliculaCache peliculaCache = PeliculaCache.getInstance();
+    private final IndiceBusqueda indiceBusqueda = IndiceBusqueda.getInstance();
+
+    /**
+     * Número máximo de copias candidatas que se prueban en un alquiler antes de desistir cuando
+     * otros alquileres concurrentes de la misma película se las van quedando.
+     */
+    private static final int INTENTOS_ASIGNACION = 8;
+
     /**
      * Asigna una copia disponible de una película a un usuario (alquiler).
      * <p>
-     * Verifica si el usuario ya tiene una copia asignada. Si no, busca una copia disponible
-     * de la película solicitada y la asigna al usuario, cambiando su estado a "Alquilada".
-     * Todo el proceso se realiza dentro de una transacción.
+     * Verifica si el usuario ya tiene una copia asignada. Si no, busca una única copia libre de la
+     * película (consulta limitada a un resultado sobre el índice {@code (pelicula, usuario)}), la bloquea
+     * y la relee para confirmar que sigue libre antes de asignarla al usuario con estado "Alquilada".
+     * Si otro alquiler concurrente se la ha quedado, se prueba con la siguiente copia libre.
+     * El coste no depende del número de copias de la película.
      * </p>
      *
      * @param actor    El usuario que realiza el alquiler.
@@ -31,38 +70,41 @@ public class UserService {
      * @throws RuntimeException Si el usuario ya tiene un alquiler activo o no hay copias disponibles.
      */
     public void addPeliculaOrCopia(User actor, Pelicula pelicula) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            em.getTransaction().begin();
-
-            User persistentUser = em.find(User.class, actor.getId());
+        UnitOfWork.runInTransaction(em -> {
+            // Bloqueamos al usuario para que dos alquileres suyos simultáneos no pasen ambos la comprobación
+            User persistentUser = em.find(User.class, actor.getId(), LockModeType.PESSIMISTIC_WRITE);
             if (persistentUser.getCopiaAsignada() != null) {
                 throw new RuntimeException("El usuario ya tiene una copia asignada.");
             }
 
-            // Buscamos una copia disponible para esa película
-            List<CopiaPelicula> copiasDisponibles = em.createQuery(
-                            "SELECT c FROM CopiaPelicula c WHERE c.pelicula = :p AND c.usuario IS NULL", CopiaPelicula.class)
+            // Solo necesitamos una copia libre: no cargamos todas las de la película
+            TypedQuery<CopiaPelicula> siguienteLibre = em.createQuery(
+                            "SELECT c FROM CopiaPelicula c " +
+                                    "WHERE c.pelicula = :p AND c.usuario IS NULL AND c.id > :desde " +
+                                    "ORDER BY c.id", CopiaPelicula.class)
                     .setParameter("p", pelicula)
-                    .getResultList();
+                    .setMaxResults(1);
 
-            if (copiasDisponibles.isEmpty()) {
-                throw new RuntimeException("No hay copias disponibles.");
+            Integer desde = 0;
+            for (int intento = 0; intento < INTENTOS_ASIGNACION; intento++) {
+                Optional<CopiaPelicula> candidata = siguienteLibre.setParameter("desde", desde)
+                        .getResultStream().findFirst();
+                if (candidata.isEmpty()) {
+                    break;
+                }
+                CopiaPelicula copia = candidata.get();
+                // Bloqueo y relectura: la consulta pudo ver la copia libre antes de que otro alquiler la asignara
+                em.lock(copia, LockModeType.PESSIMISTIC_WRITE);
+                em.refresh(copia);
+                if (copia.getUsuario() == null) {
+                    copia.setUsuario(persistentUser);
+                    copia.setEstado("Alquilada");
+                    return;
+                }
+                desde = copia.getId();
             }
-
-            CopiaPelicula copia = copiasDisponibles.get(0);
-            copia.setUsuario(persistentUser);
-            copia.setEstado("Alquilada");
-
-            em.merge(copia); // Actualizamos la copia vinculándola al usuario
-
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
-        }
+            throw new RuntimeException("No hay copias disponibles.");
+        });
     }
 
     /**
@@ -71,12 +113,136 @@ public class UserService {
      * @return Una lista de todas las películas.
      */
     public List<Pelicula> findAllPeliculas() {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            return em.createQuery("SELECT p FROM Pelicula p", Pelicula.class).getResultList();
-        } finally {
-            em.close();
+        return peliculas.findAll();
+    }
+
+    /**
+     * Busca una película por su ID, sirviéndola desde la caché del catálogo si está disponible.
+     *
+     * @param id El ID de la película.
+     * @return La película, si existe.
+     */
+    public Optional<Pelicula> findPeliculaById(Integer id) {
+        return peliculas.findById(id.longValue());
+    }
+
+    /**
+     * Recupera una página del catálogo ordenada por ID.
+     * <p>
+     * Alternativa a {@link #findAllPeliculas()} para catálogos grandes: la memoria y la latencia
+     * de cada llamada dependen del tamaño de la página, no del tamaño del catálogo.
+     * </p>
+     *
+     * @param afterId El ID de la última película ya cargada, o {@code null} para empezar desde el principio.
+     * @param limit   El tamaño máximo de la página.
+     * @return Las películas de la página.
+     */
+    public List<Pelicula> findPeliculasPage(Integer afterId, int limit) {
+        return peliculaRepository.findPage(afterId, limit);
+    }
+
+    /**
+     * Recupera una página del catálogo ordenada por el campo indicado.
+     *
+     * @param orden      El campo de ordenación.
+     * @param ascendente Si el orden es ascendente.
+     * @param despuesDe  La última película ya cargada, o {@code null} para la primera página.
+     * @param limit      El tamaño máximo de la página.
+     * @return Las películas de la página.
+     */
+    public List<Pelicula> findPeliculasPage(OrdenCatalogo orden, boolean ascendente, Pelicula despuesDe, int limit) {
+        return peliculaRepository.findPage(orden, ascendente, despuesDe, limit);
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo ordenada por ID, para la tabla del catálogo.
+     *
+     * @param afterId El ID de la última película ya cargada, o {@code null} para empezar desde el principio.
+     * @param limit   El tamaño máximo de la página.
+     * @return Los resúmenes de la página.
+     */
+    public List<PeliculaResumen> findResumenesPage(Integer afterId, int limit) {
+        return peliculaRepository.findResumenPage(afterId, limit);
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo ordenada por el campo indicado.
+     *
+     * @param orden      El campo de ordenación.
+     * @param ascendente Si el orden es ascendente.
+     * @param despuesDe  El último resumen ya cargado, o {@code null} para la primera página.
+     * @param limit      El tamaño máximo de la página.
+     * @return Los resúmenes de la página.
+     */
+    public List<PeliculaResumen> findResumenesPage(OrdenCatalogo orden, boolean ascendente, PeliculaResumen despuesDe, int limit) {
+        return peliculaRepository.findResumenPage(orden, ascendente, despuesDe, limit);
+    }
+
+    /**
+     * Recupera una página de resúmenes del catálogo filtrada y ordenada en la base de datos.
+     *
+     * @param orden      El campo de ordenación.
+     * @param ascendente Si el orden es ascendente.
+     * @param filtro     El filtro del catálogo.
+     * @param despuesDe  El último resumen ya cargado, o {@code null} para la primera página.
+     * @param limit      El tamaño máximo de la página.
+     * @return Los resúmenes de la página.
+     */
+    public List<PeliculaResumen> findResumenesPage(OrdenCatalogo orden, boolean ascendente, FiltroCatalogo filtro,
+                                                   PeliculaResumen despuesDe, int limit) {
+        return peliculaRepository.findResumenPage(orden, ascendente, filtro, despuesDe, limit);
+    }
+
+    /**
+     * Obtiene los géneros distintos del catálogo.
+     *
+     * @return Los géneros, ordenados alfabéticamente.
+     */
+    public List<String> findGeneros() {
+        return peliculaRepository.findGeneros();
+    }
+
+    /**
+     * Cuenta las copias libres y alquiladas de las películas indicadas con una sola consulta.
+     *
+     * @param idsPeliculas Los IDs de las películas.
+     * @return La disponibilidad por ID de película; las películas sin copias no aparecen.
+     */
+    public Map<Integer, Disponibilidad> contarDisponibilidad(Collection<Integer> idsPeliculas) {
+        return copiaRepository.contarDisponibilidad(idsPeliculas);
+    }
+
+    /**
+     * Busca películas por título, director o descripción en el índice de búsqueda.
+     * <p>
+     * El índice devuelve los IDs ordenados por relevancia y los resúmenes se cargan con una sola consulta;
+     * las películas que el índice aún tuviera pero ya no existan se descartan. Si el índice no se ha
+     * construido, se empieza a construir y mientras tanto los resultados son parciales.
+     * </p>
+     *
+     * @param texto  El texto de búsqueda.
+     * @param limite El número máximo de resultados.
+     * @return Los resúmenes de las películas encontradas, de más a menos relevante.
+     */
+    public List<PeliculaResumen> buscarPeliculas(String texto, int limite) {
+        indiceBusqueda.construirEnSegundoPlano();
+        List<Integer> ids = indiceBusqueda.buscar(texto, limite);
+        Map<Integer, PeliculaResumen> porId = new HashMap<>();
+        for (PeliculaResumen resumen : peliculaRepository.findResumenesById(ids)) {
+            porId.put(resumen.id(), resumen);
         }
+        return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Obtiene las películas creadas, modificadas o borradas desde la marca indicada.
+     *
+     * @param marca La marca de la consulta anterior.
+     * @return Los cambios del catálogo y la marca para la siguiente consulta.
+     * @see PeliculaRepository#findCambiosDesde(long)
+     */
+    public CambiosCatalogo findCambiosCatalogo(long marca) {
+        return peliculaRepository.findCambiosDesde(marca);
     }
 
     /**
@@ -90,8 +256,7 @@ public class UserService {
      * @return El usuario con sus datos completos, o {@code null} si no se encuentra.
      */
     public User getUserWithDependencies(Integer userId) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
+        return UnitOfWork.read(em -> {
             // ObjectDB no soporta alias en JOIN FETCH de la misma forma que Hibernate.
             // La sintaxis correcta para ObjectDB es simplemente JOIN FETCH sin alias,
             // o si se necesita alias, usarlo con cuidado.
@@ -105,12 +270,12 @@ public class UserService {
 
             query.setParameter("id", userId);
 
-            return query.getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+            try {
+                return query.getSingleResult();
+            } catch (NoResultException e) {
+                return null;
+            }
+        });
     }
 
     /**
@@ -124,69 +289,104 @@ public class UserService {
      * @param pelicula La película a eliminar.
      */
     public void removePeliculaOrCopia(User admin, Pelicula pelicula) {
-        EntityManager em = JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            em.getTransaction().begin();
-
-            // Buscamos la película en la base de datos para que esté en estado 'Managed' [cite: 280, 334]
-            Pelicula p = em.find(Pelicula.class, pelicula.getId());
-
-            if (p != null) {
-                // Si la película tiene copias, ObjectDB las gestionará según el CascadeType definido [cite: 502, 531]
-                em.remove(p);
-            }
-
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
-            throw e;
-        } finally {
-            em.close();
-        }
+        // El repositorio la busca para que esté en estado 'Managed' y deja la lápida de borrado [cite: 280, 334];
+        // si la película tiene copias, ObjectDB las gestionará según el CascadeType definido [cite: 502, 531]
+        peliculaRepository.eliminar(pelicula.getId());
     }
 
     /**
      * Autentica a un usuario en el sistema.
+     * <p>
+     * Resuelve el usuario con {@link #findUsuarioParaLogin(String)} y comprueba la contraseña con
+     * {@link #verificarCredenciales(User, String)}. La duración se registra en {@link #getLatenciasLogin()}.
+     * </p>
      *
      * @param username El nombre de usuario.
      * @param password La contraseña.
      * @return El usuario autenticado si las credenciales son correctas, o {@code null} si no.
      */
     public User login(String username, String password) {
-        EntityManager em = session.JPAUtil.getEntityManagerFactory().createEntityManager();
+        long inicio = System.nanoTime();
         try {
-            // Usamos una consulta simple sin JOIN FETCH para el login
-            // Esto evita problemas si el usuario no tiene copias o si la estructura es compleja
-            return em.createQuery("SELECT u FROM User u WHERE u.nombreUsuario = :user AND u.contraseña = :pass", User.class)
-                    .setParameter("user", username)
-                    .setParameter("pass", password)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            return null;
+            return verificarCredenciales(findUsuarioParaLogin(username), password);
         } finally {
-            em.close();
+            latenciasLogin.recordSince(inicio);
         }
     }
 
+    /**
+     * Busca el usuario que intenta iniciar sesión a través del índice de nombres de usuario.
+     * <p>
+     * Es la parte de E/S del login; la comprobación de la contraseña, intensiva en CPU, se hace aparte
+     * para poder ejecutarla en otro grupo de hilos.
+     * </p>
+     *
+     * @param username El nombre de usuario.
+     * @return El usuario, o {@code null} si no existe.
+     */
+    public User findUsuarioParaLogin(String username) {
+        return userRepository.findByNombreUsuario(username).orElse(null);
+    }
+
+    /**
+     * Comprueba la contraseña de un usuario contra su hash guardado.
+     * <p>
+     * Si la contraseña es correcta pero está guardada en texto plano (o con un hash antiguo), se vuelve
+     * a guardar con el hash actual. Si el usuario es {@code null} se calcula igualmente un hash para que el
+     * tiempo de respuesta no revele qué nombres de usuario existen.
+     * </p>
+     *
+     * @param usuario  El usuario que intenta iniciar sesión, o {@code null} si no existe.
+     * @param password La contraseña introducida.
+     * @return El usuario si la contraseña es correcta, o {@code null} si no.
+     */
+    public User verificarCredenciales(User usuario, String password) {
+        if (usuario == null) {
+            PasswordHasher.verificar(password, HashFicticio.VALOR);
+            return null;
+        }
+        String guardada = usuario.getContraseña();
+        if (!PasswordHasher.verificar(password, guardada)) {
+            return null;
+        }
+        if (PasswordHasher.necesitaActualizar(guardada)) {
+            String nuevoHash = PasswordHasher.hash(password);
+            UnitOfWork.runInTransaction(em -> em.find(User.class, usuario.getId()).setContraseña(nuevoHash));
+            usuario.setContraseña(nuevoHash);
+        }
+        return usuario;
+    }
+
+    /**
+     * Devuelve el histograma con las latencias de login registradas desde el arranque.
+     *
+     * @return El histograma de latencias de login.
+     */
+    public static LatencyHistogram getLatenciasLogin() {
+        return latenciasLogin;
+    }
+
+    /**
+     * Hash de una contraseña cualquiera: los logins de usuarios inexistentes cuestan lo mismo que los demás.
+     * Se calcula en el primer uso (en un hilo de cálculo), no al crear el servicio desde la interfaz.
+     */
+    private static final class HashFicticio {
+        static final String VALOR = PasswordHasher.hash("usuario-inexistente");
+    }
+
     /**
      * Actualiza los datos de una película existente.
      *
      * @param p La película con los datos modificados.
      */
     public void updatePelicula(Pelicula p) {
-        EntityManager em = session.JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.merge(p); // 'merge' actualiza el objeto en la base de datos
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
-        }
+        UnitOfWork.runInTransaction(em -> {
+            Pelicula actualizada = em.merge(p); // 'merge' actualiza el objeto en la base de datos
+            UnitOfWork.afterCommit(() -> {
+                peliculaCache.put(actualizada);
+                indiceBusqueda.indexar(actualizada);
+            });
+        });
     }
 
     /**
@@ -196,18 +396,14 @@ public class UserService {
      * @return La película guardada.
      */
     public Pelicula savePelicula(Pelicula nuevaPelicula) {
-        EntityManager em = session.JPAUtil.getEntityManagerFactory().createEntityManager();
-        try {
-            em.getTransaction().begin();
+        return UnitOfWork.inTransaction(em -> {
             em.persist(nuevaPelicula); // ObjectDB guarda el objeto directamente
-            em.getTransaction().commit();
+            UnitOfWork.afterCommit(() -> {
+                peliculaCache.put(nuevaPelicula);
+                indiceBusqueda.indexar(nuevaPelicula);
+            });
             return nuevaPelicula;
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
-        }
+        });
     }
 
 }
\ No newline at end of file
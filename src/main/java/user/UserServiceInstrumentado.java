@@ -0,0 +1,129 @@
+package user;
+
+import copiaPelicula.Disponibilidad;
+import pelicula.CambiosCatalogo;
+import pelicula.FiltroCatalogo;
+import pelicula.OrdenCatalogo;
+import pelicula.Pelicula;
+import pelicula.PeliculaResumen;
+import utils.Metricas;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Decorador de {@link UserService} que registra en {@link Metricas} cada llamada a sus operaciones.
+ * <p>
+ * {@code UserService} es una clase y no una interfaz, así que no admite un proxy dinámico: cada operación
+ * se sobrescribe para medir la llamada al servicio real. Las métricas se nombran {@code UserService.metodo}.
+ * Es la implementación que usa {@link AsyncUserService} por defecto; al añadir una operación pública al
+ * servicio hay que añadirla también aquí.
+ * </p>
+ */
+public class UserServiceInstrumentado extends UserService {
+
+    private static final String PREFIJO = "UserService.";
+
+    private final Metricas metricas = Metricas.getInstance();
+
+    @Override
+    public void addPeliculaOrCopia(User actor, Pelicula pelicula) {
+        metricas.medir(PREFIJO + "addPeliculaOrCopia", () -> super.addPeliculaOrCopia(actor, pelicula));
+    }
+
+    @Override
+    public List<Pelicula> findAllPeliculas() {
+        return metricas.medir(PREFIJO + "findAllPeliculas", super::findAllPeliculas);
+    }
+
+    @Override
+    public Optional<Pelicula> findPeliculaById(Integer id) {
+        return metricas.medir(PREFIJO + "findPeliculaById", () -> super.findPeliculaById(id));
+    }
+
+    @Override
+    public List<Pelicula> findPeliculasPage(Integer afterId, int limit) {
+        return metricas.medir(PREFIJO + "findPeliculasPage", () -> super.findPeliculasPage(afterId, limit));
+    }
+
+    @Override
+    public List<Pelicula> findPeliculasPage(OrdenCatalogo orden, boolean ascendente, Pelicula despuesDe, int limit) {
+        return metricas.medir(PREFIJO + "findPeliculasPage",
+                () -> super.findPeliculasPage(orden, ascendente, despuesDe, limit));
+    }
+
+    @Override
+    public List<PeliculaResumen> findResumenesPage(Integer afterId, int limit) {
+        return metricas.medir(PREFIJO + "findResumenesPage", () -> super.findResumenesPage(afterId, limit));
+    }
+
+    @Override
+    public List<PeliculaResumen> findResumenesPage(OrdenCatalogo orden, boolean ascendente, PeliculaResumen despuesDe, int limit) {
+        return metricas.medir(PREFIJO + "findResumenesPage",
+                () -> super.findResumenesPage(orden, ascendente, despuesDe, limit));
+    }
+
+    @Override
+    public List<PeliculaResumen> findResumenesPage(OrdenCatalogo orden, boolean ascendente, FiltroCatalogo filtro,
+                                                   PeliculaResumen despuesDe, int limit) {
+        return metricas.medir(PREFIJO + "findResumenesPage",
+                () -> super.findResumenesPage(orden, ascendente, filtro, despuesDe, limit));
+    }
+
+    @Override
+    public List<String> findGeneros() {
+        return metricas.medir(PREFIJO + "findGeneros", super::findGeneros);
+    }
+
+    @Override
+    public Map<Integer, Disponibilidad> contarDisponibilidad(Collection<Integer> idsPeliculas) {
+        return metricas.medir(PREFIJO + "contarDisponibilidad", () -> super.contarDisponibilidad(idsPeliculas));
+    }
+
+    @Override
+    public List<PeliculaResumen> buscarPeliculas(String texto, int limite) {
+        return metricas.medir(PREFIJO + "buscarPeliculas", () -> super.buscarPeliculas(texto, limite));
+    }
+
+    @Override
+    public CambiosCatalogo findCambiosCatalogo(long marca) {
+        return metricas.medir(PREFIJO + "findCambiosCatalogo", () -> super.findCambiosCatalogo(marca));
+    }
+
+    @Override
+    public User getUserWithDependencies(Integer userId) {
+        return metricas.medir(PREFIJO + "getUserWithDependencies", () -> super.getUserWithDependencies(userId));
+    }
+
+    @Override
+    public void removePeliculaOrCopia(User admin, Pelicula pelicula) {
+        metricas.medir(PREFIJO + "removePeliculaOrCopia", () -> super.removePeliculaOrCopia(admin, pelicula));
+    }
+
+    @Override
+    public User login(String username, String password) {
+        return metricas.medir(PREFIJO + "login", () -> super.login(username, password));
+    }
+
+    @Override
+    public User findUsuarioParaLogin(String username) {
+        return metricas.medir(PREFIJO + "findUsuarioParaLogin", () -> super.findUsuarioParaLogin(username));
+    }
+
+    @Override
+    public User verificarCredenciales(User usuario, String password) {
+        return metricas.medir(PREFIJO + "verificarCredenciales", () -> super.verificarCredenciales(usuario, password));
+    }
+
+    @Override
+    public void updatePelicula(Pelicula p) {
+        metricas.medir(PREFIJO + "updatePelicula", () -> super.updatePelicula(p));
+    }
+
+    @Override
+    public Pelicula savePelicula(Pelicula nuevaPelicula) {
+        return metricas.medir(PREFIJO + "savePelicula", () -> super.savePelicula(nuevaPelicula));
+    }
+}
@@ -0,0 +1,103 @@
+package user;
+
+import jakarta.persistence.EntityManager;
+import session.UnitOfWork;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice en memoria de nombre de usuario a ID, compartido por toda la aplicación.
+ * <p>
+ * Permite resolver un login con una búsqueda por clave primaria en lugar de una consulta. Se carga
+ * de una vez la primera vez que se usa (solo nombre e ID de cada usuario) y {@link UserRepository}
+ * lo mantiene al día al guardar y borrar usuarios, siempre tras confirmar la transacción.
+ * Es una pista, no la fuente de verdad: quien lo consulta debe comprobar que el usuario encontrado
+ * sigue teniendo ese nombre y, si no está en el índice, consultar la base de datos.
+ * </p>
+ */
+public final class UsernameIndex {
+
+    private static final UsernameIndex instancia = new UsernameIndex();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile boolean cargado = false;
+
+    private UsernameIndex() {}
+
+    /**
+     * Obtiene el índice compartido.
+     *
+     * @return La instancia única del índice.
+     */
+    public static UsernameIndex getInstance() {
+        return instancia;
+    }
+
+    /**
+     * Busca el ID asociado a un nombre de usuario, cargando el índice si aún no se ha cargado.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @return El ID, si el nombre está en el índice.
+     */
+    public Optional<Integer> buscar(String nombreUsuario) {
+        if (nombreUsuario == null) return Optional.empty();
+        if (!cargado) cargar();
+        return Optional.ofNullable(ids.get(nombreUsuario));
+    }
+
+    /**
+     * Asocia un nombre de usuario a un ID.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @param id            El ID del usuario.
+     */
+    public void añadir(String nombreUsuario, Integer id) {
+        if (nombreUsuario != null && id != null) {
+            ids.put(nombreUsuario, id);
+        }
+    }
+
+    /**
+     * Elimina la entrada de un nombre de usuario, solo si sigue apuntando al ID indicado.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @param id            El ID que se quiere desasociar.
+     */
+    public void eliminar(String nombreUsuario, Integer id) {
+        if (nombreUsuario != null && id != null) {
+            ids.remove(nombreUsuario, id);
+        }
+    }
+
+    /**
+     * Vacía el índice; se volverá a cargar en la siguiente búsqueda.
+     */
+    public synchronized void clear() {
+        ids.clear();
+        cargado = false;
+    }
+
+    /**
+     * @return El número de nombres en el índice.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Carga el índice si aún no se ha cargado. Se puede llamar de antemano para que el primer login no espere.
+     */
+    public synchronized void cargar() {
+        if (cargado) return;
+        List<Object[]> filas = UnitOfWork.read((EntityManager em) ->
+                em.createQuery("SELECT u.nombreUsuario, u.id FROM User u", Object[].class).getResultList());
+        for (Object[] fila : filas) {
+            // Las altas registradas mientras se cargaba son más recientes que la consulta
+            if (fila[0] != null) ids.putIfAbsent((String) fila[0], (Integer) fila[1]);
+        }
+        cargado = true;
+    }
+}
@@ -0,0 +1,123 @@
+package utils;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Clase de utilidad para ejecutar trabajo fuera del hilo de JavaFX.
+ * <p>
+ * Las tareas se ejecutan en hilos virtuales (uno por tarea), de modo que una consulta lenta
+ * nunca bloquea la interfaz. Cada hilo tiene su propia unidad de trabajo y su propio EntityManager.
+ * Los resultados se devuelven a la interfaz encadenando la continuación con el ejecutor {@link #fx()},
+ * que la programa con {@link Platform#runLater(Runnable)}.
+ * </p>
+ * <p>
+ * El trabajo intensivo en CPU (p. ej. comprobar hashes de contraseñas) se ejecuta en un grupo fijo
+ * de hilos, uno por procesador, encadenándolo con {@link #calculo()}: así cientos de peticiones
+ * simultáneas se encolan en lugar de competir todas por la CPU.
+ * </p>
+ */
+public class AsyncUtil {
+
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Executor fx = Platform::runLater;
+    private static final ExecutorService calculo = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("calculo-", 1).daemon(true).factory());
+
+    /**
+     * Constructor privado para prevenir la instanciación.
+     */
+    private AsyncUtil() {}
+
+    /**
+     * Ejecuta una tarea con resultado en un hilo virtual.
+     *
+     * @param tarea La tarea a ejecutar.
+     * @param <T>   El tipo del resultado.
+     * @return Un {@link CompletableFuture} que se completa con el resultado o con la excepción de la tarea.
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> tarea) {
+        return CompletableFuture.supplyAsync(tarea, executor);
+    }
+
+    /**
+     * Ejecuta una tarea sin resultado en un hilo virtual.
+     *
+     * @param tarea La tarea a ejecutar.
+     * @return Un {@link CompletableFuture} que se completa al terminar la tarea.
+     */
+    public static CompletableFuture<Void> run(Runnable tarea) {
+        return CompletableFuture.runAsync(tarea, executor);
+    }
+
+    /**
+     * Devuelve el ejecutor del grupo de hilos de cálculo, para encadenar continuaciones intensivas en CPU.
+     *
+     * @return El ejecutor de cálculo.
+     */
+    public static Executor calculo() {
+        return calculo;
+    }
+
+    /**
+     * Devuelve el ejecutor que programa las continuaciones en el hilo de JavaFX.
+     * <p>
+     * Se usa con los métodos {@code ...Async} de {@link CompletableFuture}, por ejemplo
+     * {@code future.whenCompleteAsync((r, e) -> ..., AsyncUtil.fx())}.
+     * </p>
+     *
+     * @return El ejecutor del hilo de JavaFX.
+     */
+    public static Executor fx() {
+        return fx;
+    }
+
+    /**
+     * Obtiene la causa real de un error de una tarea asíncrona.
+     * <p>
+     * {@link CompletableFuture} envuelve las excepciones en {@link CompletionException}; este método
+     * las desenvuelve para poder mostrar al usuario el mensaje original.
+     * </p>
+     *
+     * @param error El error recibido en la continuación.
+     * @return La excepción original lanzada por la tarea.
+     */
+    public static Throwable causa(Throwable error) {
+        Throwable actual = error;
+        while ((actual instanceof CompletionException || actual instanceof ExecutionException)
+                && actual.getCause() != null) {
+            actual = actual.getCause();
+        }
+        return actual;
+    }
+
+    /**
+     * Deja de aceptar tareas y espera brevemente a que terminen las que están en curso.
+     * <p>
+     * Debe llamarse al cerrar la aplicación, antes de cerrar la factoría de EntityManagers,
+     * para que ninguna tarea pendiente use una base de datos ya cerrada.
+     * </p>
+     */
+    public static void shutdown() {
+        calculo.shutdown();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Quedaron tareas en segundo plano sin terminar al cerrar la aplicación.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
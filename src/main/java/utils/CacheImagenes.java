@@ -0,0 +1,352 @@
+package utils;
+
+import javafx.scene.image.Image;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Caché de imágenes remotas (los pósters de {@code Pelicula.image_url}) reducidas a un tamaño concreto.
+ * <p>
+ * Las imágenes se cargan en segundo plano y pasan por dos niveles:
+ * <ol>
+ *     <li>En memoria, una caché LRU de imágenes ya decodificadas y reducidas, acotada por el número de bytes
+ *     que ocupan sus píxeles (no por número de imágenes), con clave URL + tamaño.</li>
+ *     <li>En disco, los bytes originales descargados, en un fichero cuyo nombre es el SHA-256 de la URL.
+ *     Se guardan los originales y no las miniaturas porque JavaFX no puede codificar imágenes sin Swing;
+ *     reducirlas al decodificar desde disco es barato.</li>
+ * </ol>
+ * Varias peticiones de la misma imagen mientras se carga comparten la carga, y las descargas simultáneas
+ * están limitadas. Cancelar el {@link CompletableFuture} devuelto (p. ej. una celda que sale de la vista)
+ * descarta esa petición; si nadie más espera la imagen y su descarga no ha empezado, no llega a descargarse.
+ * </p>
+ * <p>
+ * Se configura con las propiedades de sistema {@code imagenes.cache.memoriaMB} (por defecto
+ * {@value #MEMORIA_POR_DEFECTO_MB}), {@code imagenes.cache.carpeta} (por defecto {@value #CARPETA_POR_DEFECTO})
+ * y {@code imagenes.cache.discoMB} (por defecto {@value #DISCO_POR_DEFECTO_MB}). Solo se descargan URLs
+ * {@code http} o {@code https} de hasta {@code imagenes.descarga.maxMB} megabytes (por defecto
+ * {@value #DESCARGA_POR_DEFECTO_MB}); una URL de otro esquema o una respuesta mayor hace fallar la carga.
+ * </p>
+ */
+public final class CacheImagenes {
+
+    /**
+     * Memoria máxima de las imágenes decodificadas, en megabytes, si no se indica otra.
+     */
+    public static final long MEMORIA_POR_DEFECTO_MB = 32;
+    /**
+     * Carpeta de la caché en disco si no se indica otra.
+     */
+    public static final String CARPETA_POR_DEFECTO = "cache/imagenes";
+    /**
+     * Tamaño máximo de la caché en disco, en megabytes, si no se indica otro.
+     */
+    public static final long DISCO_POR_DEFECTO_MB = 200;
+    /**
+     * Tamaño máximo de una imagen descargada, en megabytes, si no se indica otro.
+     */
+    public static final int DESCARGA_POR_DEFECTO_MB = 10;
+
+    private static final int DESCARGAS_SIMULTANEAS = 6;
+    private static final int TIEMPO_ESPERA_MS = 10_000;
+    private static final int ESCRITURAS_ENTRE_RECORTES = 64;
+
+    private static final CacheImagenes INSTANCIA = new CacheImagenes();
+
+    private final long memoriaMaxima = Long.getLong("imagenes.cache.memoriaMB", MEMORIA_POR_DEFECTO_MB) * 1024 * 1024;
+    private final long discoMaximo = Long.getLong("imagenes.cache.discoMB", DISCO_POR_DEFECTO_MB) * 1024 * 1024;
+    private final int descargaMaxima = Integer.getInteger("imagenes.descarga.maxMB", DESCARGA_POR_DEFECTO_MB) * 1024 * 1024;
+    private final Path carpeta = Path.of(System.getProperty("imagenes.cache.carpeta", CARPETA_POR_DEFECTO));
+
+    // accessOrder = true: el primer elemento es siempre el menos usado recientemente
+    private final LinkedHashMap<String, Image> memoria = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesEnMemoria;
+
+    private final Map<String, Carga> enCurso = new ConcurrentHashMap<>();
+    private final Semaphore descargas = new Semaphore(DESCARGAS_SIMULTANEAS);
+    private final AtomicInteger escrituras = new AtomicInteger();
+    private final LongAdder aciertosMemoria = new LongAdder();
+    private final LongAdder aciertosDisco = new LongAdder();
+    private final LongAdder descargadas = new LongAdder();
+
+    private CacheImagenes() {}
+
+    /**
+     * Obtiene la caché compartida.
+     *
+     * @return La instancia única de la caché.
+     */
+    public static CacheImagenes getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Una carga en curso, compartida por todas las peticiones de la misma imagen y tamaño.
+     */
+    private static final class Carga {
+        private final CompletableFuture<Image> imagen = new CompletableFuture<>();
+        private final AtomicInteger interesados = new AtomicInteger();
+    }
+
+    /**
+     * Busca una imagen en la caché de memoria sin cargarla.
+     * <p>
+     * Sirve para pintar al instante las imágenes ya vistas, sin esperar a un cambio de hilo.
+     * </p>
+     *
+     * @param url   La URL de la imagen.
+     * @param ancho El ancho máximo de la imagen reducida.
+     * @param alto  El alto máximo de la imagen reducida.
+     * @return La imagen si estaba en memoria.
+     */
+    public Optional<Image> getEnMemoria(String url, double ancho, double alto) {
+        Image imagen;
+        synchronized (memoria) {
+            imagen = memoria.get(clave(url, ancho, alto));
+        }
+        if (imagen != null) aciertosMemoria.increment();
+        return Optional.ofNullable(imagen);
+    }
+
+    /**
+     * Obtiene una imagen reducida para caber en {@code ancho} x {@code alto}, conservando la proporción.
+     * <p>
+     * Si está en memoria se devuelve ya completada; si no, se lee del disco o se descarga en un hilo virtual.
+     * Cada llamada devuelve su propio {@link CompletableFuture}: cancelarlo no afecta a otras peticiones de
+     * la misma imagen. Falla si la URL no es válida, no se puede descargar o no es una imagen.
+     * </p>
+     *
+     * @param url   La URL de la imagen.
+     * @param ancho El ancho máximo de la imagen reducida.
+     * @param alto  El alto máximo de la imagen reducida.
+     * @return Un {@link CompletableFuture} con la imagen.
+     */
+    public CompletableFuture<Image> cargar(String url, double ancho, double alto) {
+        Optional<Image> enMemoria = getEnMemoria(url, ancho, alto);
+        if (enMemoria.isPresent()) return CompletableFuture.completedFuture(enMemoria.get());
+
+        String clave = clave(url, ancho, alto);
+        boolean[] nueva = {false};
+        Carga carga = enCurso.computeIfAbsent(clave, k -> {
+            nueva[0] = true;
+            Carga creada = new Carga();
+            // Se cuenta al interesado antes de lanzar la carga, que podría comprobarlo enseguida
+            creada.interesados.set(1);
+            AsyncUtil.run(() -> ejecutar(creada, clave, url, ancho, alto));
+            return creada;
+        });
+        if (!nueva[0]) carga.interesados.incrementAndGet();
+        CompletableFuture<Image> peticion = carga.imagen.thenApply(imagen -> imagen);
+        peticion.whenComplete((imagen, error) -> {
+            if (error instanceof CancellationException) carga.interesados.decrementAndGet();
+        });
+        return peticion;
+    }
+
+    private void ejecutar(Carga carga, String clave, String url, double ancho, double alto) {
+        try {
+            byte[] original = leerDeDisco(url);
+            if (original != null) {
+                aciertosDisco.increment();
+            } else {
+                original = descargar(carga, url);
+            }
+            Image imagen = new Image(new ByteArrayInputStream(original), ancho, alto, true, true);
+            if (imagen.isError()) {
+                throw new IOException("No es una imagen válida: " + url, imagen.getException());
+            }
+            guardarEnMemoria(clave, imagen);
+            carga.imagen.complete(imagen);
+        } catch (Throwable e) {
+            carga.imagen.completeExceptionally(e);
+        } finally {
+            enCurso.remove(clave, carga);
+        }
+    }
+
+    private byte[] descargar(Carga carga, String url) throws IOException, InterruptedException {
+        // Nadie la espera ya (la fila salió de la vista): no se descarga
+        if (carga.interesados.get() == 0) throw new CancellationException();
+        descargas.acquire();
+        try {
+            if (carga.interesados.get() == 0) throw new CancellationException();
+            URLConnection conexion = abrir(url);
+            conexion.setConnectTimeout(TIEMPO_ESPERA_MS);
+            conexion.setReadTimeout(TIEMPO_ESPERA_MS);
+            if (conexion.getContentLengthLong() > descargaMaxima) {
+                throw new IOException("La imagen ocupa más de " + descargaMaxima / (1024 * 1024) + " MB: " + url);
+            }
+            byte[] bytes;
+            try (InputStream in = conexion.getInputStream()) {
+                // Se lee un byte más del límite para distinguir una imagen justa de una demasiado grande
+                bytes = in.readNBytes(descargaMaxima + 1);
+            }
+            if (bytes.length > descargaMaxima) {
+                throw new IOException("La imagen ocupa más de " + descargaMaxima / (1024 * 1024) + " MB: " + url);
+            }
+            descargadas.increment();
+            guardarEnDisco(url, bytes);
+            return bytes;
+        } finally {
+            descargas.release();
+        }
+    }
+
+    /**
+     * Abre la conexión de una URL de imagen, que solo puede ser {@code http} o {@code https}.
+     * <p>
+     * Así un {@code image_url} importado no puede leer ficheros locales ({@code file:}) ni de otros esquemas.
+     * {@code HttpURLConnection} no sigue redirecciones a otro esquema, de modo que tampoco se puede salir por ahí.
+     * </p>
+     */
+    private static URLConnection abrir(String url) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("URL de imagen no válida: " + url, e);
+        }
+        String esquema = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!esquema.equals("http") && !esquema.equals("https")) {
+            throw new IOException("Solo se descargan imágenes por http o https: " + url);
+        }
+        return uri.toURL().openConnection();
+    }
+
+    private void guardarEnMemoria(String clave, Image imagen) {
+        long tamaño = bytes(imagen);
+        // Una imagen mayor que toda la caché no se guarda: desalojaría todo lo demás
+        if (tamaño > memoriaMaxima) return;
+        synchronized (memoria) {
+            Image anterior = memoria.put(clave, imagen);
+            if (anterior != null) bytesEnMemoria -= bytes(anterior);
+            bytesEnMemoria += tamaño;
+            Iterator<Image> it = memoria.values().iterator();
+            while (bytesEnMemoria > memoriaMaxima && it.hasNext()) {
+                bytesEnMemoria -= bytes(it.next());
+                it.remove();
+            }
+        }
+    }
+
+    private byte[] leerDeDisco(String url) {
+        Path fichero = ficheroDe(url);
+        try {
+            byte[] bytes = Files.readAllBytes(fichero);
+            // La fecha de modificación hace de "último uso" para recortar la caché
+            Files.setLastModifiedTime(fichero, FileTime.fromMillis(System.currentTimeMillis()));
+            return bytes;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void guardarEnDisco(String url, byte[] bytes) {
+        try {
+            Files.createDirectories(carpeta);
+            // Se escribe en un temporal y se renombra: nunca se lee un fichero a medio escribir
+            Path temporal = Files.createTempFile(carpeta, "descarga", ".tmp");
+            Files.write(temporal, bytes);
+            Files.move(temporal, ficheroDe(url), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (escrituras.incrementAndGet() % ESCRITURAS_ENTRE_RECORTES == 0) recortarDisco();
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar la imagen en la caché de disco: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Borra los ficheros usados hace más tiempo hasta que la caché en disco quepa en su tamaño máximo.
+     */
+    private void recortarDisco() throws IOException {
+        List<Path> ficheros;
+        try (Stream<Path> contenido = Files.list(carpeta)) {
+            ficheros = new ArrayList<>(contenido.filter(f -> !f.toString().endsWith(".tmp")).toList());
+        }
+        long total = 0;
+        Map<Path, long[]> datos = new LinkedHashMap<>();
+        for (Path f : ficheros) {
+            long tamaño = Files.size(f);
+            datos.put(f, new long[]{tamaño, Files.getLastModifiedTime(f).toMillis()});
+            total += tamaño;
+        }
+        if (total <= discoMaximo) return;
+        ficheros.sort(Comparator.comparingLong(f -> datos.get(f)[1]));
+        for (Path f : ficheros) {
+            if (total <= discoMaximo) break;
+            if (Files.deleteIfExists(f)) total -= datos.get(f)[0];
+        }
+    }
+
+    private Path ficheroDe(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return carpeta.resolve(HexFormat.of().formatHex(hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static String clave(String url, double ancho, double alto) {
+        return (int) ancho + "x" + (int) alto + " " + url;
+    }
+
+    private static long bytes(Image imagen) {
+        // Píxeles ARGB de 4 bytes
+        return (long) imagen.getWidth() * (long) imagen.getHeight() * 4;
+    }
+
+    /**
+     * Vacía la caché de memoria (los ficheros en disco se conservan).
+     */
+    public void clear() {
+        synchronized (memoria) {
+            memoria.clear();
+            bytesEnMemoria = 0;
+        }
+    }
+
+    /**
+     * @return Los bytes que ocupan las imágenes en memoria.
+     */
+    public long getBytesEnMemoria() {
+        synchronized (memoria) {
+            return bytesEnMemoria;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CacheImagenes{" +
+                "memoria=" + getBytesEnMemoria() / 1024 + " KB" +
+                ", aciertosMemoria=" + aciertosMemoria.sum() +
+                ", aciertosDisco=" + aciertosDisco.sum() +
+                ", descargadas=" + descargadas.sum() +
+                '}';
+    }
+}
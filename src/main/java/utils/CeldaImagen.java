@@ -0,0 +1,73 @@
+package utils;
+
+import javafx.scene.control.TableCell;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Celda de tabla que muestra una imagen a partir de su URL, cargada con {@link CacheImagenes}.
+ * <p>
+ * Si la imagen ya está en memoria se pinta al instante; si no, se pide en segundo plano y se pinta al
+ * llegar, siempre que la celda siga mostrando la misma URL. Las celdas se reutilizan al desplazarse:
+ * cuando una celda pasa a otra fila (o queda vacía) se cancela la carga que tenía pendiente, para no
+ * descargar pósters de filas que ya no se ven.
+ * </p>
+ *
+ * @param <S> El tipo de las filas de la tabla.
+ */
+public class CeldaImagen<S> extends TableCell<S, String> {
+
+    private final CacheImagenes cache = CacheImagenes.getInstance();
+    private final ImageView vista = new ImageView();
+    private final double ancho;
+    private final double alto;
+    private CompletableFuture<Image> pendiente;
+
+    /**
+     * Crea una celda que muestra imágenes reducidas a un tamaño máximo.
+     *
+     * @param ancho El ancho máximo de la imagen.
+     * @param alto  El alto máximo de la imagen.
+     */
+    public CeldaImagen(double ancho, double alto) {
+        this.ancho = ancho;
+        this.alto = alto;
+        vista.setFitWidth(ancho);
+        vista.setFitHeight(alto);
+        vista.setPreserveRatio(true);
+        setGraphic(vista);
+        setText(null);
+    }
+
+    @Override
+    protected void updateItem(String url, boolean empty) {
+        super.updateItem(url, empty);
+        cancelarPendiente();
+        vista.setImage(null);
+        if (empty || url == null || url.isBlank()) return;
+
+        Optional<Image> enMemoria = cache.getEnMemoria(url, ancho, alto);
+        if (enMemoria.isPresent()) {
+            vista.setImage(enMemoria.get());
+            return;
+        }
+        CompletableFuture<Image> carga = cache.cargar(url, ancho, alto);
+        pendiente = carga;
+        carga.whenCompleteAsync((imagen, error) -> {
+            // La celda pudo pasar a otra fila mientras tanto
+            if (pendiente != carga) return;
+            pendiente = null;
+            if (error == null && url.equals(getItem())) vista.setImage(imagen);
+        }, AsyncUtil.fx());
+    }
+
+    private void cancelarPendiente() {
+        if (pendiente != null) {
+            pendiente.cancel(false);
+            pendiente = null;
+        }
+    }
+}
@@ -1,22 +1,45 @@
 package utils;
 
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Clase de utilidad para operaciones comunes de JavaFX.
  * Gestiona el escenario (Stage) principal de la aplicación, permitiendo cambiar
  * de escena y mostrar ventanas modales de forma centralizada.
+ * Las vistas comparten una única escena y sus archivos FXML se guardan en caché al leerlos o precargarlos.
  */
 public class JavaFXUtil {
 
+    // Ruta corregida: style.css está en la raíz de resources; se resuelve una sola vez
+    private static final URL URL_CSS = JavaFXUtil.class.getResource("/style.css");
+    private static final String CSS = URL_CSS != null ? URL_CSS.toExternalForm() : null;
+    // <?import paquete.Clase?> y fx:controller="paquete.Clase"
+    private static final Pattern CLASES_FXML =
+            Pattern.compile("<\\?import\\s+([\\w.*]+)\\s*\\?>|fx:controller=\"([\\w.]+)\"");
+
+    private static final Map<String, byte[]> plantillas = new ConcurrentHashMap<>();
     private static Stage stage;
+    private static Scene escena;
+
+    static {
+        if (CSS == null) System.err.println("No se encontró el archivo de estilos: style.css");
+    }
 
     /**
      * Constructor privado para prevenir la instanciación.
@@ -43,39 +66,99 @@ public class JavaFXUtil {
     }
 
     /**
-     * Carga un archivo FXML y lo establece como la nueva escena en el escenario principal.
-     * Aplica una hoja de estilos global a cada escena cargada.
+     * Carga un archivo FXML y lo muestra en el escenario principal.
+     * <p>
+     * Todas las vistas comparten una única {@link Scene}, creada la primera vez con la hoja de estilos global:
+     * las navegaciones siguientes solo cambian su raíz y ajustan la ventana al tamaño de la nueva vista.
+     * El contenido del FXML se lee de la caché de plantillas (ver {@link #precargar(String...)}); el controlador
+     * se crea de nuevo en cada navegación, ya que guarda el estado de la vista. El tiempo de cada navegación
+     * se registra en {@link Metricas} como {@code "Navegación <fxml>"}.
+     * </p>
      *
      * @param fxml La ruta al archivo FXML, relativa al classpath.
      * @param <T>  El tipo del controlador asociado al FXML.
      * @return El controlador de la nueva escena, o {@code null} si ocurre un error de carga.
      */
     public static <T> T setScene(String fxml) {
+        long inicio = System.nanoTime();
+        boolean error = true;
         try {
             FXMLLoader loader = new FXMLLoader(JavaFXUtil.class.getResource(fxml));
-            Parent root = loader.load();
+            Parent root = loader.load(new ByteArrayInputStream(plantilla(fxml)));
             T controller = loader.getController();
-            Scene scene = new Scene(root);
 
-            // Añadir la hoja de estilos global a la escena
-            URL css = JavaFXUtil.class.getResource("/org/example/retoconjuntojavafxhibernate/style.css");
-            if (css != null) {
-                scene.getStylesheets().add(css.toExternalForm());
+            if (escena == null || stage.getScene() != escena) {
+                escena = new Scene(root);
+                if (CSS != null) {
+                    escena.getStylesheets().add(CSS);
+                }
+                stage.setScene(escena);
             } else {
-                System.err.println("No se encontró el archivo de estilos: style.css");
+                escena.setRoot(root);
+                // La escena se creó sin tamaño fijo: se ajusta al tamaño preferido de la nueva raíz
+                stage.sizeToScene();
             }
-
-            stage.setScene(scene);
             stage.centerOnScreen();
             stage.show();
+            error = false;
             return controller;
         } catch (IOException ex) {
             System.err.println("Error al cargar el archivo FXML: " + fxml);
             ex.printStackTrace();
+        } finally {
+            Metricas.getInstance().get("Navegación " + fxml).registrar(inicio, error);
         }
         return null;
     }
 
+    /**
+     * Lee y guarda en caché, en segundo plano, el contenido de varias vistas FXML.
+     * <p>
+     * Además carga las clases que usan (controles importados y controlador) para que la primera navegación
+     * a cada vista no pague la carga de clases en el hilo de JavaFX. No crea ningún controlador: su
+     * {@code initialize} podría consultar la sesión o la base de datos.
+     * </p>
+     *
+     * @param fxmls Las rutas de los archivos FXML, relativas al classpath.
+     * @return Un {@link CompletableFuture} que se completa al terminar la precarga.
+     */
+    public static CompletableFuture<Void> precargar(String... fxmls) {
+        return AsyncUtil.run(() -> {
+            for (String fxml : fxmls) {
+                try {
+                    cargarClases(new String(plantilla(fxml), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    System.err.println("No se pudo precargar el archivo FXML: " + fxml);
+                }
+            }
+        });
+    }
+
+    private static byte[] plantilla(String fxml) throws IOException {
+        byte[] contenido = plantillas.get(fxml);
+        if (contenido != null) return contenido;
+        try (InputStream in = JavaFXUtil.class.getResourceAsStream(fxml)) {
+            if (in == null) throw new IOException("No se encontró el archivo FXML: " + fxml);
+            contenido = in.readAllBytes();
+        }
+        plantillas.putIfAbsent(fxml, contenido);
+        return contenido;
+    }
+
+    private static void cargarClases(String contenido) {
+        Matcher m = CLASES_FXML.matcher(contenido);
+        while (m.find()) {
+            String clase = m.group(1) != null ? m.group(1) : m.group(2);
+            // Los imports con comodín (javafx.scene.control.*) no nombran ninguna clase concreta
+            if (clase.endsWith("*")) continue;
+            try {
+                Class.forName(clase, true, JavaFXUtil.class.getClassLoader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                // El propio FXMLLoader informará del error al cargar la vista
+            }
+        }
+    }
+
     /**
      * Muestra una ventana de alerta modal.
      * La ventana se mostrará como hija del escenario principal.
@@ -93,4 +176,39 @@ public class JavaFXUtil {
         alert.initOwner(stage);
         alert.showAndWait();
     }
+
+    /**
+     * Muestra un indicador de carga y deshabilita controles mientras se ejecuta una tarea en segundo plano.
+     * <p>
+     * Debe llamarse desde el hilo de JavaFX. Al completarse la tarea (con éxito o con error) se vuelven
+     * a habilitar los controles y, si no queda ninguna otra tarea asociada al mismo indicador, se oculta.
+     * </p>
+     *
+     * @param tarea      La tarea en curso.
+     * @param indicador  El nodo que indica que hay una carga en curso (puede ser null).
+     * @param controles  Los controles que se deshabilitan mientras dura la tarea.
+     * @param <T>        El tipo del resultado de la tarea.
+     * @return La misma tarea, para poder encadenar la continuación.
+     */
+    public static <T> CompletableFuture<T> enCarga(CompletableFuture<T> tarea, Node indicador, Node... controles) {
+        cambiarCargas(indicador, 1);
+        for (Node control : controles) {
+            if (control != null) control.setDisable(true);
+        }
+        tarea.whenCompleteAsync((resultado, error) -> {
+            cambiarCargas(indicador, -1);
+            for (Node control : controles) {
+                if (control != null) control.setDisable(false);
+            }
+        }, AsyncUtil.fx());
+        return tarea;
+    }
+
+    private static void cambiarCargas(Node indicador, int delta) {
+        if (indicador == null) return;
+        // Varias tareas pueden compartir indicador: solo se oculta cuando terminan todas
+        int cargas = (int) indicador.getProperties().getOrDefault("cargas", 0) + delta;
+        indicador.getProperties().put("cargas", cargas);
+        indicador.setVisible(cargas > 0);
+    }
 }
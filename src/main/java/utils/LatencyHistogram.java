@@ -0,0 +1,158 @@
+package utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias concurrente y de tamaño fijo.
+ * <p>
+ * Las muestras (en nanosegundos) se agrupan en cubetas logarítmicas: cada potencia de dos se divide en
+ * {@value #SUBCUBETAS} cubetas, por lo que el error relativo de un percentil es como mucho del 12,5%.
+ * Registrar una muestra es un incremento atómico sin bloqueos, apto para rutas calientes usadas
+ * desde muchos hilos a la vez. La memoria es constante (unas 500 cubetas) sea cual sea el número de muestras.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final int BITS_SUBCUBETA = 3;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int CUBETAS = (64 - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+
+    private final String nombre;
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumaNanos = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Crea un histograma vacío.
+     *
+     * @param nombre El nombre con el que se identifica en los informes.
+     */
+    public LatencyHistogram(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /**
+     * Registra una muestra.
+     *
+     * @param nanos La duración medida, en nanosegundos (los valores negativos se cuentan como 0).
+     */
+    public void record(long nanos) {
+        long valor = Math.max(0, nanos);
+        cubetas.incrementAndGet(indice(valor));
+        total.increment();
+        sumaNanos.add(valor);
+        maximo.accumulateAndGet(valor, Math::max);
+    }
+
+    /**
+     * Registra el tiempo transcurrido desde un instante obtenido con {@link System#nanoTime()}.
+     *
+     * @param inicioNanos El instante de inicio.
+     */
+    public void recordSince(long inicioNanos) {
+        record(System.nanoTime() - inicioNanos);
+    }
+
+    /**
+     * Calcula un percentil aproximado de las muestras registradas.
+     *
+     * @param percentil El percentil, entre 0 y 100 (p. ej. 99.9).
+     * @return El límite superior de la cubeta que contiene el percentil, en nanosegundos, o 0 si no hay muestras.
+     */
+    public long percentile(double percentil) {
+        long n = total.sum();
+        if (n == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percentil)) / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cubetas.get(i);
+            if (acumulado >= objetivo) {
+                // El máximo real es más preciso que el límite de la última cubeta
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * @return El número de muestras registradas.
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * @return La media de las muestras en nanosegundos, o 0 si no hay muestras.
+     */
+    public double getMean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sumaNanos.sum() / n;
+    }
+
+    /**
+     * @return La mayor muestra registrada, en nanosegundos.
+     */
+    public long getMax() {
+        return maximo.get();
+    }
+
+    /**
+     * @return El nombre del histograma.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Descarta todas las muestras registradas.
+     * <p>
+     * No es atómico respecto a los registros concurrentes: una muestra registrada durante el reinicio
+     * puede conservarse o perderse.
+     * </p>
+     */
+    public void reset() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        total.reset();
+        sumaNanos.reset();
+        maximo.set(0);
+    }
+
+    /**
+     * Devuelve un resumen en milisegundos con el número de muestras, la media y los percentiles habituales.
+     *
+     * @return El resumen del histograma.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d media=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                nombre, getCount(), getMean() / 1_000_000.0, ms(percentile(50)), ms(percentile(90)),
+                ms(percentile(99)), ms(percentile(99.9)), ms(getMax()));
+    }
+
+    private static double ms(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // Visibles en el paquete para las pruebas
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) return (int) valor;
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + sub;
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) return indice;
+        int exponente = indice / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        long sub = indice % SUBCUBETAS;
+        long inferior = (SUBCUBETAS + sub) << (exponente - BITS_SUBCUBETA);
+        long ancho = 1L << (exponente - BITS_SUBCUBETA);
+        return inferior + ancho - 1;
+    }
+}
@@ -0,0 +1,263 @@
+package utils;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Registro de métricas de rendimiento por método, compartido por toda la aplicación.
+ * <p>
+ * Cada método instrumentado (p. ej. {@code "UserService.login"}) tiene un {@link LatencyHistogram} con
+ * su número de llamadas y latencias, y un contador de llamadas que terminaron con excepción. Registrar una
+ * llamada no usa bloqueos: el mapa solo se modifica la primera vez que aparece un método.
+ * </p>
+ * <p>
+ * Las llamadas se registran envolviendo el objeto con un proxy dinámico ({@link #instrumentar(Class, Object, String)},
+ * para las interfaces como {@link Repository}) o desde un decorador con {@link #medir(String, Supplier)}.
+ * El informe se puede consultar en la vista de métricas de administración o volcar a un fichero.
+ * </p>
+ */
+public final class Metricas {
+
+    private static final Metricas INSTANCIA = new Metricas();
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ConcurrentMap<String, Metrica> metricas = new ConcurrentHashMap<>();
+
+    private Metricas() {}
+
+    /**
+     * Obtiene el registro compartido.
+     *
+     * @return La instancia única del registro.
+     */
+    public static Metricas getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Métricas de un método: latencias y errores.
+     */
+    public static final class Metrica {
+        private final String nombre;
+        private final LatencyHistogram latencias;
+        private final LongAdder errores = new LongAdder();
+
+        private Metrica(String nombre) {
+            this.nombre = nombre;
+            this.latencias = new LatencyHistogram(nombre);
+        }
+
+        /**
+         * Registra una llamada.
+         *
+         * @param inicioNanos El instante de inicio, obtenido con {@link System#nanoTime()}.
+         * @param error       Si la llamada terminó con una excepción.
+         */
+        public void registrar(long inicioNanos, boolean error) {
+            latencias.recordSince(inicioNanos);
+            if (error) errores.increment();
+        }
+
+        /**
+         * @return El nombre del método.
+         */
+        public String getNombre() {
+            return nombre;
+        }
+
+        /**
+         * @return El histograma de latencias del método.
+         */
+        public LatencyHistogram getLatencias() {
+            return latencias;
+        }
+
+        /**
+         * @return El número de llamadas registradas.
+         */
+        public long getLlamadas() {
+            return latencias.getCount();
+        }
+
+        /**
+         * @return El número de llamadas que terminaron con una excepción.
+         */
+        public long getErrores() {
+            return errores.sum();
+        }
+
+        /**
+         * @return El tiempo total acumulado, en nanosegundos.
+         */
+        public double getTotalNanos() {
+            return latencias.getMean() * latencias.getCount();
+        }
+
+        private void reset() {
+            latencias.reset();
+            errores.reset();
+        }
+    }
+
+    /**
+     * Obtiene (o crea) las métricas de un método.
+     *
+     * @param nombre El nombre del método, normalmente {@code "Clase.metodo"}.
+     * @return Las métricas del método.
+     */
+    public Metrica get(String nombre) {
+        Metrica metrica = metricas.get(nombre);
+        return metrica != null ? metrica : metricas.computeIfAbsent(nombre, Metrica::new);
+    }
+
+    /**
+     * Ejecuta una operación registrando su duración y si falla.
+     *
+     * @param nombre    El nombre del método.
+     * @param operacion La operación a medir.
+     * @param <T>       El tipo del resultado.
+     * @return El resultado de la operación.
+     */
+    public <T> T medir(String nombre, Supplier<T> operacion) {
+        Metrica metrica = get(nombre);
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            T resultado = operacion.get();
+            error = false;
+            return resultado;
+        } finally {
+            metrica.registrar(inicio, error);
+        }
+    }
+
+    /**
+     * Variante de {@link #medir(String, Supplier)} para operaciones sin resultado.
+     *
+     * @param nombre    El nombre del método.
+     * @param operacion La operación a medir.
+     */
+    public void medir(String nombre, Runnable operacion) {
+        medir(nombre, () -> {
+            operacion.run();
+            return null;
+        });
+    }
+
+    /**
+     * Envuelve un objeto en un proxy dinámico que registra cada llamada a los métodos de la interfaz.
+     * <p>
+     * Las métricas se nombran {@code prefijo.metodo}; las sobrecargas de un método comparten métrica.
+     * Los métodos de {@link Object} ({@code toString}, {@code equals}...) no se registran.
+     * </p>
+     *
+     * @param interfaz La interfaz que implementa el proxy.
+     * @param destino  El objeto real que atiende las llamadas.
+     * @param prefijo  El prefijo de los nombres de las métricas, normalmente el nombre de la clase.
+     * @param <I>      El tipo de la interfaz.
+     * @return El proxy instrumentado.
+     */
+    public static <I> I instrumentar(Class<I> interfaz, I destino, String prefijo) {
+        InvocationHandler manejador = (proxy, metodo, argumentos) -> {
+            if (metodo.getDeclaringClass() == Object.class) return metodo.invoke(destino, argumentos);
+            Metrica metrica = INSTANCIA.get(prefijo + "." + metodo.getName());
+            long inicio = System.nanoTime();
+            boolean error = true;
+            try {
+                Object resultado = metodo.invoke(destino, argumentos);
+                error = false;
+                return resultado;
+            } catch (InvocationTargetException e) {
+                // Se relanza la excepción original, no la de reflexión
+                throw e.getCause();
+            } finally {
+                metrica.registrar(inicio, error);
+            }
+        };
+        return interfaz.cast(Proxy.newProxyInstance(interfaz.getClassLoader(), new Class<?>[]{interfaz}, manejador));
+    }
+
+    /**
+     * Envuelve un repositorio en un proxy que registra sus llamadas con el nombre de su clase.
+     *
+     * @param repositorio El repositorio real.
+     * @param <T>         El tipo de la entidad.
+     * @return El repositorio instrumentado.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Repository<T> instrumentar(Repository<T> repositorio) {
+        return instrumentar(Repository.class, repositorio, repositorio.getClass().getSimpleName());
+    }
+
+    /**
+     * Devuelve las métricas de todos los métodos con al menos una llamada, de mayor a menor tiempo total.
+     *
+     * @return Las métricas registradas.
+     */
+    public List<Metrica> getMetricas() {
+        List<Metrica> lista = new ArrayList<>();
+        for (Metrica metrica : metricas.values()) {
+            if (metrica.getLlamadas() > 0) lista.add(metrica);
+        }
+        lista.sort(Comparator.comparingDouble(Metrica::getTotalNanos).reversed());
+        return lista;
+    }
+
+    /**
+     * Descarta las muestras de todos los métodos.
+     */
+    public void reset() {
+        metricas.values().forEach(Metrica::reset);
+    }
+
+    /**
+     * Genera un informe en texto con una fila por método (tiempos en milisegundos).
+     *
+     * @return El informe.
+     */
+    public String informe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Métricas a ").append(LocalDateTime.now().format(FORMATO_FECHA)).append(System.lineSeparator());
+        sb.append(String.format("%-45s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Método", "Llamadas", "Errores", "Media", "p50", "p95", "p99", "Máx"));
+        for (Metrica m : getMetricas()) {
+            LatencyHistogram h = m.getLatencias();
+            sb.append(String.format("%-45s %10d %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    m.getNombre(), m.getLlamadas(), m.getErrores(), h.getMean() / 1_000_000.0,
+                    ms(h.percentile(50)), ms(h.percentile(95)), ms(h.percentile(99)), ms(h.getMax())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Añade el informe actual al final de un fichero, creándolo si no existe.
+     *
+     * @param fichero El fichero de destino.
+     * @throws IOException Si no se puede escribir el fichero.
+     */
+    public void volcar(Path fichero) throws IOException {
+        Path carpeta = fichero.toAbsolutePath().getParent();
+        if (carpeta != null) Files.createDirectories(carpeta);
+        Files.writeString(fichero, informe() + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,65 @@
+package utils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase de utilidad para publicar por JMX los objetos de monitorización de la aplicación.
+ * <p>
+ * Los objetos se registran en el servidor de MBeans de la plataforma con el nombre
+ * {@code DOMINIO:type=tipo}, de modo que JConsole o VisualVM los muestran agrupados al conectarse
+ * al proceso del cliente. Registrar es idempotente: si ya había uno con el mismo tipo, se sustituye.
+ * Un fallo al registrar se informa por consola pero no impide arrancar la aplicación.
+ * </p>
+ */
+public final class MonitorJMX {
+
+    /**
+     * Dominio de los nombres JMX de la aplicación.
+     */
+    public static final String DOMINIO = "RetoConjunto";
+
+    private static final List<ObjectName> registrados = new ArrayList<>();
+
+    /**
+     * Constructor privado para prevenir la instanciación.
+     */
+    private MonitorJMX() {}
+
+    /**
+     * Registra un MBean (o MXBean) con el tipo indicado.
+     *
+     * @param tipo  El valor de la clave {@code type} del nombre JMX, p. ej. {@code "Persistencia"}.
+     * @param mbean El objeto a publicar; debe implementar una interfaz {@code ...MBean} o {@code ...MXBean}.
+     */
+    public static synchronized void registrar(String tipo, Object mbean) {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(DOMINIO, "type", tipo);
+            if (servidor.isRegistered(nombre)) servidor.unregisterMBean(nombre);
+            servidor.registerMBean(mbean, nombre);
+            if (!registrados.contains(nombre)) registrados.add(nombre);
+        } catch (JMException e) {
+            System.err.println("No se pudo registrar el MBean " + tipo + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Elimina del servidor de MBeans todos los objetos registrados con {@link #registrar(String, Object)}.
+     */
+    public static synchronized void desregistrarTodos() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName nombre : registrados) {
+            try {
+                if (servidor.isRegistered(nombre)) servidor.unregisterMBean(nombre);
+            } catch (JMException e) {
+                System.err.println("No se pudo eliminar el MBean " + nombre + ": " + e.getMessage());
+            }
+        }
+        registrados.clear();
+    }
+}
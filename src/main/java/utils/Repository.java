@@ -1,17 +1,140 @@
 package utils;
 
+import jakarta.persistence.TypedQuery;
+import session.UnitOfWork;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Interfaz genérica para el patrón Repository[cite: 395].
  * @param <T> Tipo de la entidad (Pelicula, User, etc.)
  */
 public interface Repository<T> {
+
+    /**
+     * Número de entidades que se cargan por bloque en los recorridos con {@link #streamAll(Consumer)}.
+     */
+    int TAMAÑO_BLOQUE_POR_DEFECTO = 500;
+
+    /**
+     * Número de entidades por transacción en las operaciones masivas ({@link #saveAll(Collection)},
+     * {@link #deleteAllById(Collection)}). Configurable con la propiedad de sistema {@code repositorio.lote}.
+     */
+    int TAMAÑO_LOTE_POR_DEFECTO = Integer.getInteger("repositorio.lote", 1000);
+
     Optional<T> findById(Long id);
     List<T> findAll();
     T save(T entity);
     Optional<T> delete(T entity);
     Optional<T> deleteById(Long id);
     Long count();
-}
\ No newline at end of file
+
+    /**
+     * Guarda o actualiza varias entidades en lotes de {@link #TAMAÑO_LOTE_POR_DEFECTO}.
+     *
+     * @param entidades Las entidades a guardar.
+     * @return Las entidades persistidas, en el mismo orden.
+     */
+    default List<T> saveAll(Collection<T> entidades) {
+        return saveAll(entidades, TAMAÑO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Guarda o actualiza varias entidades agrupándolas en transacciones de {@code tamañoLote} elementos.
+     * <p>
+     * Tras confirmar cada lote se limpia el contexto de persistencia, por lo que el coste de memoria
+     * está acotado por el tamaño del lote. Si falla un lote, los anteriores ya quedan confirmados.
+     * </p>
+     *
+     * @param entidades  Las entidades a guardar.
+     * @param tamañoLote El número de entidades por transacción.
+     * @return Las entidades persistidas, en el mismo orden.
+     */
+    List<T> saveAll(Collection<T> entidades, int tamañoLote);
+
+    /**
+     * Elimina varias entidades por ID en lotes de {@link #TAMAÑO_LOTE_POR_DEFECTO}.
+     *
+     * @param ids Los identificadores a eliminar.
+     * @return El número de entidades eliminadas (los IDs inexistentes se ignoran).
+     */
+    default int deleteAllById(Collection<Long> ids) {
+        return deleteAllById(ids, TAMAÑO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Elimina varias entidades por ID agrupándolas en transacciones de {@code tamañoLote} elementos.
+     *
+     * @param ids        Los identificadores a eliminar.
+     * @param tamañoLote El número de borrados por transacción.
+     * @return El número de entidades eliminadas (los IDs inexistentes se ignoran).
+     */
+    int deleteAllById(Collection<Long> ids, int tamañoLote);
+
+    /**
+     * Recorre todas las entidades sin materializarlas a la vez en memoria.
+     * <p>
+     * Equivale a {@code streamAll(TAMAÑO_BLOQUE_POR_DEFECTO, accion)}.
+     * </p>
+     *
+     * @param accion La acción a ejecutar sobre cada entidad.
+     */
+    default void streamAll(Consumer<T> accion) {
+        streamAll(TAMAÑO_BLOQUE_POR_DEFECTO, accion);
+    }
+
+    /**
+     * Recorre todas las entidades en orden de ID, cargándolas por bloques.
+     * <p>
+     * Tras procesar cada bloque se limpia el contexto de persistencia ({@code EntityManager.clear()}),
+     * de modo que la memoria usada es proporcional al tamaño del bloque y no al total de entidades.
+     * Las entidades solo están gestionadas mientras se procesa su bloque: la acción puede navegar
+     * relaciones LAZY, pero no debería conservar referencias a ellas si se busca memoria constante.
+     * </p>
+     *
+     * @param tamañoBloque El número de entidades cargadas por consulta.
+     * @param accion       La acción a ejecutar sobre cada entidad.
+     */
+    void streamAll(int tamañoBloque, Consumer<T> accion);
+
+    /**
+     * Implementación común de {@link #streamAll(int, Consumer)}: recorre una entidad por bloques ordenados por ID.
+     * <p>
+     * Cada bloque se obtiene con una consulta por clave ({@code id > último}) sobre el EntityManager
+     * de la unidad de trabajo, que se limpia tras procesar el bloque para mantener la memoria constante
+     * (solo si este recorrido es la unidad de trabajo más externa).
+     * </p>
+     *
+     * @param clase        La clase de la entidad; su nombre simple es el de la entidad en JPQL.
+     * @param id           Obtiene el ID de una entidad.
+     * @param tamañoBloque El número de entidades cargadas por consulta.
+     * @param accion       La acción a ejecutar sobre cada entidad.
+     * @param <E>          El tipo de la entidad.
+     */
+    static <E> void recorrerPorBloques(Class<E> clase, Function<E, Integer> id, int tamañoBloque, Consumer<E> accion) {
+        UnitOfWork.read(em -> {
+            TypedQuery<E> query = em.createQuery(
+                    "SELECT e FROM " + clase.getSimpleName() + " e WHERE e.id > :ultimo ORDER BY e.id", clase)
+                    .setMaxResults(tamañoBloque);
+            // Los IDs generados por ObjectDB empiezan en 1
+            Integer ultimo = 0;
+            List<E> bloque;
+            do {
+                bloque = query.setParameter("ultimo", ultimo).getResultList();
+                for (E entidad : bloque) {
+                    accion.accept(entidad);
+                }
+                if (!bloque.isEmpty()) {
+                    ultimo = id.apply(bloque.get(bloque.size() - 1));
+                }
+                // Desvinculamos el bloque procesado para que pueda ser recolectado
+                if (UnitOfWork.isOutermost()) em.clear();
+            } while (bloque.size() == tamañoBloque);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package importacion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogoImporterTest {
+
+    @Test
+    void divideUnaLineaSencilla() {
+        assertEquals(List.of("Alien", "Terror", "1979"), CatalogoImporter.dividirCsv("Alien,Terror,1979", ','));
+        assertEquals(List.of("Alien", "Terror"), CatalogoImporter.dividirCsv("Alien;Terror", ';'));
+    }
+
+    @Test
+    void conservaLosCamposVacios() {
+        assertEquals(List.of("", "b", "", ""), CatalogoImporter.dividirCsv(",b,,", ','));
+        assertEquals(List.of(""), CatalogoImporter.dividirCsv("", ','));
+    }
+
+    @Test
+    void respetaLasComillas() {
+        assertEquals(List.of("Alien, el octavo pasajero", "DVD:3|BluRay:2"),
+                CatalogoImporter.dividirCsv("\"Alien, el octavo pasajero\",DVD:3|BluRay:2", ','));
+        assertEquals(List.of("Dijo \"hola\"", "x"), CatalogoImporter.dividirCsv("\"Dijo \"\"hola\"\"\",x", ','));
+        assertEquals(List.of(""), CatalogoImporter.dividirCsv("\"\"", ','));
+    }
+
+    @Test
+    void rechazaLasComillasSinCerrar() {
+        assertThrows(IllegalArgumentException.class, () -> CatalogoImporter.dividirCsv("\"Alien,1979", ','));
+    }
+
+    @Test
+    void asociaLosValoresALaCabeceraEnMinusculas() {
+        String[] cabecera = {" Titulo", "AÑO ", "copias"};
+
+        Map<String, Object> campos = CatalogoImporter.camposCsv(cabecera, List.of("Alien", "1979"));
+
+        assertEquals(Map.of("titulo", "Alien", "año", "1979"), campos);
+    }
+
+    @Test
+    void rechazaLineasConMasColumnasQueLaCabecera() {
+        String[] cabecera = {"titulo"};
+
+        assertThrows(IllegalArgumentException.class, () -> CatalogoImporter.camposCsv(cabecera, List.of("a", "b")));
+    }
+}
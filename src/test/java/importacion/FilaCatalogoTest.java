@@ -0,0 +1,96 @@
+package importacion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FilaCatalogoTest {
+
+    private static Map<String, Object> campos(Object... claveValor) {
+        Map<String, Object> campos = new HashMap<>();
+        for (int i = 0; i < claveValor.length; i += 2) campos.put((String) claveValor[i], claveValor[i + 1]);
+        return campos;
+    }
+
+    @Test
+    void construyeLaFilaDesdeCamposCsv() {
+        FilaCatalogo fila = FilaCatalogo.desdeCampos(7, campos("titulo", "  Alien ", "genero", "Terror", "año", " 1979",
+                "director", "Ridley Scott", "descripcion", "", "image_url", "http://x/alien.jpg", "copias", "DVD:3|BluRay:2"));
+
+        assertEquals(7L, fila.numeroLinea());
+        assertEquals("Alien", fila.titulo());
+        assertEquals("Terror", fila.genero());
+        assertEquals(1979, fila.año());
+        assertEquals("Ridley Scott", fila.director());
+        assertNull(fila.descripcion());
+        assertEquals("http://x/alien.jpg", fila.imageUrl());
+        assertEquals(Map.of("DVD", 3, "BluRay", 2), fila.copiasPorSoporte());
+    }
+
+    @Test
+    void construyeLaFilaDesdeCamposJson() {
+        FilaCatalogo fila = FilaCatalogo.desdeCampos(1, JsonLinea.parsearObjeto(
+                "{\"titulo\": \"Alien\", \"anio\": 1979, \"copias\": {\"DVD\": 3, \"BluRay\": 2.0}}"));
+
+        assertEquals(1979, fila.año());
+        assertEquals(Map.of("DVD", 3, "BluRay", 2), fila.copiasPorSoporte());
+    }
+
+    @Test
+    void sumaLasCopiasDelMismoSoporteYAdmiteFilasSinCopias() {
+        assertEquals(Map.of("DVD", 5), FilaCatalogo.desdeCampos(1,
+                campos("titulo", "A", "año", "2000", "copias", " DVD : 2 | DVD:3 ")).copiasPorSoporte());
+        assertEquals(Map.of(), FilaCatalogo.desdeCampos(1, campos("titulo", "A", "año", "2000")).copiasPorSoporte());
+        assertEquals(Map.of(), FilaCatalogo.desdeCampos(1,
+                campos("titulo", "A", "año", "2000", "copias", " ")).copiasPorSoporte());
+    }
+
+    @Test
+    void creaUnaCopiaDisponiblePorUnidad() {
+        FilaCatalogo fila = FilaCatalogo.desdeCampos(1, campos("titulo", "A", "año", "2000", "copias", "DVD:2|VHS:0"));
+
+        List<String> soportes = fila.crearCopias(fila.crearPelicula()).stream()
+                .map(c -> c.getSoporte() + "/" + c.getEstado())
+                .toList();
+
+        assertEquals(List.of("DVD/Disponible", "DVD/Disponible"), soportes);
+    }
+
+    @Test
+    void rechazaLasFilasSinTituloOConAñoNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> FilaCatalogo.desdeCampos(1, campos("año", "2000")));
+        assertThrows(IllegalArgumentException.class, () -> FilaCatalogo.desdeCampos(1, campos("titulo", " ", "año", "2000")));
+        assertThrows(IllegalArgumentException.class, () -> FilaCatalogo.desdeCampos(1, campos("titulo", "A")));
+        assertThrows(IllegalArgumentException.class, () -> FilaCatalogo.desdeCampos(1, campos("titulo", "A", "año", "dos mil")));
+        assertThrows(IllegalArgumentException.class, () -> FilaCatalogo.desdeCampos(1, campos("titulo", "A", "año", "0")));
+    }
+
+    @Test
+    void rechazaCantidadesDeCopiasQueNoSonEnterosExactos() {
+        for (String copias : List.of("DVD:2.5", "DVD:tres", "DVD:", "DVD:-1", "DVD:1e12", "DVD:99999999999", "DVD", ":3")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> FilaCatalogo.desdeCampos(1, campos("titulo", "A", "año", "2000", "copias", copias)), copias);
+        }
+        assertThrows(IllegalArgumentException.class, () -> FilaCatalogo.desdeCampos(1,
+                JsonLinea.parsearObjeto("{\"titulo\": \"A\", \"año\": 2000, \"copias\": {\"DVD\": 2.5}}")));
+    }
+
+    @Test
+    void limitaLasCopiasPorFila() {
+        int maximo = FilaCatalogo.MAX_COPIAS_POR_FILA;
+
+        assertEquals(Map.of("DVD", maximo), FilaCatalogo.desdeCampos(1,
+                campos("titulo", "A", "año", "2000", "copias", "DVD:" + maximo)).copiasPorSoporte());
+        assertThrows(IllegalArgumentException.class, () -> FilaCatalogo.desdeCampos(1,
+                campos("titulo", "A", "año", "2000", "copias", "DVD:" + (maximo + 1))));
+        // Cada soporte cabe en el límite, pero la fila no
+        assertThrows(IllegalArgumentException.class, () -> FilaCatalogo.desdeCampos(1,
+                campos("titulo", "A", "año", "2000", "copias", "DVD:" + maximo + "|BluRay:1")));
+    }
+}
@@ -0,0 +1,78 @@
+package importacion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonLineaTest {
+
+    @Test
+    void analizaLosTiposBasicos() {
+        Map<String, Object> objeto = JsonLinea.parsearObjeto(
+                " { \"titulo\": \"Alien\", \"año\": 1979, \"nota\": 8.5, \"color\": true, \"muda\": false, \"saga\": null } ");
+
+        assertEquals("Alien", objeto.get("titulo"));
+        assertEquals(1979L, objeto.get("año"));
+        assertEquals(8.5, objeto.get("nota"));
+        assertEquals(Boolean.TRUE, objeto.get("color"));
+        assertEquals(Boolean.FALSE, objeto.get("muda"));
+        assertTrue(objeto.containsKey("saga"));
+        assertNull(objeto.get("saga"));
+    }
+
+    @Test
+    void analizaObjetosYArraysAnidados() {
+        Map<String, Object> objeto = JsonLinea.parsearObjeto(
+                "{\"copias\": {\"DVD\": 3, \"BluRay\": 2}, \"etiquetas\": [\"a\", 1, [], {}], \"vacio\": {}}");
+
+        assertEquals(Map.of("DVD", 3L, "BluRay", 2L), objeto.get("copias"));
+        assertEquals(List.of("a", 1L, List.of(), Map.of()), objeto.get("etiquetas"));
+        assertEquals(Map.of(), objeto.get("vacio"));
+    }
+
+    @Test
+    void conservaElOrdenDeLosCampos() {
+        Map<String, Object> objeto = JsonLinea.parsearObjeto("{\"b\": 1, \"a\": 2, \"c\": 3}");
+
+        assertEquals(List.of("b", "a", "c"), List.copyOf(objeto.keySet()));
+    }
+
+    @Test
+    void interpretaLasSecuenciasDeEscape() {
+        Map<String, Object> objeto = JsonLinea.parsearObjeto(
+                "{\"t\": \"comillas \\\" barra \\\\ \\/ \\n\\t\\r\\b\\f \\u00e1\\u00F1\"}");
+
+        assertEquals("comillas \" barra \\ / \n\t\r\b\f áñ", objeto.get("t"));
+    }
+
+    @Test
+    void analizaNumerosNegativosYConExponente() {
+        Map<String, Object> objeto = JsonLinea.parsearObjeto("{\"a\": -12, \"b\": 1e3, \"c\": -2.5E-1}");
+
+        assertEquals(-12L, objeto.get("a"));
+        assertEquals(1000.0, objeto.get("b"));
+        assertEquals(-0.25, objeto.get("c"));
+    }
+
+    @Test
+    void rechazaLoQueNoEsUnObjetoValido() {
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("[1, 2]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto(""));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\": 1} x"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\": 1"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{a: 1}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\" 1}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\": \"sin cerrar}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\": \"\\x\"}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\": \"\\u12\"}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\": tru}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\": 1-2}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLinea.parsearObjeto("{\"a\": [1 2]}"));
+    }
+}
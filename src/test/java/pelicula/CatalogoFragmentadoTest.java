@@ -0,0 +1,81 @@
+package pelicula;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogoFragmentadoTest {
+
+    @Test
+    void cursorLocalDejaDetrasLasMismasFilasQueElCursorGlobal() {
+        for (int n = 1; n <= 5; n++) {
+            for (int fragmento = 0; fragmento < n; fragmento++) {
+                for (int cursor = 0; cursor <= 60; cursor++) {
+                    int ascendente = CatalogoFragmentado.cursorLocal(cursor, fragmento, n, true);
+                    int descendente = CatalogoFragmentado.cursorLocal(cursor, fragmento, n, false);
+                    for (int local = 0; local <= 20; local++) {
+                        int global = local * n + fragmento;
+                        assertEquals(global > cursor, local > ascendente,
+                                "asc n=" + n + " fragmento=" + fragmento + " cursor=" + cursor + " local=" + local);
+                        assertEquals(global < cursor, local < descendente,
+                                "desc n=" + n + " fragmento=" + fragmento + " cursor=" + cursor + " local=" + local);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void cursorLocalDeUnaFilaDelPropioFragmentoEsSuIdLocal() {
+        // global 14 = local 3 en el fragmento 2 de 4
+        assertEquals(3, CatalogoFragmentado.cursorLocal(14, 2, 4, true));
+        assertEquals(3, CatalogoFragmentado.cursorLocal(14, 2, 4, false));
+    }
+
+    @Test
+    void mezclarIntercalaListasOrdenadas() {
+        List<List<Integer>> listas = List.of(List.of(1, 4, 7), List.of(2, 5, 8), List.of(3, 6, 9));
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9),
+                CatalogoFragmentado.mezclar(listas, Comparator.naturalOrder(), 100));
+    }
+
+    @Test
+    void mezclarSeDetieneEnElLimite() {
+        List<List<Integer>> listas = List.of(List.of(1, 4, 7), List.of(2, 5, 8));
+
+        assertEquals(List.of(1, 2, 4), CatalogoFragmentado.mezclar(listas, Comparator.naturalOrder(), 3));
+        assertTrue(CatalogoFragmentado.mezclar(listas, Comparator.naturalOrder(), 0).isEmpty());
+    }
+
+    @Test
+    void mezclarAdmiteListasVaciasYDesiguales() {
+        List<List<Integer>> listas = new ArrayList<>();
+        listas.add(List.of());
+        listas.add(List.of(5));
+        listas.add(List.of(1, 2, 3, 10));
+        listas.add(List.of());
+
+        assertEquals(List.of(1, 2, 3, 5, 10), CatalogoFragmentado.mezclar(listas, Comparator.naturalOrder(), 10));
+        assertTrue(CatalogoFragmentado.mezclar(List.<List<Integer>>of(), Comparator.naturalOrder(), 10).isEmpty());
+    }
+
+    @Test
+    void mezclarRespetaElOrdenDelCatalogoConNulosAlFinal() {
+        PeliculaResumen a = new PeliculaResumen(0, "A", "Drama", 1990, null);
+        PeliculaResumen b = new PeliculaResumen(1, "B", null, 2000, null);
+        PeliculaResumen c = new PeliculaResumen(2, "C", "Comedia", 2010, null);
+        PeliculaResumen d = new PeliculaResumen(3, "D", null, 2020, null);
+        Comparator<PeliculaResumen> porGenero = OrdenCatalogo.GENERO.comparador(true);
+
+        // Fragmento 0: IDs pares; fragmento 1: impares. Cada uno ya viene en el orden de la consulta
+        List<PeliculaResumen> mezcla = CatalogoFragmentado.mezclar(List.of(List.of(c, a), List.of(b, d)), porGenero, 10);
+
+        assertEquals(List.of(c, a, b, d), mezcla);
+    }
+}
@@ -0,0 +1,195 @@
+package pelicula;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceBusquedaTest {
+
+    private static Pelicula pelicula(int id, String titulo, String director, String descripcion) {
+        Pelicula p = new Pelicula();
+        p.setId(id);
+        p.setTitulo(titulo);
+        p.setDirector(director);
+        p.setDescripcion(descripcion);
+        return p;
+    }
+
+    private static IndiceBusqueda indice(Pelicula... peliculas) {
+        IndiceBusqueda indice = new IndiceBusqueda();
+        indice.construirCon(List.of(peliculas));
+        return indice;
+    }
+
+    @Test
+    void normalizarQuitaTildesYMayusculas() {
+        assertEquals("accion en la cancion", IndiceBusqueda.normalizar("ACCIÓN en la Canción"));
+        assertEquals("", IndiceBusqueda.normalizar(null));
+    }
+
+    @Test
+    void encuentraSinTenerEnCuentaTildesNiMayusculas() {
+        IndiceBusqueda indice = indice(pelicula(1, "Acción en la ciudad", null, null));
+
+        assertEquals(List.of(1), indice.buscar("accion", 10));
+        assertEquals(List.of(1), indice.buscar("CIUDAD acción", 10));
+    }
+
+    @Test
+    void exigeTodasLasPalabras() {
+        IndiceBusqueda indice = indice(
+                pelicula(1, "Tiburón", null, "Un lobo de mar"),
+                pelicula(2, "Tiburón 2", null, null),
+                pelicula(3, "El lobo", null, null));
+
+        assertEquals(List.of(1), indice.buscar("tiburon lobo", 10));
+    }
+
+    @Test
+    void ignoraLasPalabrasVacias() {
+        IndiceBusqueda indice = indice(pelicula(1, "El señor de los anillos", null, null));
+
+        assertTrue(indice.buscar("el de los", 10).isEmpty());
+        assertEquals(List.of(1), indice.buscar("el señor", 10));
+    }
+
+    @Test
+    void elTituloPuntuaMasQueElDirectorYQueLaDescripcion() {
+        IndiceBusqueda indice = indice(
+                pelicula(1, "Otra", null, "Un tiburón blanco"),
+                pelicula(2, "Tiburón", null, null),
+                pelicula(3, "Otra más", "Tiburón Pérez", null));
+
+        assertEquals(List.of(2, 3, 1), indice.buscar("tiburon", 10));
+    }
+
+    @Test
+    void lasPalabrasRarasPesanMasQueLasFrecuentes() {
+        List<Pelicula> peliculas = new ArrayList<>();
+        // "lobo" en el título de la 1 y "noche" en el de la 2; "noche" aparece además en otras ocho
+        peliculas.add(pelicula(1, "Lobo", null, "Noche"));
+        peliculas.add(pelicula(2, "Noche", null, "Lobo"));
+        for (int i = 3; i <= 10; i++) peliculas.add(pelicula(i, "Noche " + i, null, null));
+        IndiceBusqueda indice = new IndiceBusqueda();
+        indice.construirCon(peliculas);
+
+        assertEquals(List.of(1, 2), indice.buscar("noche lobo", 10));
+    }
+
+    @Test
+    void laPalabraExactaPuntuaMasQueUnPrefijo() {
+        IndiceBusqueda indice = indice(
+                pelicula(1, "El cazador", null, null),
+                pelicula(2, "Caza mayor", null, null));
+
+        assertEquals(List.of(2, 1), indice.buscar("caza", 10));
+    }
+
+    @Test
+    void laUltimaPalabraSeBuscaComoPrefijo() {
+        IndiceBusqueda indice = indice(pelicula(1, "Tiburón", null, "De noche"));
+
+        assertEquals(List.of(1), indice.buscar("tibu", 10));
+        assertEquals(List.of(1), indice.buscar("noche tibu", 10));
+        // Solo la última: una palabra incompleta en medio no se amplía
+        assertTrue(indice.buscar("tibu noche", 10).isEmpty());
+        // Un prefijo de una letra no se amplía
+        assertTrue(indice.buscar("t", 10).isEmpty());
+    }
+
+    @Test
+    void toleraUnaErrataEnPalabrasCortas() {
+        IndiceBusqueda indice = indice(pelicula(1, "El lobo", null, null));
+
+        assertEquals(List.of(1), indice.buscar("lobp", 10));
+        assertEquals(List.of(1), indice.buscar("lobbo", 10));
+        assertTrue(indice.buscar("lapo", 10).isEmpty());
+    }
+
+    @Test
+    void toleraDosErratasEnPalabrasLargas() {
+        IndiceBusqueda indice = indice(pelicula(1, "Tiburón", null, null));
+
+        assertEquals(List.of(1), indice.buscar("tiburom", 10));
+        assertEquals(List.of(1), indice.buscar("tiborun", 10));
+        assertTrue(indice.buscar("tabaran", 10).isEmpty());
+    }
+
+    @Test
+    void unaPalabraQueExisteNoSeAmpliaConAproximadas() {
+        IndiceBusqueda indice = indice(
+                pelicula(1, "Marte", null, null),
+                pelicula(2, "Martes", null, null));
+
+        assertEquals(List.of(2), indice.buscar("martes", 10));
+        assertEquals(List.of(1, 2), indice.buscar("marte", 10));
+    }
+
+    @Test
+    void respetaElLimite() {
+        List<Pelicula> peliculas = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) peliculas.add(pelicula(i, "Saga " + i, null, null));
+        IndiceBusqueda indice = new IndiceBusqueda();
+        indice.construirCon(peliculas);
+
+        assertEquals(5, indice.buscar("saga", 5).size());
+        assertTrue(indice.buscar("saga", 0).isEmpty());
+    }
+
+    @Test
+    void indexarReemplazaYEliminarQuita() {
+        IndiceBusqueda indice = indice(pelicula(1, "Tiburón", null, null), pelicula(2, "Lobo", null, null));
+
+        indice.indexar(pelicula(1, "Ballena", null, null));
+        assertTrue(indice.buscar("tiburon", 10).isEmpty());
+        assertEquals(List.of(1), indice.buscar("ballena", 10));
+
+        indice.eliminar(2);
+        assertTrue(indice.buscar("lobo", 10).isEmpty());
+        assertEquals(1, indice.size());
+    }
+
+    @Test
+    void noIndexaNadaHastaQueSeConstruye() {
+        IndiceBusqueda indice = new IndiceBusqueda();
+
+        indice.indexar(pelicula(1, "Tiburón", null, null));
+
+        assertFalse(indice.isListo());
+        assertEquals(0, indice.size());
+        assertTrue(indice.buscar("tiburon", 10).isEmpty());
+    }
+
+    @Test
+    void unaSegundaConstruccionNoHaceNada() {
+        IndiceBusqueda indice = indice(pelicula(1, "Tiburón", null, null));
+        assertTrue(indice.isListo());
+
+        // Una segunda construcción no hace nada: el índice ya está listo
+        indice.construirCon(List.of(pelicula(1, "Ballena", null, null)));
+        assertEquals(List.of(1), indice.buscar("tiburon", 10));
+    }
+
+    @Test
+    void compactarConservaLosResultados() {
+        List<Pelicula> peliculas = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) peliculas.add(pelicula(i, "Saga " + i, null, null));
+        IndiceBusqueda indice = new IndiceBusqueda();
+        indice.construirCon(peliculas);
+
+        // Cada reindexación deja un documento eliminado; al pasar del mínimo las listas se compactan
+        for (int i = 0; i < 10_001; i++) {
+            indice.indexar(pelicula(1, i % 2 == 0 ? "Ballena" : "Saga 1", null, null));
+        }
+
+        assertEquals(100, indice.size());
+        assertEquals(99, indice.buscar("saga", 1000).size());
+        assertEquals(List.of(1), indice.buscar("ballena", 10));
+        assertEquals(List.of(50), indice.buscar("saga 50", 10));
+    }
+}
@@ -0,0 +1,73 @@
+package user;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+
+    @Test
+    void verificaLaContraseñaCorrectaYRechazaLasDemás() {
+        String hash = PasswordHasher.hash("contraseña segura");
+
+        assertTrue(PasswordHasher.verificar("contraseña segura", hash));
+        assertFalse(PasswordHasher.verificar("contraseña Segura", hash));
+        assertFalse(PasswordHasher.verificar("", hash));
+        assertFalse(PasswordHasher.verificar(null, hash));
+        assertFalse(PasswordHasher.verificar("contraseña segura", null));
+    }
+
+    @Test
+    void elHashTieneElFormatoDocumentadoYSalPropia() {
+        String hash = PasswordHasher.hash("secreto");
+        String[] partes = hash.split("\\$");
+
+        assertEquals(4, partes.length);
+        assertEquals("pbkdf2", partes[0]);
+        assertTrue(Integer.parseInt(partes[1]) > 0);
+        assertEquals(16, Base64.getDecoder().decode(partes[2]).length);
+        assertEquals(32, Base64.getDecoder().decode(partes[3]).length);
+        assertTrue(PasswordHasher.esHash(hash));
+        // La misma contraseña con otra sal da otro hash
+        assertNotEquals(hash, PasswordHasher.hash("secreto"));
+    }
+
+    @Test
+    void aceptaHashesConSusPropiasIteraciones() throws Exception {
+        byte[] sal = new byte[16];
+        byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                .generateSecret(new PBEKeySpec("antigua".toCharArray(), sal, 1_000, 256))
+                .getEncoded();
+        Base64.Encoder b64 = Base64.getEncoder();
+        String guardada = "pbkdf2$1000$" + b64.encodeToString(sal) + "$" + b64.encodeToString(hash);
+
+        assertTrue(PasswordHasher.verificar("antigua", guardada));
+        // Menos iteraciones de las actuales: conviene recalcularlo tras el login
+        assertTrue(PasswordHasher.necesitaActualizar(guardada));
+        assertFalse(PasswordHasher.necesitaActualizar(PasswordHasher.hash("antigua")));
+    }
+
+    @Test
+    void aceptaContraseñasAntiguasEnTextoPlanoYPideActualizarlas() {
+        assertTrue(PasswordHasher.verificar("1234", "1234"));
+        assertFalse(PasswordHasher.verificar("12345", "1234"));
+        assertFalse(PasswordHasher.esHash("1234"));
+        assertTrue(PasswordHasher.necesitaActualizar("1234"));
+        assertTrue(PasswordHasher.necesitaActualizar(null));
+    }
+
+    @Test
+    void unHashMalFormadoNuncaCoincide() {
+        assertFalse(PasswordHasher.verificar("x", "pbkdf2$1000$c2Fs"));
+        assertFalse(PasswordHasher.verificar("x", "pbkdf2$mil$c2Fs$aGFzaA=="));
+        assertFalse(PasswordHasher.verificar("x", "pbkdf2$1000$no base64!$aGFzaA=="));
+        assertTrue(PasswordHasher.necesitaActualizar("pbkdf2$mil$c2Fs$aGFzaA=="));
+    }
+}
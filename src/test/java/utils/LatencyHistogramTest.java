@@ -0,0 +1,113 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void losValoresPequeñosTienenCubetaPropia() {
+        for (int v = 0; v < 8; v++) {
+            assertEquals(v, LatencyHistogram.indice(v));
+            assertEquals((long) v, LatencyHistogram.limiteSuperior(v));
+        }
+    }
+
+    @Test
+    void lasCubetasSonContiguasYCrecientes() {
+        int ultima = LatencyHistogram.indice(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.limiteSuperior(ultima));
+        for (int i = 1; i <= ultima; i++) {
+            long inferior = LatencyHistogram.limiteSuperior(i - 1) + 1;
+            assertEquals(i, LatencyHistogram.indice(inferior), "inicio de la cubeta " + i);
+            assertEquals(i, LatencyHistogram.indice(LatencyHistogram.limiteSuperior(i)), "fin de la cubeta " + i);
+        }
+    }
+
+    @Test
+    void cadaValorCaeEnUnaCubetaConErrorRelativoAcotado() {
+        List<Long> valores = new ArrayList<>();
+        for (long v = 0; v <= 100_000; v++) valores.add(v);
+        for (int bit = 17; bit < 63; bit++) {
+            valores.add(1L << bit);
+            valores.add((1L << bit) - 1);
+            valores.add((1L << bit) + (1L << (bit - 2)) + 12345);
+        }
+        for (long v : valores) {
+            int i = LatencyHistogram.indice(v);
+            long superior = LatencyHistogram.limiteSuperior(i);
+            long inferior = i == 0 ? 0 : LatencyHistogram.limiteSuperior(i - 1) + 1;
+            assertTrue(inferior <= v && v <= superior, v + " fuera de [" + inferior + ", " + superior + "]");
+            assertTrue(superior - inferior <= inferior / 8, "cubeta demasiado ancha para " + v);
+        }
+    }
+
+    @Test
+    void losPercentilesRespetanElError() {
+        LatencyHistogram h = new LatencyHistogram("prueba");
+        for (int v = 1; v <= 1000; v++) h.record(v);
+
+        assertEquals(1000L, h.getCount());
+        assertEquals(500.5, h.getMean(), 1e-9);
+        assertEquals(1000L, h.getMax());
+        long p50 = h.percentile(50);
+        assertTrue(p50 >= 500 && p50 <= 500 * 1.125, "p50=" + p50);
+        long p99 = h.percentile(99);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99=" + p99);
+        // El percentil 100 es el máximo real, no el límite de su cubeta
+        assertEquals(1000L, h.percentile(100));
+        assertEquals(1L, h.percentile(0));
+    }
+
+    @Test
+    void sinMuestrasTodoEsCero() {
+        LatencyHistogram h = new LatencyHistogram("vacio");
+
+        assertEquals(0L, h.getCount());
+        assertEquals(0.0, h.getMean(), 0);
+        assertEquals(0L, h.percentile(99));
+    }
+
+    @Test
+    void lasMuestrasNegativasCuentanComoCero() {
+        LatencyHistogram h = new LatencyHistogram("negativas");
+        h.record(-5);
+
+        assertEquals(1L, h.getCount());
+        assertEquals(0L, h.getMax());
+        assertEquals(0L, h.percentile(50));
+    }
+
+    @Test
+    void resetDescartaLasMuestras() {
+        LatencyHistogram h = new LatencyHistogram("reset");
+        h.record(1_000_000);
+        h.reset();
+
+        assertEquals(0L, h.getCount());
+        assertEquals(0L, h.getMax());
+        assertEquals(0L, h.percentile(50));
+    }
+
+    @Test
+    void noPierdeMuestrasConVariosHilos() throws InterruptedException {
+        LatencyHistogram h = new LatencyHistogram("concurrente");
+        List<Thread> hilos = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread hilo = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) h.record(i);
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) hilo.join();
+
+        assertEquals(80_000L, h.getCount());
+        assertEquals(9_999L, h.getMax());
+    }
+}